@@ -0,0 +1,10 @@
+#!/bin/sh
+# Prints the audit log (print) or the users it describes (replay), optionally up to an ISO instant:
+#   scripts/audit-log.sh <directory> print|replay [2024-05-01T12:00:00Z]
+# Needs the application jar (./mvnw package).
+set -e
+cd "$(dirname "$0")/.."
+
+jar=$(ls target/clear_solutions_demo_tra-jun-*.jar | grep -v plain | head -1)
+exec java -cp "$jar" -Dloader.main=demo.clear_solutions_demo_trajun.service.AuditLogReader \
+  org.springframework.boot.loader.launch.PropertiesLauncher "$@"
@@ -0,0 +1,22 @@
+#!/bin/sh
+# Builds the WebFlux variant, starts it against MONGO_HOST (default localhost) and runs RuntimeLoadComparison
+# once per write durability, sent as the Write-Durability header of the writes. Majority writes only wait for
+# other members on a replica set, so point MONGO_HOST at one for a meaningful durable column.
+# Extra arguments are passed to the JVM running the load; writes are half of the mix unless -Dwrites says otherwise.
+set -e
+cd "$(dirname "$0")/.."
+
+JAR=target/clear_solutions_demo_tra-jun-0.0.1-SNAPSHOT.jar
+HEAP=${HEAP:--Xmx512m}
+
+./mvnw -q -B package -DskipTests
+
+# Load shedding is disabled so every durability queues requests the same way
+java $HEAP -jar "$JAR" --server.port=8080 --user.concurrency.enabled=false > target/durability.log 2>&1 &
+PID=$!
+trap 'kill $PID 2>/dev/null' EXIT
+
+until curl -sf "http://localhost:8080/actuator/health" > /dev/null; do sleep 1; done
+
+java -Dwrites=50 "$@" src/test/java/demo/clear_solutions_demo_trajun/benchmark/RuntimeLoadComparison.java \
+  fast=http://localhost:8080#fast standard=http://localhost:8080#standard durable=http://localhost:8080#durable
@@ -0,0 +1,28 @@
+#!/bin/sh
+# Builds the WebFlux and the Spring MVC + virtual threads variants, starts both against the same MongoDB
+# (MONGO_HOST, default localhost) with the same heap, and runs RuntimeLoadComparison against them.
+# Extra arguments are passed to the JVM running the load, e.g. -Dconcurrency=512 -Dduration=60
+set -e
+cd "$(dirname "$0")/.."
+
+JAR=target/clear_solutions_demo_tra-jun-0.0.1-SNAPSHOT.jar
+HEAP=${HEAP:--Xmx512m}
+
+./mvnw -q -B package -DskipTests
+cp "$JAR" target/webflux.jar
+./mvnw -q -B -Pmvc package -DskipTests
+cp "$JAR" target/mvc.jar
+
+# Load shedding is disabled so both variants queue requests the same way
+java $HEAP -jar target/webflux.jar --server.port=8080 --user.concurrency.enabled=false > target/webflux.log 2>&1 &
+WEBFLUX_PID=$!
+java $HEAP -jar target/mvc.jar --server.port=8081 > target/mvc.log 2>&1 &
+MVC_PID=$!
+trap 'kill $WEBFLUX_PID $MVC_PID 2>/dev/null' EXIT
+
+for port in 8080 8081; do
+  until curl -sf "http://localhost:$port/actuator/health" > /dev/null; do sleep 1; done
+done
+
+java "$@" src/test/java/demo/clear_solutions_demo_trajun/benchmark/RuntimeLoadComparison.java \
+  webflux=http://localhost:8080 mvc=http://localhost:8081
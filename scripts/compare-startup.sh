@@ -0,0 +1,28 @@
+#!/bin/sh
+# Builds the JVM (Dockerfile) and native (Dockerfile.native) images, starts each against MongoDB
+# (MONGO_HOST, default localhost) and reports time until /actuator/health answers UP and the resident set size.
+set -e
+cd "$(dirname "$0")/.."
+
+MONGO_HOST=${MONGO_HOST:-localhost}
+
+docker build -q -t cleasol/demo -f Dockerfile . > /dev/null
+docker build -q -t cleasol/demo-native -f Dockerfile.native . > /dev/null
+
+measure() {
+  name=$1
+  image=$2
+  start=$(date +%s%N)
+  container=$(docker run -d --rm --network host -e MONGO_HOST="$MONGO_HOST" "$image")
+  until curl -sf http://localhost:8080/actuator/health | grep -q UP; do sleep 0.05; done
+  ready_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+  started=$(docker logs "$container" 2>&1 | sed -n 's/.*Started .* in \([0-9.]*\) seconds.*/\1/p')
+  sleep 2
+  rss=$(docker stats --no-stream --format '{{.MemUsage}}' "$container" | cut -d/ -f1)
+  docker stop "$container" > /dev/null
+  printf '%-8s %16s %18s %12s\n' "$name" "${ready_ms} ms" "${started} s" "$rss"
+}
+
+printf '%-8s %16s %18s %12s\n' image "ready (wall)" "Started in (log)" RSS
+measure jvm cleasol/demo
+measure native cleasol/demo-native
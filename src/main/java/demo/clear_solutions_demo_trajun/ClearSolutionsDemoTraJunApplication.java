@@ -1,11 +1,14 @@
 package demo.clear_solutions_demo_trajun;
 
+import demo.clear_solutions_demo_trajun.configuration.NativeHints;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
 @OpenAPIDefinition
+@ImportRuntimeHints(NativeHints.class)
 public class ClearSolutionsDemoTraJunApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,126 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Gradient based concurrency limit (after Netflix's Gradient2).
+ * <p>A long-term average latency is compared with each new sample: while the two agree the limit
+ * grows by roughly {@code sqrt(limit)}, when samples get slower than {@code tolerance} times the
+ * long-term average the limit shrinks proportionally, down to halving. The limit only grows while
+ * at least half of it is in use, so an idle endpoint does not inflate it.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double smoothing;
+
+    private final double tolerance;
+
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile double estimatedLimit;
+
+    private volatile int limit;
+
+    private double longRttNanos;
+
+    private long samples;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance,
+                                    LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * @return a permit to be completed or released when the request ends, or {@code null} when the limit is reached
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1))
+                return new Permit(nanoClock.getAsLong(), current + 1);
+        }
+    }
+
+    synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        samples++;
+        // Warm-up: plain average over the first samples, then an exponential moving average
+        double window = Math.min(samples, 600);
+        longRttNanos += (rttNanos - longRttNanos) / window;
+
+        // Recover quickly when latency dropped well below the long-term average (e.g. after an incident)
+        if (longRttNanos / rttNanos > 2)
+            longRttNanos *= 0.95;
+
+        if (inFlightAtStart < estimatedLimit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public synchronized double getLongRttMillis() {
+        return longRttNanos / 1_000_000;
+    }
+
+    public class Permit {
+
+        private final long startNanos;
+
+        private final int inFlightAtStart;
+
+        private Permit(long startNanos, int inFlightAtStart) {
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Request finished (successfully or not): frees the slot and feeds its latency to the limit.
+         */
+        public void complete() {
+            inFlight.decrementAndGet();
+            onSample(Math.max(nanoClock.getAsLong() - startNanos, 1), inFlightAtStart);
+        }
+
+        /**
+         * Request was cancelled: frees the slot without a latency sample.
+         */
+        public void release() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.commons.logging.Log;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jackson encoders for the binary formats (CBOR, Smile).
+ * <p>The stock CBOR encoder refuses to encode a {@link Flux} and the stock Smile encoder joins
+ * elements with JSON punctuation, so here a {@link Flux} is written as one native array,
+ * one buffer per element, without collecting the stream first. The typed writer for each element
+ * type is built once per encoder.
+ */
+public final class BinaryJackson2Encoders {
+
+    private BinaryJackson2Encoders() {
+    }
+
+    public static class Cbor extends Jackson2CborEncoder {
+
+        private final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+        public Cbor(ObjectMapper mapper, MimeType... mimeTypes) {
+            super(mapper, mimeTypes);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, @Nullable MimeType mimeType,
+                                       @Nullable Map<String, Object> hints) {
+            if (inputStream instanceof Mono)
+                return Mono.from(inputStream)
+                        .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                        .flux();
+            return encodeArray(getObjectMapper(), writers, inputStream, bufferFactory, elementType, logger);
+        }
+    }
+
+    public static class Smile extends Jackson2SmileEncoder {
+
+        private final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+        public Smile(ObjectMapper mapper, MimeType... mimeTypes) {
+            super(mapper, mimeTypes);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, @Nullable MimeType mimeType,
+                                       @Nullable Map<String, Object> hints) {
+            if (inputStream instanceof Mono || getStreamingMediaTypeSeparator(mimeType) != null)
+                return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+            return encodeArray(getObjectMapper(), writers, inputStream, bufferFactory, elementType, logger);
+        }
+    }
+
+    private static Flux<DataBuffer> encodeArray(ObjectMapper mapper, Map<Type, ObjectWriter> writers,
+                                                Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                                ResolvableType elementType, Log logger) {
+        return Flux.defer(() -> {
+            ObjectWriter writer = writers.computeIfAbsent(elementType.getType(),
+                    type -> mapper.writerFor(mapper.constructType(type)));
+            ByteArrayBuilder byteBuilder = new ByteArrayBuilder();
+            JsonGenerator generator;
+            try {
+                generator = mapper.getFactory().createGenerator(byteBuilder);
+            } catch (IOException e) {
+                return Flux.error(e);
+            }
+            boolean[] started = {false};
+
+            // The array start is written lazily so that an error before the first element
+            // still leaves the response uncommitted
+            return Flux.from(inputStream)
+                    .map(value -> {
+                        try {
+                            if (!started[0]) {
+                                generator.writeStartArray();
+                                started[0] = true;
+                            }
+                            writer.writeValue(generator, value);
+                            return drain(generator, byteBuilder, bufferFactory);
+                        } catch (IOException e) {
+                            throw new EncodingException("Binary encoding error: " + e.getMessage(), e);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(() -> {
+                        if (!started[0])
+                            generator.writeStartArray();
+                        generator.writeEndArray();
+                        return drain(generator, byteBuilder, bufferFactory);
+                    }))
+                    .doFinally(signal -> {
+                        try {
+                            generator.close();
+                        } catch (IOException e) {
+                            logger.error("Could not close Encoder resources", e);
+                        }
+                        byteBuilder.release();
+                    });
+        });
+    }
+
+    private static DataBuffer drain(JsonGenerator generator, ByteArrayBuilder byteBuilder,
+                                    DataBufferFactory bufferFactory) throws IOException {
+        generator.flush();
+        byte[] bytes = byteBuilder.toByteArray();
+        byteBuilder.reset();
+        DataBuffer buffer = bufferFactory.allocateBuffer(bytes.length);
+        buffer.write(bytes);
+        return buffer;
+    }
+}
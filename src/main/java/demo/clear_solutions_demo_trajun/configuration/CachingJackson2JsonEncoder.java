@@ -0,0 +1,44 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON encoder that keeps one typed {@link ObjectWriter} per payload type.
+ * <p>The stock encoder builds an untyped writer for every request, so each element of a streamed
+ * response looks its root serializer up again. Writers are immutable, so a typed one is built once
+ * and reused; JSON views, SSE pretty printing and extra per-type mappers still take the stock path.
+ */
+public class CachingJackson2JsonEncoder extends Jackson2JsonEncoder {
+
+    private final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public CachingJackson2JsonEncoder(ObjectMapper mapper, MimeType... mimeTypes) {
+        super(mapper, mimeTypes);
+    }
+
+    @Override
+    protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType,
+                                           ResolvableType elementType, @Nullable Map<String, Object> hints) {
+        ObjectWriter customized = super.customizeWriter(writer, mimeType, elementType, hints);
+        ObjectMapper mapper = getObjectMapper();
+        // A different config means a JSON view or a mapper registered for a specific type
+        if (customized != writer || writer.getConfig() != mapper.getSerializationConfig()
+                || !isConcrete(elementType.toClass()))
+            return customized;
+        return writers.computeIfAbsent(elementType.getType(), type -> mapper.writerFor(mapper.constructType(type)));
+    }
+
+    private static boolean isConcrete(Class<?> type) {
+        return type != Object.class && !type.isInterface() && !Modifier.isAbstract(type.getModifiers());
+    }
+}
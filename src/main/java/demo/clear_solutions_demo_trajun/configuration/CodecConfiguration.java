@@ -0,0 +1,66 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.accept.RequestedContentTypeResolverBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers CBOR and Smile next to JSON so internal callers can skip text encoding.
+ * Both mappers come from Boot's builder, so modules and {@code @JsonFormat} behave as they do for JSON.
+ * JSON is written through {@link CachingJackson2JsonEncoder}, and every mapper gets Blackbird.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class CodecConfiguration implements WebFluxConfigurer {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+    private final ObjectProvider<ObjectMapper> objectMapper;
+
+    // Blackbird swaps reflective getters/setters for generated lambdas, which a native image cannot define at runtime
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer blackbirdCustomizer() {
+        return builder -> builder.postConfigurer(mapper -> {
+            if (!NativeDetector.inNativeImage())
+                mapper.registerModule(new BlackbirdModule());
+        });
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        // Runs after Boot's own codec customizers, so this replaces the stock JSON encoder
+        configurer.defaultCodecs().jackson2JsonEncoder(new CachingJackson2JsonEncoder(objectMapper.getObject()));
+
+        ObjectMapper cborMapper = objectMapperBuilder.getObject().factory(new CBORFactory()).build();
+        ObjectMapper smileMapper = objectMapperBuilder.getObject().factory(new SmileFactory()).build();
+
+        configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+        configurer.customCodecs().register(new BinaryJackson2Encoders.Cbor(cborMapper, MediaType.APPLICATION_CBOR));
+        configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+        configurer.defaultCodecs().jackson2SmileEncoder(new BinaryJackson2Encoders.Smile(smileMapper, APPLICATION_SMILE));
+    }
+
+    // Custom codecs are consulted before the default ones, so without this a request
+    // with no Accept header would be answered in CBOR instead of JSON
+    @Override
+    public void configureContentTypeResolver(RequestedContentTypeResolverBuilder builder) {
+        builder.headerResolver();
+        builder.fixedResolver(MediaType.APPLICATION_JSON, MediaType.ALL);
+    }
+}
@@ -0,0 +1,118 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load shedding in front of the user API: every endpoint class has its own
+ * {@link AdaptiveConcurrencyLimit}, and requests beyond it are answered at once with
+ * 503 and {@code Retry-After} instead of queueing on the Mongo connection pool.
+ * Export and import are self-paced streams and are not limited here.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitWebFilter implements WebFilter, MeterBinder {
+
+    public enum EndpointClass {
+        READ, WRITE, SEARCH
+    }
+
+    private static final String API_PATH = "/api/users";
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+
+    private final boolean enabled;
+
+    private final String retryAfterSeconds;
+
+    public ConcurrencyLimitWebFilter(@Value("${user.concurrency.enabled}") boolean enabled,
+                                     @Value("${user.concurrency.initial-limit}") int initialLimit,
+                                     @Value("${user.concurrency.min-limit}") int minLimit,
+                                     @Value("${user.concurrency.max-limit}") int maxLimit,
+                                     @Value("${user.concurrency.smoothing}") double smoothing,
+                                     @Value("${user.concurrency.tolerance}") double tolerance,
+                                     @Value("${user.concurrency.retry-after}") Duration retryAfter) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        for (EndpointClass endpointClass : EndpointClass.values())
+            limits.put(endpointClass, new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                    smoothing, tolerance, System::nanoTime));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        EndpointClass endpointClass = enabled ? classify(exchange.getRequest()) : null;
+        if (endpointClass == null)
+            return chain.filter(exchange);
+
+        AdaptiveConcurrencyLimit.Permit permit = limits.get(endpointClass).tryAcquire();
+        if (permit == null) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return response.setComplete();
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL)
+                        permit.release();
+                    else
+                        permit.complete();
+                });
+    }
+
+    static EndpointClass classify(ServerHttpRequest request) {
+        String path = request.getPath().pathWithinApplication().value();
+        if (!path.startsWith(API_PATH))
+            return null;
+        String subPath = path.substring(API_PATH.length());
+        if (subPath.startsWith("/export") || subPath.startsWith("/import"))
+            return null;
+        if (request.getMethod() != HttpMethod.GET)
+            return EndpointClass.WRITE;
+        return subPath.startsWith("/search") ? EndpointClass.SEARCH : EndpointClass.READ;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limits.forEach((endpointClass, limit) -> {
+            String endpoint = endpointClass.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("user.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .tag("endpoint", endpoint)
+                    .description("Current adaptive concurrency limit")
+                    .register(registry);
+            Gauge.builder("user.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            Gauge.builder("user.concurrency.long-rtt", limit, AdaptiveConcurrencyLimit::getLongRttMillis)
+                    .tag("endpoint", endpoint)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("user.concurrency.rejected", limit, AdaptiveConcurrencyLimit::getRejected)
+                    .tag("endpoint", endpoint)
+                    .description("Requests shed with 503")
+                    .register(registry);
+        });
+    }
+}
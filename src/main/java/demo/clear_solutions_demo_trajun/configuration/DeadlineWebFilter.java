@@ -0,0 +1,111 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import demo.clear_solutions_demo_trajun.configuration.ConcurrencyLimitWebFilter.EndpointClass;
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import demo.clear_solutions_demo_trajun.repository.Deadline;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gives every user API request a {@link Deadline}: {@code user.deadline.read}, {@code search} or {@code write}
+ * depending on the endpoint, or the {@code Request-Timeout} header (e.g. {@code 750ms}, {@code 2s}, plain numbers
+ * are milliseconds) capped at {@code user.deadline.max}. Mongo finds of the request are sent with the time left
+ * as {@code maxTimeMS}; once it runs out the request is cancelled, which closes its cursors, and answered with 504.
+ * Export and import are self-paced streams and get no deadline.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 15)
+public class DeadlineWebFilter implements WebFilter, MeterBinder {
+
+    public static final String REQUEST_TIMEOUT = "Request-Timeout";
+
+    private final boolean enabled;
+
+    private final Map<EndpointClass, Duration> timeouts = new EnumMap<>(EndpointClass.class);
+
+    private final Duration maxTimeout;
+
+    private final Map<EndpointClass, LongAdder> exceeded = new EnumMap<>(EndpointClass.class);
+
+    public DeadlineWebFilter(@Value("${user.deadline.enabled}") boolean enabled,
+                             @Value("${user.deadline.read}") Duration read,
+                             @Value("${user.deadline.search}") Duration search,
+                             @Value("${user.deadline.write}") Duration write,
+                             @Value("${user.deadline.max}") Duration maxTimeout) {
+        this.enabled = enabled;
+        this.maxTimeout = maxTimeout;
+        timeouts.put(EndpointClass.READ, read);
+        timeouts.put(EndpointClass.SEARCH, search);
+        timeouts.put(EndpointClass.WRITE, write);
+        for (EndpointClass endpointClass : EndpointClass.values())
+            exceeded.put(endpointClass, new LongAdder());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        EndpointClass endpointClass = enabled ? ConcurrencyLimitWebFilter.classify(exchange.getRequest()) : null;
+        if (endpointClass == null)
+            return chain.filter(exchange);
+        String header = exchange.getRequest().getHeaders().getFirst(REQUEST_TIMEOUT);
+        Duration timeout;
+        try {
+            timeout = header == null ? timeouts.get(endpointClass) : parse(header);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    REQUEST_TIMEOUT + " must be a positive duration such as 500ms or 2s"));
+        }
+        Deadline deadline = Deadline.after(timeout);
+        return chain.filter(exchange)
+                .timeout(timeout)
+                .onErrorMap(DeadlineWebFilter::isTimeout, e -> {
+                    exceeded.get(endpointClass).increment();
+                    return new DeadlineExceededException("Request did not complete within " + timeout.toMillis() + "ms");
+                })
+                .contextWrite(Deadline.within(deadline));
+    }
+
+    private Duration parse(String header) {
+        Duration timeout = DurationStyle.detectAndParse(header.trim());
+        if (timeout.isNegative() || timeout.isZero())
+            throw new IllegalArgumentException(header);
+        return timeout.compareTo(maxTimeout) > 0 ? maxTimeout : timeout;
+    }
+
+    // Spring Data wraps the server's maxTimeMS error in a DataAccessException
+    private static boolean isTimeout(Throwable e) {
+        if (e instanceof TimeoutException || e instanceof DeadlineExceededException)
+            return true;
+        for (Throwable cause = e; cause != null; cause = cause.getCause())
+            if (cause instanceof MongoExecutionTimeoutException)
+                return true;
+        return false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        exceeded.forEach((endpointClass, count) -> FunctionCounter.builder("user.deadline.exceeded", count, LongAdder::sum)
+                .tag("endpoint", endpointClass.name().toLowerCase(Locale.ROOT))
+                .description("Requests answered with 504 because their deadline expired")
+                .register(registry));
+    }
+}
@@ -0,0 +1,250 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.repository.IdempotencyRepository;
+import demo.clear_solutions_demo_trajun.repository.IdempotentResponse;
+import demo.clear_solutions_demo_trajun.service.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Makes user writes sent with an {@code Idempotency-Key} header safe to retry: the first response
+ * (status, content type and body) is stored for {@code user.idempotency.ttl}, and later requests with
+ * the same key are answered with it, marked {@code Idempotent-Replayed}, without reaching the controller.
+ * Concurrent requests with the same key wait for the first one instead of running alongside it.
+ * <p>Responses are kept in memory for this instance and in MongoDB for the others. 5xx responses
+ * and errors rendered outside the controller (e.g. 404) are not stored, so their retries run again.
+ * A key reused for a different method or path is rejected with 422.
+ * Runs before load shedding, so replays do not take a concurrency permit.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class IdempotencyWebFilter implements WebFilter, MeterBinder {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final String API_PATH = "/api/users";
+
+    private final IdempotencyRepository idempotencyRepository;
+
+    private final boolean enabled;
+
+    private final Duration ttl;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final Map<String, IdempotentResponse> cache;
+
+    private final SingleFlight<String, IdempotentResponse> executions = new SingleFlight<>("idempotency", true);
+
+    private final LongAdder replays = new LongAdder();
+
+    public IdempotencyWebFilter(IdempotencyRepository idempotencyRepository,
+                                @Value("${user.idempotency.enabled}") boolean enabled,
+                                @Value("${user.idempotency.ttl}") Duration ttl,
+                                @Value("${user.idempotency.cache-size}") int cacheSize) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotentResponse> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createTtlIndex() {
+        if (enabled)
+            Mono.defer(() -> idempotencyRepository.ensureTtlIndex(ttl))
+                    .subscribe(null, e -> log.warn("Idempotency TTL index not created: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String key = enabled ? request.getHeaders().getFirst(IDEMPOTENCY_KEY) : null;
+        if (key == null || !isUserWrite(request))
+            return chain.filter(exchange);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY + " must be 1 to " + MAX_KEY_LENGTH + " characters"));
+        String requestLine = request.getMethod().name() + " " + request.getPath().pathWithinApplication().value();
+
+        IdempotentResponse cached = cached(key);
+        if (cached != null)
+            return replay(exchange, cached, requestLine);
+
+        AtomicBoolean executed = new AtomicBoolean();
+        return executions.mono(key, k -> find(k).switchIfEmpty(Mono.defer(() -> {
+                    executed.set(true);
+                    return execute(exchange, chain, k, requestLine);
+                })))
+                .materialize()
+                .flatMap(signal -> {
+                    if (executed.get())
+                        return signal.hasError() ? Mono.error(signal.getThrowable()) : Mono.empty();
+                    IdempotentResponse response = signal.get();
+                    // The request this one waited for failed or is not replayable: run it on its own
+                    return response != null ? replay(exchange, response, requestLine) : filter(exchange, chain);
+                });
+    }
+
+    /**
+     * {@code POST /api/users} and {@code PUT}, {@code PATCH} or {@code DELETE /api/users/{email}}.
+     */
+    static boolean isUserWrite(ServerHttpRequest request) {
+        String path = request.getPath().pathWithinApplication().value();
+        if (!path.startsWith(API_PATH))
+            return false;
+        String subPath = path.substring(API_PATH.length());
+        HttpMethod method = request.getMethod();
+        if (method == HttpMethod.POST)
+            return subPath.isEmpty() || subPath.equals("/");
+        return (method == HttpMethod.PUT || method == HttpMethod.PATCH || method == HttpMethod.DELETE)
+                && subPath.length() > 1 && subPath.lastIndexOf('/') == 0;
+    }
+
+    // Store failures only cost the replay, the request itself goes ahead
+    private Mono<IdempotentResponse> find(String key) {
+        return idempotencyRepository.findByKey(key)
+                .filter(this::isLive)
+                .doOnNext(this::cache)
+                .onErrorResume(e -> {
+                    log.warn("Idempotency key lookup failed: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<IdempotentResponse> execute(ServerWebExchange exchange, WebFilterChain chain, String key,
+                                             String requestLine) {
+        CapturingResponse response = new CapturingResponse(exchange.getResponse());
+        return chain.filter(exchange.mutate().response(response).build())
+                .then(Mono.fromSupplier(() -> {
+                    HttpStatusCode status = response.getStatusCode() == null ? HttpStatus.OK : response.getStatusCode();
+                    if (status.is5xxServerError())
+                        return null;
+                    MediaType contentType = response.getHeaders().getContentType();
+                    IdempotentResponse stored = new IdempotentResponse(key, requestLine, status.value(),
+                            contentType == null ? null : contentType.toString(), response.body, clock.instant());
+                    cache(stored);
+                    // In the background, so the response does not wait for it; this instance replays from memory meanwhile
+                    idempotencyRepository.insert(stored)
+                            .subscribe(null, e -> log.warn("Idempotent response not stored: {}", e.getMessage()));
+                    return stored;
+                }));
+    }
+
+    private Mono<Void> replay(ServerWebExchange exchange, IdempotentResponse stored, String requestLine) {
+        if (!stored.request().equals(requestLine))
+            return Mono.error(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    IDEMPOTENCY_KEY + " was already used for " + stored.request()));
+        replays.increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(stored.status()));
+        if (stored.contentType() != null)
+            response.getHeaders().set(HttpHeaders.CONTENT_TYPE, stored.contentType());
+        response.getHeaders().set(IDEMPOTENT_REPLAYED, "true");
+        if (stored.body().length == 0)
+            return response.setComplete();
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(stored.body())));
+    }
+
+    @Nullable
+    private IdempotentResponse cached(String key) {
+        synchronized (cache) {
+            IdempotentResponse response = cache.get(key);
+            if (response != null && !isLive(response)) {
+                cache.remove(key);
+                return null;
+            }
+            return response;
+        }
+    }
+
+    private void cache(IdempotentResponse response) {
+        synchronized (cache) {
+            cache.put(response.key(), response);
+        }
+    }
+
+    // MongoDB removes expired responses only about once a minute
+    private boolean isLive(IdempotentResponse response) {
+        return response.createdAt().plus(ttl).isAfter(clock.instant());
+    }
+
+    public int getCachedResponses() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.idempotency.replays", replays, LongAdder::sum)
+                .description("Writes answered with the stored response of an earlier request with the same key")
+                .register(registry);
+        Gauge.builder("user.idempotency.cached", this, IdempotencyWebFilter::getCachedResponses)
+                .register(registry);
+        executions.bindTo(registry);
+    }
+
+    // Keeps a copy of the body on its way out; controller responses here are single small documents
+    private static final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private byte[] body = new byte[0];
+
+        private CapturingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                this.body = bytes;
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+}
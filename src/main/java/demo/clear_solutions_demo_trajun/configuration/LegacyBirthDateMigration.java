@@ -0,0 +1,68 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Converts birth dates written before the compact storage form. Date range searches and the export only match
+ * the compact form, so the readiness probe stays down until the migration is done. Startup does not wait for
+ * the database; a migration that keeps failing is retried a few times, then the instance reports ready anyway.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LegacyBirthDateMigration implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+
+    private static final Retry RETRY = Retry.backoff(3, Duration.ofSeconds(1));
+
+    private final UserRepository userRepository;
+
+    private volatile boolean done;
+
+    private volatile Long migrated;
+
+    private volatile String error;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        run().subscribe();
+    }
+
+    public Mono<Void> run() {
+        return userRepository.migrateLegacyBirthDates()
+                .retryWhen(RETRY)
+                .doOnNext(count -> {
+                    migrated = count;
+                    if (count > 0)
+                        log.info("Migrated {} legacy birth dates to the compact form", count);
+                })
+                .doOnError(e -> {
+                    error = e.getMessage();
+                    log.warn("Legacy birth date migration failed, range searches miss unmigrated users: {}", e.getMessage());
+                })
+                .onErrorResume(e -> Mono.empty())
+                // Before the completion is signalled, so whoever awaits it sees the instance ready
+                .doOnTerminate(() -> done = true)
+                .then();
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = done ? Health.up() : Health.outOfService();
+        if (migrated != null)
+            health.withDetail("migrated", migrated);
+        if (error != null)
+            health.withDetail("error", error);
+        return health.build();
+    }
+}
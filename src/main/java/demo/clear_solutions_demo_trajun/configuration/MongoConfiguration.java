@@ -0,0 +1,73 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.ContextAwareMongoTemplate;
+import demo.clear_solutions_demo_trajun.repository.UserDocumentConverters;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class MongoConfiguration {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(UserDocumentConverters.converters());
+    }
+
+    // Replaces the auto-configured template, repositories included
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory,
+                                                       MongoConverter converter) {
+        return new ContextAwareMongoTemplate(reactiveMongoDatabaseFactory, converter);
+    }
+
+    // Keeps the connections opened by the warm-up, so a quiet period does not make the next requests pay for them
+    @Bean
+    public MongoClientSettingsBuilderCustomizer minConnectionPoolSize(@Value("${user.warm-up.connections}") int connections) {
+        return builder -> builder.applyToConnectionPoolSettings(pool -> pool.minSize(connections));
+    }
+
+    /**
+     * Partitions from {@code user.partitioning.partitions}, each {@code database.collection} or just {@code database}
+     * for its {@code usr} collection. Without any, all users stay in the default collection.
+     */
+    @Bean
+    public UserPartitions userPartitions(ReactiveMongoTemplate reactiveMongoTemplate, MongoClient mongoClient,
+                                         MongoConverter converter, MongoProperties mongoProperties,
+                                         @Value("${user.partitioning.partitions}") List<String> names,
+                                         @Value("${user.partitioning.rebalancing}") boolean rebalancing) {
+        String defaultDatabase = mongoProperties.getMongoClientDatabase();
+        String defaultCollection = reactiveMongoTemplate.getCollectionName(User.class);
+        if (names.isEmpty())
+            return new UserPartitions(List.of(new UserPartitions.Partition(defaultDatabase + "." + defaultCollection,
+                    reactiveMongoTemplate, defaultCollection)), false);
+
+        Map<String, ReactiveMongoTemplate> templates = new HashMap<>();
+        templates.put(defaultDatabase, reactiveMongoTemplate);
+        List<UserPartitions.Partition> partitions = new ArrayList<>(names.size());
+        for (String name : names) {
+            int dot = name.indexOf('.');
+            String database = dot < 0 ? name.trim() : name.substring(0, dot).trim();
+            String collection = dot < 0 ? defaultCollection : name.substring(dot + 1).trim();
+            ReactiveMongoTemplate template = templates.computeIfAbsent(database, db -> new ContextAwareMongoTemplate(
+                    new SimpleReactiveMongoDatabaseFactory(mongoClient, db), converter));
+            partitions.add(new UserPartitions.Partition(database + "." + collection, template, collection));
+        }
+        return new UserPartitions(partitions, rebalancing);
+    }
+}
@@ -0,0 +1,39 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.Util;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
+import demo.clear_solutions_demo_trajun.domain.PartialUser;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserOperationResult;
+import demo.clear_solutions_demo_trajun.domain.UserPage;
+import demo.clear_solutions_demo_trajun.domain.UserSearchRequest;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import demo.clear_solutions_demo_trajun.exception.ApiErrorDetail;
+import demo.clear_solutions_demo_trajun.exception.ApiFieldErrorDetail;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection and resource hints for the native image ({@code -Pnative}) that Spring AOT cannot infer.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Jackson (JSON, CBOR, Smile, RSocket) and springdoc read these through their bean properties
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                User.class, UserUpdateDTO.class, UserSearchRequest.class, UserOperationResult.class, UserPage.class,
+                PartialUser.class, ImportJobStatus.class, ApiErrorDetail.class, ApiFieldErrorDetail.class);
+
+        // Util.updateFieldsFromDTO copies UserUpdateDTO fields onto User fields of the same name;
+        // bean validation and the Mongo mapping layer also read fields directly
+        for (Class<?> type : new Class<?>[]{User.class, UserUpdateDTO.class, UserSearchRequest.class})
+            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        hints.reflection().registerType(Util.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/*");
+    }
+}
@@ -0,0 +1,19 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.rsocket.RSocketMessageHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+@Configuration
+public class RSocketConfiguration {
+
+    /**
+     * Boot leaves the RSocket handler without a validator, so {@code @Valid} payloads would not be checked.
+     */
+    @Bean
+    public RSocketMessageHandlerCustomizer rSocketValidationCustomizer(Validator validator) {
+        return messageHandler -> messageHandler.setValidator(new SpringValidatorAdapter(validator));
+    }
+}
@@ -1,7 +1,6 @@
 package demo.clear_solutions_demo_trajun.configuration;
 
-import demo.clear_solutions_demo_trajun.exception.ApiErrorDetail;
-import demo.clear_solutions_demo_trajun.exception.ApiFieldErrorDetail;
+import demo.clear_solutions_demo_trajun.exception.ApiErrors;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -11,8 +10,6 @@ import org.springframework.web.reactive.result.method.annotation.ResponseEntityE
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.util.List;
-
 @RestControllerAdvice
 public class RestResponseEntityExceptionHandler
         extends ResponseEntityExceptionHandler {
@@ -20,9 +17,6 @@ public class RestResponseEntityExceptionHandler
     protected Mono<ResponseEntity<Object>> handleWebExchangeBindException(
             WebExchangeBindException ex, HttpHeaders headers, HttpStatusCode status,
             ServerWebExchange exchange) {
-        List<ApiFieldErrorDetail> errorList = ex.getBindingResult().getFieldErrors()
-                .stream().map(fe -> new ApiFieldErrorDetail(fe.getField(), fe.getObjectName(), fe.getDefaultMessage()))
-                .toList();
-        return handleExceptionInternal(ex, new ApiErrorDetail(ex.getBody(), errorList), headers, status, exchange);
+        return handleExceptionInternal(ex, ApiErrors.toProblemDetail(ex), headers, status, exchange);
     }
 }
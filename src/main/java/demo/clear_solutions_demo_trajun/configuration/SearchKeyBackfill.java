@@ -0,0 +1,31 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the name and phone search keys to users stored before those searches existed. Runs in the background
+ * so startup neither waits for nor fails on the database; until it finishes such users are not found by name
+ * or phone.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchKeyBackfill implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final UserRepository userRepository;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        userRepository.backfillSearchKeys().subscribe(
+                updated -> {
+                    if (updated > 0)
+                        log.info("Added search keys to {} users", updated);
+                },
+                e -> log.warn("Search key backfill failed: {}", e.getMessage()));
+    }
+}
@@ -0,0 +1,38 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the user indexes in every partition and, with {@code user.partitioning.rebalancing} on, moves users
+ * into the partition they belong to since the partition list changed. Runs in the background so startup
+ * neither waits for nor fails on the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserPartitionMaintenance implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final UserPartitions userPartitions;
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private final MongoMappingContext mappingContext;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        userPartitions.ensureIndexes(mappingContext, reactiveMongoTemplate)
+                .then(userPartitions.isRebalancing() ? userPartitions.rebalance() : Mono.empty())
+                .subscribe(
+                        moved -> log.info("Rebalancing moved {} users, user.partitioning.rebalancing can be turned off",
+                                moved),
+                        e -> log.warn("User partition maintenance failed: {}", e.getMessage()));
+    }
+}
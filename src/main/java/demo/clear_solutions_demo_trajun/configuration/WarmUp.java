@@ -0,0 +1,188 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.Util;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the readiness probe down after startup until the service answers at its steady-state speed. Opens
+ * {@code user.warm-up.connections} Mongo connections, then sends rounds of synthetic requests through the user
+ * API (lookups of a user that does not exist, searches of an empty date range, a rejected create and update)
+ * until {@code user.warm-up.stable-rounds} rounds in a row answer every request within
+ * {@code user.warm-up.latency-threshold}. Nothing is written. After {@code user.warm-up.max-duration}
+ * the service is reported ready anyway.
+ */
+@Slf4j
+@Component
+public class WarmUp implements HealthIndicator {
+
+    private static final String EMAIL = "warm-up@warm-up.invalid";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private static final LocalDate FIRST_SEARCHED_DATE = LocalDate.of(1800, 1, 1);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final WebClient.Builder webClientBuilder;
+
+    private final boolean enabled;
+
+    private final int connections;
+
+    private final Duration latencyThreshold;
+
+    private final int stableRounds;
+
+    private final Duration maxDuration;
+
+    private volatile boolean done;
+
+    private volatile int rounds;
+
+    private volatile Duration lastRoundLatency;
+
+    public WarmUp(ReactiveMongoTemplate mongoTemplate, WebClient.Builder webClientBuilder,
+                  @Value("${user.warm-up.enabled}") boolean enabled,
+                  @Value("${user.warm-up.connections}") int connections,
+                  @Value("${user.warm-up.latency-threshold}") Duration latencyThreshold,
+                  @Value("${user.warm-up.stable-rounds}") int stableRounds,
+                  @Value("${user.warm-up.max-duration}") Duration maxDuration) {
+        this.mongoTemplate = mongoTemplate;
+        this.webClientBuilder = webClientBuilder;
+        this.enabled = enabled;
+        this.connections = connections;
+        this.latencyThreshold = latencyThreshold;
+        this.stableRounds = stableRounds;
+        this.maxDuration = maxDuration;
+        this.done = !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start(ApplicationReadyEvent event) {
+        if (!enabled)
+            return;
+        String baseUrl = event.getApplicationContext() instanceof WebServerApplicationContext context
+                ? "http://localhost:" + context.getWebServer().getPort() : null;
+        run(baseUrl).subscribe(null, e -> log.warn("Warm-up failed: {}", e.getMessage()));
+    }
+
+    /**
+     * @param baseUrl of this instance, null to only open the Mongo connections
+     */
+    public Mono<Void> run(String baseUrl) {
+        long start = System.nanoTime();
+        Mono<Void> requests = baseUrl == null ? Mono.empty() : requestRounds(webClientBuilder.baseUrl(baseUrl).build());
+        return openConnections()
+                .onErrorResume(e -> {
+                    log.warn("Mongo connections not opened during warm-up: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then(requests)
+                // Before the completion is signalled, so whoever awaits it sees the instance ready
+                .doOnTerminate(() -> finish(start))
+                .doOnCancel(() -> finish(start));
+    }
+
+    private void finish(long start) {
+        done = true;
+        log.info("Warm-up finished after {} rounds in {} ms, last round {} ms", rounds,
+                Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                lastRoundLatency == null ? "-" : lastRoundLatency.toMillis());
+    }
+
+    // Concurrent pings make the driver open that many connections now instead of on first use
+    private Mono<Void> openConnections() {
+        return Flux.range(0, connections)
+                .flatMap(i -> mongoTemplate.executeCommand("{ping: 1}"), connections)
+                .then();
+    }
+
+    private Mono<Void> requestRounds(WebClient webClient) {
+        return Flux.range(0, Integer.MAX_VALUE)
+                .concatMap(round -> round(webClient, round))
+                .scan(0, (stable, latency) -> latency.compareTo(latencyThreshold) <= 0 ? stable + 1 : 0)
+                .takeUntil(stable -> stable >= stableRounds)
+                .take(maxDuration)
+                .last(0)
+                .doOnNext(stable -> {
+                    if (stable < stableRounds)
+                        log.warn("Latency did not settle below {} ms within {}, reporting ready anyway",
+                                latencyThreshold.toMillis(), maxDuration);
+                })
+                .then();
+    }
+
+    /**
+     * @return latency of the slowest request of the round
+     */
+    private Mono<Duration> round(WebClient webClient, int round) {
+        // The update path copies fields reflectively; a rejected PATCH never gets that far
+        Util.updateFieldsFromDTO(new User(EMAIL, "Warm", "Up", FIRST_SEARCHED_DATE, null, null),
+                UserUpdateDTO.builder().firstName(Optional.of("Warm")).address(Optional.empty()).build());
+
+        // A new range every round, so searches reach MongoDB instead of the search cache
+        LocalDate fromDate = FIRST_SEARCHED_DATE.plusDays(2L * round);
+        String createBody = "{\"email\":\"" + EMAIL + "\",\"firstName\":\"Warm\",\"lastName\":\"Up\",\"birthDate\":\""
+                + LocalDate.now().minusDays(1).format(DATE_FORMAT) + "\"}";
+        List<Mono<Duration>> requests = List.of(
+                request(webClient, HttpMethod.GET, "/api/users/" + EMAIL, null),
+                request(webClient, HttpMethod.GET, "/api/users/search?fromDate=" + fromDate.format(DATE_FORMAT)
+                        + "&toDate=" + fromDate.plusDays(2).format(DATE_FORMAT), null),
+                request(webClient, HttpMethod.GET, "/api/users/search/by-name?lastName=warm-up&limit=1", null),
+                request(webClient, HttpMethod.GET, "/api/users/by-phone/0000000000", null),
+                request(webClient, HttpMethod.POST, "/api/users", createBody),
+                request(webClient, HttpMethod.PATCH, "/api/users/" + EMAIL, "{\"firstName\":\"Warm\"}"));
+        return Flux.concat(requests)
+                .reduce(Duration.ZERO, (slowest, latency) -> latency.compareTo(slowest) > 0 ? latency : slowest)
+                .doOnNext(latency -> {
+                    rounds = round + 1;
+                    lastRoundLatency = latency;
+                });
+    }
+
+    // Responses are errors by design, only the time matters
+    private Mono<Duration> request(WebClient webClient, HttpMethod method, String uri, String body) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            WebClient.RequestHeadersSpec<?> request = body == null ? webClient.method(method).uri(uri)
+                    : webClient.method(method).uri(uri).contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+            return request.exchangeToMono(response -> response.releaseBody())
+                    .then(Mono.fromSupplier(() -> Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = done ? Health.up() : Health.outOfService();
+        if (enabled)
+            health.withDetail("rounds", rounds);
+        if (lastRoundLatency != null)
+            health.withDetail("lastRoundLatencyMs", lastRoundLatency.toMillis());
+        return health.build();
+    }
+}
@@ -0,0 +1,46 @@
+package demo.clear_solutions_demo_trajun.configuration;
+
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lets a request choose the durability of its writes with a {@code Write-Durability: fast|standard|durable}
+ * header, overriding the {@code user.durability.*} setting of the operation. Ignored unless
+ * {@code user.durability.request-override} is on.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class WriteDurabilityWebFilter implements WebFilter {
+
+    public static final String WRITE_DURABILITY = "Write-Durability";
+
+    private final boolean enabled;
+
+    public WriteDurabilityWebFilter(@Value("${user.durability.request-override}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String name = enabled ? exchange.getRequest().getHeaders().getFirst(WRITE_DURABILITY) : null;
+        if (name == null)
+            return chain.filter(exchange);
+        WriteDurability durability;
+        try {
+            durability = WriteDurability.fromName(name);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    WRITE_DURABILITY + " must be one of fast, standard, durable"));
+        }
+        return chain.filter(exchange).contextWrite(context -> WriteDurability.override(context, durability));
+    }
+}
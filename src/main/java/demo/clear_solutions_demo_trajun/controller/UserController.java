@@ -1,12 +1,18 @@
 package demo.clear_solutions_demo_trajun.controller;
 
+import demo.clear_solutions_demo_trajun.configuration.CodecConfiguration;
+import demo.clear_solutions_demo_trajun.domain.PartialUser;
 import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserPage;
 import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
 import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
 import demo.clear_solutions_demo_trajun.service.UserService;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Past;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -16,6 +22,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RequiredArgsConstructor
 @RestController
@@ -27,7 +34,29 @@ public class UserController {
     @GetMapping("/{email}")
     public Mono<User> findUsersByBirthDateRange(@PathVariable String email) {
         return userService.findUserById(email)
-                .switchIfEmpty(Mono.error(UserNotFoundException.fromId(email)));
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.fromId(email)));
+    }
+
+    @GetMapping(value = "/{email}", params = "fields")
+    public Mono<PartialUser> findUserFields(@PathVariable String email,
+                                            @Schema(description = "Comma separated fields to return, e.g. email,birthDate")
+                                            @RequestParam String fields) {
+        return userService.findUserById(email, fields)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.fromId(email)));
+    }
+
+    @GetMapping("/by-phone/{phoneNumber}")
+    public Mono<User> findUserByPhoneNumber(@PathVariable String phoneNumber) {
+        return userService.findUserByPhoneNumber(phoneNumber)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.fromPhoneNumber(phoneNumber)));
+    }
+
+    @GetMapping(value = "/by-phone", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            CodecConfiguration.APPLICATION_SMILE_VALUE})
+    public Flux<User> findUsersByPhoneNumbers(@Schema(description = "Comma separated or repeated, unknown numbers are skipped",
+                                                      example = "1234567890,0987654321")
+                                              @RequestParam("phoneNumber") @Size(max = 1000) List<String> phoneNumbers) {
+        return userService.findUsersByPhoneNumbers(phoneNumbers);
     }
 
     @PostMapping
@@ -52,15 +81,70 @@ public class UserController {
         return userService.deleteUser(email);
     }
 
-    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            CodecConfiguration.APPLICATION_SMILE_VALUE})
     public Flux<User> findUsersByBirthDateRange(@DateTimeFormat(pattern = "dd-MM-yyyy")
                                                 @Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string",
                                                         description = "Must be before toDate")
                                                 @RequestParam LocalDate fromDate,
                                                 @Schema(pattern = "dd-MM-yyyy", example = "30-01-2024", type = "string",
                                                         description = "Must be in past and after fromDate")
-                                                @DateTimeFormat(pattern = "dd-MM-yyyy") @Past @RequestParam LocalDate toDate) {
+                                                @DateTimeFormat(pattern = "dd-MM-yyyy") @Past @RequestParam LocalDate toDate,
+                                                @Schema(description = "Also search users archived for not being accessed")
+                                                @RequestParam(defaultValue = "false") boolean includeArchived) {
+        if (includeArchived)
+            return userService.findUsersByBirthDateRangeIncludingArchived(fromDate, toDate);
         return userService.findUsersByBirthDateRange(fromDate, toDate);
     }
+
+    @GetMapping(value = "/search", params = "fields", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, CodecConfiguration.APPLICATION_SMILE_VALUE})
+    public Flux<PartialUser> findUserFieldsByBirthDateRange(@DateTimeFormat(pattern = "dd-MM-yyyy")
+                                                            @Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string",
+                                                                    description = "Must be before toDate")
+                                                            @RequestParam LocalDate fromDate,
+                                                            @Schema(pattern = "dd-MM-yyyy", example = "30-01-2024", type = "string",
+                                                                    description = "Must be in past and after fromDate")
+                                                            @DateTimeFormat(pattern = "dd-MM-yyyy") @Past @RequestParam LocalDate toDate,
+                                                            @Schema(description = "Comma separated fields to return, e.g. email,birthDate")
+                                                            @RequestParam String fields) {
+        return userService.findUsersByBirthDateRange(fromDate, toDate, fields);
+    }
+
+    @GetMapping(value = "/search/by-name", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            CodecConfiguration.APPLICATION_SMILE_VALUE})
+    public Mono<UserPage> findUsersByNamePrefix(@Schema(description = "Last name prefix, case and accents ignored")
+                                                @RequestParam(required = false) String lastName,
+                                                @Schema(description = "First name prefix, case and accents ignored")
+                                                @RequestParam(required = false) String firstName,
+                                                @Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string")
+                                                @DateTimeFormat(pattern = "dd-MM-yyyy") @RequestParam(required = false) LocalDate fromDate,
+                                                @Schema(pattern = "dd-MM-yyyy", example = "30-01-2024", type = "string")
+                                                @DateTimeFormat(pattern = "dd-MM-yyyy") @RequestParam(required = false) LocalDate toDate,
+                                                @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit,
+                                                @Schema(description = "'next' of the previous page")
+                                                @RequestParam(required = false) String after) {
+        return userService.findUsersByNamePrefix(lastName, firstName, fromDate, toDate, limit, after);
+    }
+
+    @GetMapping(value = "/search/filter", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE,
+            CodecConfiguration.APPLICATION_SMILE_VALUE})
+    public Flux<User> searchUsers(@Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string")
+                                  @DateTimeFormat(pattern = "dd-MM-yyyy") @RequestParam(required = false) LocalDate fromDate,
+                                  @Schema(pattern = "dd-MM-yyyy", example = "30-01-2024", type = "string")
+                                  @DateTimeFormat(pattern = "dd-MM-yyyy") @RequestParam(required = false) LocalDate toDate,
+                                  @Schema(description = "Last name prefix, case and accents ignored")
+                                  @RequestParam(required = false) String lastName,
+                                  @Schema(description = "First name prefix, case and accents ignored")
+                                  @RequestParam(required = false) String firstName,
+                                  @Schema(description = "Part of the address, case ignored")
+                                  @RequestParam(required = false) @Size(max = 200) String address,
+                                  @RequestParam(required = false) Boolean hasPhone,
+                                  @Schema(description = "birthDate or email, prefixed with - for descending",
+                                          allowableValues = {"birthDate", "-birthDate", "email", "-email"})
+                                  @RequestParam(defaultValue = "birthDate") String sort,
+                                  @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+        return userService.searchUsers(fromDate, toDate, lastName, firstName, address, hasPhone, sort, limit);
+    }
 }
 
@@ -0,0 +1,51 @@
+package demo.clear_solutions_demo_trajun.controller;
+
+import demo.clear_solutions_demo_trajun.domain.ExportFormat;
+import demo.clear_solutions_demo_trajun.service.UserExportService;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/users")
+public class UserExportController {
+
+    private final UserExportService userExportService;
+
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> exportUsers(@Schema(allowableValues = {"csv", "ndjson"})
+                                                        @RequestParam(defaultValue = "csv") String format,
+                                                        @DateTimeFormat(pattern = "dd-MM-yyyy")
+                                                        @Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string",
+                                                                description = "Optional lower bound, exclusive")
+                                                        @RequestParam(required = false) LocalDate fromDate,
+                                                        @DateTimeFormat(pattern = "dd-MM-yyyy")
+                                                        @Schema(pattern = "dd-MM-yyyy", example = "30-01-2024", type = "string",
+                                                                description = "Optional upper bound, exclusive")
+                                                        @RequestParam(required = false) LocalDate toDate,
+                                                        @Schema(description = "Documents fetched per cursor round trip")
+                                                        @Positive @RequestParam(required = false) Integer batchSize,
+                                                        ServerHttpResponse response) {
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.getFileExtension()).build().toString())
+                .body(userExportService.exportUsers(exportFormat, fromDate, toDate, batchSize,
+                        response.bufferFactory()));
+    }
+}
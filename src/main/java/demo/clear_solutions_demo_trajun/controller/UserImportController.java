@@ -0,0 +1,89 @@
+package demo.clear_solutions_demo_trajun.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
+import demo.clear_solutions_demo_trajun.service.UserImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/users/import")
+public class UserImportController {
+
+    private static final String FILE_PART = "file";
+
+    private final UserImportService userImportService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Imports the CSV sent as multipart part {@code file} and answers with 202 and the running job as soon as
+     * it is registered; its final status is polled through {@link #getImportJob(String)} under the
+     * {@code Location}. The part is consumed as a stream of {@link PartEvent}s, so it is never buffered in memory
+     * or on disk, and the response is completed only once the upload is consumed: the request body cannot be
+     * read after the exchange ends. A malformed file fails the job instead of the already sent response.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<Void> importUsers(@RequestBody Flux<PartEvent> parts, ServerHttpResponse response) {
+        return trackImport(parts, response)
+                .switchOnFirst((first, statuses) -> {
+                    if (!first.hasValue())
+                        return statuses.then();
+                    response.setStatusCode(HttpStatus.ACCEPTED);
+                    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    // Written last, so the exchange stays open until the upload is consumed; failures are on the job
+                    Mono<DataBuffer> rest = statuses.skip(1).onErrorResume(e -> Mono.empty()).then(Mono.empty());
+                    return response.writeAndFlushWith(Flux.just(Mono.fromCallable(
+                            () -> response.bufferFactory().wrap(objectMapper.writeValueAsBytes(first.get()))), rest));
+                }, false)
+                .then();
+    }
+
+    /**
+     * Same import for {@code Accept: application/x-ndjson}: the first line is the just registered job,
+     * written before the file is processed, the second one its final status.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImportJobStatus> streamImportUsers(@RequestBody Flux<PartEvent> parts, ServerHttpResponse response) {
+        return trackImport(parts, response);
+    }
+
+    private Flux<ImportJobStatus> trackImport(Flux<PartEvent> parts, ServerHttpResponse response) {
+        return parts.windowUntil(PartEvent::isLast)
+                .concatMap(part -> part.switchOnFirst((signal, events) -> {
+                    if (signal.get() instanceof FilePartEvent file && FILE_PART.equals(file.name()))
+                        return userImportService.trackImport(file.filename(), events.map(PartEvent::content));
+                    return events.doOnNext(event -> DataBufferUtils.release(event.content())).thenMany(Flux.empty());
+                }))
+                .take(2)
+                .doOnNext(status -> {
+                    if (status.state() == ImportJobStatus.State.RUNNING && !response.isCommitted())
+                        response.getHeaders().setLocation(URI.create("/api/users/import/" + status.id()));
+                })
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Multipart file part '" + FILE_PART + "' is required")));
+    }
+
+    @GetMapping("/{jobId}")
+    public Mono<ImportJobStatus> getImportJob(@PathVariable String jobId) {
+        return userImportService.getJobStatus(jobId);
+    }
+
+    @GetMapping
+    public Flux<ImportJobStatus> getImportJobs() {
+        return userImportService.getJobStatuses();
+    }
+}
@@ -0,0 +1,140 @@
+package demo.clear_solutions_demo_trajun.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserOperationResult;
+import demo.clear_solutions_demo_trajun.domain.UserSearchRequest;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import demo.clear_solutions_demo_trajun.exception.ApiErrorDetail;
+import demo.clear_solutions_demo_trajun.exception.ApiErrors;
+import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import io.rsocket.exceptions.ApplicationErrorException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * RSocket counterpart of {@link UserController}, served over WebSocket at {@code spring.rsocket.server.mapping-path}.
+ * Errors are sent as RSocket application errors whose message is the problem detail JSON the HTTP API would return.
+ */
+@Slf4j
+@Controller
+@MessageMapping("users")
+public class UserRSocketController {
+
+    // Object name of bulk field errors, as for a request body bound to a User parameter
+    private static final String USER = "user";
+
+    private final UserService userService;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${user.rsocket.channel-concurrency}")
+    private int channelConcurrency;
+
+    public UserRSocketController(UserService userService, Validator validator, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    @MessageMapping("get")
+    public Mono<User> findUserById(String email) {
+        return userService.findUserById(email)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.fromId(email)));
+    }
+
+    @MessageMapping("create")
+    public Mono<User> createUser(@Valid User user) {
+        return userService.createUser(user);
+    }
+
+    @MessageMapping("update.{email}")
+    public Mono<User> updateUser(@DestinationVariable String email, @Valid User user) {
+        return userService.fullyUpdateUser(email, user);
+    }
+
+    @MessageMapping("patch.{email}")
+    public Mono<User> updateUserFields(@DestinationVariable String email, @Valid UserUpdateDTO userUpdateDTO) {
+        return userService.updateUserFields(email, userUpdateDTO);
+    }
+
+    @MessageMapping("delete")
+    public Mono<Void> deleteUser(String email) {
+        return userService.deleteUser(email);
+    }
+
+    @MessageMapping("search")
+    public Flux<User> findUsersByBirthDateRange(@Valid UserSearchRequest request) {
+        return userService.findUsersByBirthDateRange(request.fromDate(), request.toDate());
+    }
+
+    /**
+     * At most {@code user.rsocket.channel-concurrency} creates run at once; further users are only
+     * requested from the client as results are consumed, so the caller's {@code requestN} paces the channel.
+     */
+    @MessageMapping("create.bulk")
+    public Flux<UserOperationResult> createUsers(Flux<User> users) {
+        return userService.withBulkImportDurability(
+                users.flatMapSequential(user -> apply(user, userService::createUser, HttpStatus.CREATED), channelConcurrency, 1));
+    }
+
+    @MessageMapping("update.bulk")
+    public Flux<UserOperationResult> updateUsers(Flux<User> users) {
+        return userService.withBulkUpdateDurability(
+                users.flatMapSequential(user -> apply(user, u -> userService.fullyUpdateUser(u.getId(), u), HttpStatus.OK),
+                        channelConcurrency, 1));
+    }
+
+    @MessageExceptionHandler
+    public Mono<Void> handleException(Throwable ex) {
+        return Mono.error(new ApplicationErrorException(toJson(toProblemDetail(ex)), ex));
+    }
+
+    // success is what the HTTP endpoint of the operation answers with
+    private Mono<UserOperationResult> apply(User user, Function<User, Mono<User>> operation, HttpStatus success) {
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty())
+            return Mono.just(failed(user, ApiErrors.invalid(ApiErrors.fieldErrors(violations, USER))));
+        return operation.apply(user)
+                .map(u -> new UserOperationResult(u.getId(), success.value(), null))
+                .onErrorResume(ex -> Mono.just(failed(user, toProblemDetail(ex))));
+    }
+
+    private static UserOperationResult failed(User user, ProblemDetail problem) {
+        return new UserOperationResult(user.getId(), problem.getStatus(), problem.getDetail(),
+                problem instanceof ApiErrorDetail invalid ? invalid.getError() : null);
+    }
+
+    private static ProblemDetail toProblemDetail(Throwable ex) {
+        ProblemDetail problem = ApiErrors.toProblemDetail(ex);
+        if (problem.getStatus() == HttpStatus.INTERNAL_SERVER_ERROR.value())
+            log.error("RSocket user operation failed", ex);
+        return problem;
+    }
+
+    private String toJson(ProblemDetail problemDetail) {
+        try {
+            return objectMapper.writeValueAsString(problemDetail);
+        } catch (JsonProcessingException e) {
+            return problemDetail.getStatus() + " " + problemDetail.getDetail();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Jackson (de)serializers for the {@code dd-MM-yyyy} birth dates.
+ * <p>Same wire format and leniency as {@code @JsonFormat(pattern = "dd-MM-yyyy")}, but the common case
+ * is handled on the parser's char buffer without a {@link DateTimeFormatter} round trip or an
+ * intermediate {@link String}. Anything off the fast path goes to the stock jsr310 code.
+ */
+public final class DayMonthYearDate {
+
+    private static final String PATTERN = "dd-MM-yyyy";
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+
+    private DayMonthYearDate() {
+    }
+
+    public static class Serializer extends StdScalarSerializer<LocalDate> {
+
+        public Serializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public void serialize(LocalDate value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            int year = value.getYear();
+            if (year < 0 || year > 9999) {
+                gen.writeString(FORMATTER.format(value));
+                return;
+            }
+            char[] chars = new char[10];
+            writeTwoDigits(chars, 0, value.getDayOfMonth());
+            chars[2] = '-';
+            writeTwoDigits(chars, 3, value.getMonthValue());
+            chars[5] = '-';
+            writeTwoDigits(chars, 6, year / 100);
+            writeTwoDigits(chars, 8, year % 100);
+            gen.writeString(chars, 0, 10);
+        }
+
+        private static void writeTwoDigits(char[] chars, int offset, int value) {
+            chars[offset] = (char) ('0' + value / 10);
+            chars[offset + 1] = (char) ('0' + value % 10);
+        }
+    }
+
+    public static class Deserializer extends StdScalarDeserializer<LocalDate> {
+
+        private static final LocalDateDeserializer FALLBACK = new LocalDateDeserializer(FORMATTER);
+
+        public Deserializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public LocalDate deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.hasToken(JsonToken.VALUE_STRING)) {
+                LocalDate date = parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+                if (date != null)
+                    return date;
+            }
+            return FALLBACK.deserialize(p, ctxt);
+        }
+
+        /**
+         * Parses {@code dd-MM-yyyy}, clamping an overflowing day to the end of the month like the
+         * formatter's SMART resolver does. Returns null when the input needs the slow path.
+         */
+        static LocalDate parse(char[] chars, int offset, int length) {
+            if (length != 10 || chars[offset + 2] != '-' || chars[offset + 5] != '-')
+                return null;
+            int day = twoDigits(chars, offset);
+            int month = twoDigits(chars, offset + 3);
+            int century = twoDigits(chars, offset + 6);
+            int yearOfCentury = twoDigits(chars, offset + 8);
+            if ((day | month | century | yearOfCentury) < 0 || day < 1 || day > 31 || month < 1 || month > 12)
+                return null;
+            int year = century * 100 + yearOfCentury;
+            if (year == 0)
+                return null;
+            if (day > 28)
+                day = Math.min(day, Month.of(month).length(Year.isLeap(year)));
+            return LocalDate.of(year, month, day);
+        }
+
+        private static int twoDigits(char[] chars, int offset) {
+            int high = chars[offset] - '0';
+            int low = chars[offset + 1] - '0';
+            if (high < 0 || high > 9 || low < 0 || low > 9)
+                return -1;
+            return high * 10 + low;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    CSV(new MediaType("text", "csv"), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    public static ExportFormat fromValue(String value) {
+        for (ExportFormat format : values())
+            if (format.name().equalsIgnoreCase(value))
+                return format;
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format " + value);
+    }
+}
@@ -0,0 +1,20 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ImportJobStatus(String id, String fileName, State state,
+                              long rowsProcessed, long accepted, long rejected, double rowsPerSecond,
+                              Instant startedAt, Instant finishedAt, String error,
+                              List<Rejection> rejections) {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    /**
+     * @param row 1-based data row number, the header is not counted
+     */
+    public record Rejection(long row, String email, String reason) {
+    }
+}
@@ -0,0 +1,19 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+
+/**
+ * The fields of a {@link User} asked for with {@code fields=}. Fields not asked for, and empty ones, are left out.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(name = "PartialUser", description = "User with only the requested fields")
+public record PartialUser(String email, String firstName, String lastName,
+                          @JsonSerialize(using = DayMonthYearDate.Serializer.class)
+                          @Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string")
+                          LocalDate birthDate,
+                          String address, String phoneNumber) {
+}
@@ -1,8 +1,9 @@
 package demo.clear_solutions_demo_trajun.domain;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -10,6 +11,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -20,6 +22,15 @@ import java.util.Objects;
 @AllArgsConstructor
 @ToString
 @Document("usr")
+// Name prefix search, see NameKeys; the key fields are written by the document converter
+@CompoundIndex(name = "lastFirstKey_firstLastKey_birthDate", def = "{'lastFirstKey': 1, 'firstLastKey': 1, 'birthDate': 1}")
+@CompoundIndex(name = "firstLastKey_birthDate", def = "{'firstLastKey': 1, 'birthDate': 1}")
+// Birth date ranges; with the email in the index, a range search projected to email and birthDate is covered
+@CompoundIndex(name = "birthDate__id", def = "{'birthDate': 1, '_id': 1}")
+// Selects users to archive, see UserDocumentConverters
+@CompoundIndex(name = "lastAccess", def = "{'lastAccess': 1}")
+// Lookup by phone, see PhoneKeys; sparse so users without a phone number are not indexed
+@CompoundIndex(name = "phoneKey", def = "{'phoneKey': 1}", unique = true, sparse = true)
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Schema(name = "User")
 public class User {
@@ -37,7 +48,8 @@ public class User {
 
     @Past
     @NotNull
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+    @JsonSerialize(using = DayMonthYearDate.Serializer.class)
+    @JsonDeserialize(using = DayMonthYearDate.Deserializer.class)
     @Schema( pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string",
             requiredMode = Schema.RequiredMode.REQUIRED, description = "Must be in the past")
     private LocalDate birthDate;
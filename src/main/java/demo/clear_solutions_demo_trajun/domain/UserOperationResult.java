@@ -0,0 +1,18 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import demo.clear_solutions_demo_trajun.exception.ApiFieldErrorDetail;
+
+import java.util.List;
+
+/**
+ * Per-user result of a bulk RSocket channel: the HTTP status the single call would have answered
+ * with and, for failures, the error detail and field errors as in the HTTP problem detail.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserOperationResult(String id, int status, String detail, List<ApiFieldErrorDetail> error) {
+
+    public UserOperationResult(String id, int status, String detail) {
+        this(id, status, detail, null);
+    }
+}
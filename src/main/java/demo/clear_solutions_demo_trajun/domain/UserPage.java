@@ -0,0 +1,14 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * One page of a name search. {@code next} is absent on the last page.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserPage(List<User> users,
+                       @Schema(description = "Pass as 'after' to get the next page") String next) {
+}
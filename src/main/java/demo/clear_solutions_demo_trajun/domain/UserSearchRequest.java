@@ -0,0 +1,22 @@
+package demo.clear_solutions_demo_trajun.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Past;
+
+import java.time.LocalDate;
+
+/**
+ * Birth date range for the RSocket search stream, same rules as {@code GET /api/users/search}.
+ */
+public record UserSearchRequest(
+        @NotNull
+        @JsonSerialize(using = DayMonthYearDate.Serializer.class)
+        @JsonDeserialize(using = DayMonthYearDate.Deserializer.class)
+        LocalDate fromDate,
+        @NotNull @Past
+        @JsonSerialize(using = DayMonthYearDate.Serializer.class)
+        @JsonDeserialize(using = DayMonthYearDate.Deserializer.class)
+        LocalDate toDate) {
+}
@@ -1,8 +1,9 @@
 package demo.clear_solutions_demo_trajun.domain;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -29,7 +30,8 @@ public class UserUpdateDTO {
 
     private Optional<@NotBlank String> lastName;
 
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+    @JsonSerialize(contentUsing = DayMonthYearDate.Serializer.class)
+    @JsonDeserialize(contentUsing = DayMonthYearDate.Deserializer.class)
     @Schema(pattern = "dd-MM-yyyy", example = "24-08-1991", type = "string",
             requiredMode = Schema.RequiredMode.REQUIRED, description = "Must be in the past")
     private Optional<@Past @NotNull LocalDate> birthDate;
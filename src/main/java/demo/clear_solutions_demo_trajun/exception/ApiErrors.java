@@ -0,0 +1,62 @@
+package demo.clear_solutions_demo_trajun.exception;
+
+import jakarta.validation.ConstraintViolation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.messaging.handler.annotation.support.MethodArgumentNotValidException;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Maps exceptions to the problem details the HTTP API answers with, so other transports report errors the same
+ * way: rule violations keep their reason, invalid content lists its field errors, and unexpected failures
+ * are a bare 500 that does not reveal what went wrong.
+ */
+public final class ApiErrors {
+
+    public static final String INVALID_CONTENT = "Invalid request content.";
+
+    private ApiErrors() {
+    }
+
+    public static ProblemDetail toProblemDetail(Throwable ex) {
+        if (ex instanceof WebExchangeBindException bind)
+            return new ApiErrorDetail(bind.getBody(), fieldErrors(bind.getBindingResult()));
+        if (ex instanceof ErrorResponse errorResponse)
+            return errorResponse.getBody();
+        if (ex instanceof MethodArgumentNotValidException notValid && notValid.getBindingResult() != null)
+            return invalid(fieldErrors(notValid.getBindingResult()));
+        ResponseStatus status = AnnotatedElementUtils.findMergedAnnotation(ex.getClass(), ResponseStatus.class);
+        if (status != null)
+            return ProblemDetail.forStatusAndDetail(status.code(), ex.getMessage());
+        return ProblemDetail.forStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    public static ApiErrorDetail invalid(List<ApiFieldErrorDetail> errors) {
+        return new ApiErrorDetail(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, INVALID_CONTENT), errors);
+    }
+
+    public static List<ApiFieldErrorDetail> fieldErrors(BindingResult bindingResult) {
+        return bindingResult.getFieldErrors()
+                .stream().map(fe -> new ApiFieldErrorDetail(fe.getField(), fe.getObjectName(), fe.getDefaultMessage()))
+                .toList();
+    }
+
+    /**
+     * Field errors of a bean validated by hand, named like those of a request body bound to {@code objectName}.
+     */
+    public static List<ApiFieldErrorDetail> fieldErrors(Collection<? extends ConstraintViolation<?>> violations,
+                                                        String objectName) {
+        return violations.stream()
+                .map(v -> new ApiFieldErrorDetail(v.getPropertyPath().toString(), objectName, v.getMessage()))
+                .sorted(Comparator.comparing(ApiFieldErrorDetail::getField))
+                .toList();
+    }
+}
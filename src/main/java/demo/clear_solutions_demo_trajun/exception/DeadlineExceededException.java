@@ -0,0 +1,20 @@
+package demo.clear_solutions_demo_trajun.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The request ran out of time, before or while waiting for MongoDB: answered with 504.
+ * Expected under load, so no stack trace is captured.
+ */
+public class DeadlineExceededException extends ResponseStatusException {
+
+    public DeadlineExceededException(String reason) {
+        super(HttpStatus.GATEWAY_TIMEOUT, reason);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -2,13 +2,20 @@ package demo.clear_solutions_demo_trajun.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+/**
+ * Expected outcome of a lookup rather than a failure, so it carries no stack trace.
+ */
 @ResponseStatus(value = HttpStatus.NOT_FOUND)
 public class UserNotFoundException extends Exception {
     public UserNotFoundException(String message)  {
-        super(message);
+        super(message, null, false, false);
     }
 
     public static UserNotFoundException fromId(String id)  {
-        return new UserNotFoundException(String.format("User with email %s not found", id));
+        return new UserNotFoundException("User with email " + id + " not found");
+    }
+
+    public static UserNotFoundException fromPhoneNumber(String phoneNumber)  {
+        return new UserNotFoundException("User with phone number " + phoneNumber + " not found");
     }
 }
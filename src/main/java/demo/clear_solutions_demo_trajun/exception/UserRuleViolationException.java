@@ -0,0 +1,24 @@
+package demo.clear_solutions_demo_trajun.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Business rule rejected the request (age limit, duplicate email, invalid range): answered with 400
+ * and the reason as problem detail. Raised on client input, so no stack trace is captured.
+ */
+public class UserRuleViolationException extends ResponseStatusException {
+
+    public UserRuleViolationException(String reason) {
+        super(HttpStatus.BAD_REQUEST, reason);
+    }
+
+    public static UserRuleViolationException alreadyExists(String id) {
+        return new UserRuleViolationException("User with id " + id + " already exists.");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
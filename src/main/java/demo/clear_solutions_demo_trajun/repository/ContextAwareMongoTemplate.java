@@ -0,0 +1,98 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import org.bson.Document;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.CollectionPreparer;
+import org.springframework.data.mongodb.core.FindPublisherPreparer;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies what the subscriber's context carries to every operation:
+ * <ul>
+ *     <li>the {@link WriteDurability} becomes the write concern of the database the operation starts from,
+ *     so collections and bulk operations inherit it. Without one the client's default applies.</li>
+ *     <li>the time left to the {@link Deadline} is sent as {@code maxTimeMS} with finds and counts, and
+ *     operations started after it expired fail at once with {@link DeadlineExceededException}.</li>
+ * </ul>
+ */
+public class ContextAwareMongoTemplate extends ReactiveMongoTemplate {
+
+    public ContextAwareMongoTemplate(ReactiveMongoDatabaseFactory mongoDatabaseFactory, MongoConverter mongoConverter) {
+        super(mongoDatabaseFactory, mongoConverter);
+    }
+
+    @Override
+    protected Mono<MongoDatabase> doGetDatabase() {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context);
+            if (deadline != null && deadline.isExpired())
+                return Mono.error(new DeadlineExceededException("Deadline expired before the query was sent"));
+            WriteDurability durability = WriteDurability.from(context);
+            Mono<MongoDatabase> database = super.doGetDatabase();
+            return durability == null ? database
+                    : database.map(db -> db.withWriteConcern(durability.getWriteConcern()));
+        });
+    }
+
+    @Override
+    protected <T> Flux<T> doFind(String collectionName, CollectionPreparer<MongoCollection<Document>> collectionPreparer,
+                                 Document query, Document fields, Class<T> entityClass, FindPublisherPreparer preparer) {
+        return Flux.deferContextual(context -> super.doFind(collectionName, collectionPreparer, query, fields,
+                entityClass, withDeadline(preparer, Deadline.from(context))));
+    }
+
+    @Override
+    protected <T> Mono<T> doFindOne(String collectionName, CollectionPreparer<MongoCollection<Document>> collectionPreparer,
+                                    Document query, Document fields, Class<T> entityClass,
+                                    FindPublisherPreparer preparer) {
+        return Mono.deferContextual(context -> super.doFindOne(collectionName, collectionPreparer, query, fields,
+                entityClass, withDeadline(preparer, Deadline.from(context))));
+    }
+
+    @Override
+    protected Mono<Long> doExactCount(String collectionName, Document filter, CountOptions options) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context);
+            if (deadline != null)
+                options.maxTime(maxTimeMillis(deadline), TimeUnit.MILLISECONDS);
+            return super.doExactCount(collectionName, filter, options);
+        });
+    }
+
+    private static FindPublisherPreparer withDeadline(FindPublisherPreparer preparer, Deadline deadline) {
+        if (deadline == null)
+            return preparer;
+        return new FindPublisherPreparer() {
+            @Override
+            public FindPublisher<Document> prepare(FindPublisher<Document> findPublisher) {
+                return preparer.prepare(findPublisher).maxTime(maxTimeMillis(deadline), TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public boolean hasReadPreference() {
+                return preparer.hasReadPreference();
+            }
+
+            @Override
+            public ReadPreference getReadPreference() {
+                return preparer.getReadPreference();
+            }
+        };
+    }
+
+    // maxTimeMS 0 means no limit, so an almost expired deadline still gets a millisecond
+    private static long maxTimeMillis(Deadline deadline) {
+        return Math.max(1, deadline.remaining().toMillis());
+    }
+}
@@ -0,0 +1,65 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import org.springframework.lang.Nullable;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Point in time by which a request must be answered. It travels in the Reactor context and
+ * {@link ContextAwareMongoTemplate} sends what is left of it to MongoDB as {@code maxTimeMS}, so the
+ * server gives up on a query at about the time the caller does.
+ */
+public final class Deadline {
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @return time left, zero once expired
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    @Nullable
+    public static Deadline from(ContextView context) {
+        return context.getOrDefault(Deadline.class, null);
+    }
+
+    /**
+     * @return the one expiring last, null only if both are
+     */
+    @Nullable
+    public static Deadline later(@Nullable Deadline first, @Nullable Deadline second) {
+        if (first == null)
+            return second;
+        if (second == null)
+            return first;
+        return second.expiresAtNanos - first.expiresAtNanos > 0 ? second : first;
+    }
+
+    /**
+     * Applies {@code deadline} unless the subscriber already has an earlier one.
+     */
+    public static Function<Context, Context> within(Deadline deadline) {
+        return context -> {
+            Deadline current = from(context);
+            return current != null && current.expiresAtNanos - deadline.expiresAtNanos <= 0
+                    ? context : context.put(Deadline.class, deadline);
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Stored {@link IdempotentResponse}s, keyed by idempotency key and removed by a TTL index on their creation time.
+ * Mapped by hand to plain documents, like {@link UserDocumentConverters}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyRepository {
+
+    public static final String COLLECTION = "idempotency";
+
+    private static final String ID = "_id";
+    private static final String REQUEST = "request";
+    private static final String STATUS = "status";
+    private static final String CONTENT_TYPE = "contentType";
+    private static final String BODY = "body";
+    private static final String CREATED_AT = "createdAt";
+
+    private static final String TTL_INDEX = "createdAt_ttl";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public Mono<IdempotentResponse> findByKey(String key) {
+        return mongoTemplate.findById(key, Document.class, COLLECTION)
+                .map(document -> new IdempotentResponse(document.getString(ID), document.getString(REQUEST),
+                        document.getInteger(STATUS), document.getString(CONTENT_TYPE),
+                        document.get(BODY, Binary.class).getData(), document.getDate(CREATED_AT).toInstant()));
+    }
+
+    /**
+     * Keeps the response stored first when another instance stored one for the same key meanwhile.
+     */
+    public Mono<Void> insert(IdempotentResponse response) {
+        Document document = new Document(ID, response.key())
+                .append(REQUEST, response.request())
+                .append(STATUS, response.status())
+                .append(CONTENT_TYPE, response.contentType())
+                .append(BODY, new Binary(response.body()))
+                .append(CREATED_AT, Date.from(response.createdAt()));
+        return mongoTemplate.insert(document, COLLECTION)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * MongoDB deletes documents older than {@code ttl} within about a minute of their expiry.
+     */
+    public Mono<Void> ensureTtlIndex(Duration ttl) {
+        return mongoTemplate.indexOps(COLLECTION)
+                .ensureIndex(new Index(CREATED_AT, Sort.Direction.ASC).named(TTL_INDEX).expire(ttl))
+                .then();
+    }
+}
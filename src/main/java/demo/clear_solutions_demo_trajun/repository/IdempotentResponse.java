@@ -0,0 +1,14 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+
+/**
+ * First response to a write sent with an {@code Idempotency-Key}, replayed for retries with the same key.
+ *
+ * @param request method and path the key was first used with
+ */
+public record IdempotentResponse(String key, String request, int status, @Nullable String contentType,
+                                 byte[] body, Instant createdAt) {
+}
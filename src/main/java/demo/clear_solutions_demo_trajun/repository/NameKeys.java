@@ -0,0 +1,76 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.springframework.lang.Nullable;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalized name keys stored next to each user for case- and accent-insensitive prefix search.
+ * <p>{@code lastFirstKey} is {@code last \u0001 first \u0001 email} and {@code firstLastKey} the same with the names
+ * swapped, both normalized. A name prefix is then a plain range on one key, the email makes every key unique so it
+ * doubles as the keyset paging cursor, and the separator sorts below every normalized character.
+ */
+public final class NameKeys {
+
+    public static final String LAST_FIRST_KEY = "lastFirstKey";
+    public static final String FIRST_LAST_KEY = "firstLastKey";
+
+    public static final String LAST_FIRST_INDEX = "lastFirstKey_firstLastKey_birthDate";
+    public static final String FIRST_LAST_INDEX = "firstLastKey_birthDate";
+
+    private static final char SEPARATOR = '\u0001';
+
+    private NameKeys() {
+    }
+
+    public static String lastFirstKey(User user) {
+        return normalize(user.getLastName()) + SEPARATOR + normalize(user.getFirstName()) + SEPARATOR + user.getEmail();
+    }
+
+    public static String firstLastKey(User user) {
+        return normalize(user.getFirstName()) + SEPARATOR + normalize(user.getLastName()) + SEPARATOR + user.getEmail();
+    }
+
+    /**
+     * Lower case without diacritics or control characters, e.g. {@code "Ölçer "} becomes {@code "olcer"}.
+     */
+    public static String normalize(@Nullable String name) {
+        if (name == null)
+            return "";
+        String trimmed = name.strip();
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= 0x80 || c < 0x20 || (c >= 'A' && c <= 'Z'))
+                return normalizeSlow(trimmed);
+        }
+        return trimmed;
+    }
+
+    private static String normalizeSlow(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (c >= 0x20 && type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+                    && type != Character.ENCLOSING_MARK)
+                normalized.append(c);
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Smallest string greater than every string starting with {@code prefix}, or null if there is none.
+     */
+    @Nullable
+    public static String prefixEnd(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE)
+                return prefix.substring(0, i) + (char) (c + 1);
+        }
+        return null;
+    }
+}
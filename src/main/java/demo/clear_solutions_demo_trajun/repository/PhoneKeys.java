@@ -0,0 +1,46 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Numeric key stored next to each user's phone number for lookups by phone.
+ * <p>The digits are packed into a long behind a leading 1, so {@code "0123456789"} becomes {@code 10123456789}:
+ * leading zeros and the length survive, and the key is an 8 byte int64 in the index instead of a string.
+ * Numbers that are not 1 to {@value #MAX_DIGITS} digits get no key and are not found by phone.
+ */
+public final class PhoneKeys {
+
+    public static final String PHONE_KEY = "phoneKey";
+
+    // Sparse and unique, see User
+    public static final String PHONE_KEY_INDEX = "phoneKey";
+
+    static final int MAX_DIGITS = 18;
+
+    private PhoneKeys() {
+    }
+
+    /**
+     * @return the packed key, or null if {@code phoneNumber} is not a plain digit string
+     */
+    @Nullable
+    public static Long toKey(@Nullable String phoneNumber) {
+        if (phoneNumber == null || phoneNumber.isEmpty() || phoneNumber.length() > MAX_DIGITS)
+            return null;
+        long key = 1;
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            int digit = phoneNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+                return null;
+            key = key * 10 + digit;
+        }
+        return key;
+    }
+
+    /**
+     * Whether a duplicate key error message from the server is about the phone key index rather than the id.
+     */
+    public static boolean isDuplicatePhone(@Nullable String message) {
+        return message != null && message.contains("index: " + PHONE_KEY_INDEX + " dup key");
+    }
+}
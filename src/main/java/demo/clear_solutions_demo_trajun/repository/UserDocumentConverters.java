@@ -0,0 +1,128 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.bson.Document;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hand-written mapping of {@link User} to and from BSON, bypassing the reflective {@code MappingMongoConverter} path.
+ * {@code birthDate} is stored as a {@code yyyyMMdd} int, which keeps the index small and range queries
+ * on plain integers. Documents written before that (birthDate as a BSON date) are still readable.
+ * Every written document also carries the {@link NameKeys} used by the name prefix search, the {@link PhoneKeys}
+ * key used by the phone lookup and {@code lastAccess}, the day of the last write or tracked read (a {@code yyyyMMdd}
+ * int like the birth date) that decides when a user is archived; they are not read back.
+ */
+public final class UserDocumentConverters {
+
+    public static final String ID = "_id";
+    public static final String FIRST_NAME = "firstName";
+    public static final String LAST_NAME = "lastName";
+    public static final String BIRTH_DATE = "birthDate";
+    public static final String ADDRESS = "address";
+    public static final String PHONE_NUMBER = "phoneNumber";
+    public static final String LAST_ACCESS = "lastAccess";
+
+    private UserDocumentConverters() {
+    }
+
+    public static List<Converter<?, ?>> converters() {
+        return List.of(UserWriteConverter.INSTANCE, UserReadConverter.INSTANCE,
+                LocalDateWriteConverter.INSTANCE, LocalDateReadConverter.INSTANCE);
+    }
+
+    public static int toBirthDateKey(LocalDate date) {
+        return toDayKey(date);
+    }
+
+    public static LocalDate fromBirthDateKey(int key) {
+        return LocalDate.of(key / 10_000, key / 100 % 100, key % 100);
+    }
+
+    /**
+     * {@code lastAccess} of a user read or written on {@code day}.
+     */
+    public static int toLastAccessKey(LocalDate day) {
+        return toDayKey(day);
+    }
+
+    private static int toDayKey(LocalDate date) {
+        return date.getYear() * 10_000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    @WritingConverter
+    public enum UserWriteConverter implements Converter<User, Document> {
+        INSTANCE;
+
+        @Override
+        public Document convert(User user) {
+            Document document = new Document(ID, user.getEmail());
+            putIfNotNull(document, FIRST_NAME, user.getFirstName());
+            putIfNotNull(document, LAST_NAME, user.getLastName());
+            if (user.getBirthDate() != null)
+                document.put(BIRTH_DATE, toBirthDateKey(user.getBirthDate()));
+            putIfNotNull(document, ADDRESS, user.getAddress());
+            putIfNotNull(document, PHONE_NUMBER, user.getPhoneNumber());
+            document.put(NameKeys.LAST_FIRST_KEY, NameKeys.lastFirstKey(user));
+            document.put(NameKeys.FIRST_LAST_KEY, NameKeys.firstLastKey(user));
+            putIfNotNull(document, PhoneKeys.PHONE_KEY, PhoneKeys.toKey(user.getPhoneNumber()));
+            document.put(LAST_ACCESS, toLastAccessKey(LocalDate.now()));
+            return document;
+        }
+
+        private static void putIfNotNull(Document document, String key, Object value) {
+            if (value != null)
+                document.put(key, value);
+        }
+    }
+
+    @ReadingConverter
+    public enum UserReadConverter implements Converter<Document, User> {
+        INSTANCE;
+
+        @Override
+        public User convert(Document document) {
+            return new User(document.getString(ID), document.getString(FIRST_NAME), document.getString(LAST_NAME),
+                    readBirthDate(document.get(BIRTH_DATE)), document.getString(ADDRESS),
+                    document.getString(PHONE_NUMBER));
+        }
+
+        private static LocalDate readBirthDate(Object value) {
+            if (value instanceof Integer key)
+                return fromBirthDateKey(key);
+            // Legacy documents: LocalDate written by the default converter as midnight in the default zone
+            if (value instanceof Date date)
+                return LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault());
+            return null;
+        }
+    }
+
+    /**
+     * Makes query parameters (derived queries, criteria) use the same encoding as stored documents.
+     */
+    @WritingConverter
+    public enum LocalDateWriteConverter implements Converter<LocalDate, Integer> {
+        INSTANCE;
+
+        @Override
+        public Integer convert(LocalDate date) {
+            return toBirthDateKey(date);
+        }
+    }
+
+    @ReadingConverter
+    public enum LocalDateReadConverter implements Converter<Integer, LocalDate> {
+        INSTANCE;
+
+        @Override
+        public LocalDate convert(Integer key) {
+            return fromBirthDateKey(key);
+        }
+    }
+}
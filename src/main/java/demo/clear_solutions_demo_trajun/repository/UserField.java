@@ -0,0 +1,39 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * A {@code User} field as named in the API, and the document field it is stored in, for projections.
+ */
+public enum UserField {
+    EMAIL("email", UserDocumentConverters.ID),
+    FIRST_NAME("firstName", UserDocumentConverters.FIRST_NAME),
+    LAST_NAME("lastName", UserDocumentConverters.LAST_NAME),
+    BIRTH_DATE("birthDate", UserDocumentConverters.BIRTH_DATE),
+    ADDRESS("address", UserDocumentConverters.ADDRESS),
+    PHONE_NUMBER("phoneNumber", UserDocumentConverters.PHONE_NUMBER);
+
+    private final String name;
+
+    private final String documentField;
+
+    UserField(String name, String documentField) {
+        this.name = name;
+        this.documentField = documentField;
+    }
+
+    /**
+     * @return null if {@code User} has no such field
+     */
+    @Nullable
+    public static UserField of(String name) {
+        for (UserField field : values())
+            if (field.name.equals(name))
+                return field;
+        return null;
+    }
+
+    public String documentField() {
+        return documentField;
+    }
+}
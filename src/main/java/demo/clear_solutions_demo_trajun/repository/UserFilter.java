@@ -0,0 +1,116 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+
+import static demo.clear_solutions_demo_trajun.repository.NameKeys.FIRST_LAST_INDEX;
+import static demo.clear_solutions_demo_trajun.repository.NameKeys.LAST_FIRST_INDEX;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.BIRTH_DATE;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.ID;
+
+/**
+ * Criteria of a combined user search, all optional, and the index the search runs on.
+ *
+ * @param lastNamePrefix  normalized with {@link NameKeys#normalize}
+ * @param firstNamePrefix normalized with {@link NameKeys#normalize}
+ * @param address         substring of the address, case ignored
+ * @param hasPhone        whether the user has a phone number, null for either
+ * @param limit           number of users returned
+ */
+public record UserFilter(@Nullable LocalDate fromDate, @Nullable LocalDate toDate,
+                         @Nullable String lastNamePrefix, @Nullable String firstNamePrefix,
+                         @Nullable String address, @Nullable Boolean hasPhone,
+                         Order order, int limit) {
+
+    public static final String ID_INDEX = "_id_";
+    public static final String BIRTH_DATE_INDEX = "birthDate__id";
+
+    // Name prefixes this long match few enough users to beat a date range, even one the results are sorted by
+    private static final int SELECTIVE_NAME_PREFIX = 3;
+
+    // Date ranges this short match few enough users to beat a short name prefix
+    private static final long SELECTIVE_DATE_RANGE_DAYS = 366;
+
+    public enum Order {
+        BIRTH_DATE_ASC("birthDate", BIRTH_DATE, Sort.Direction.ASC),
+        BIRTH_DATE_DESC("-birthDate", BIRTH_DATE, Sort.Direction.DESC),
+        EMAIL_ASC("email", ID, Sort.Direction.ASC),
+        EMAIL_DESC("-email", ID, Sort.Direction.DESC);
+
+        private final String parameter;
+
+        private final String field;
+
+        private final Sort.Direction direction;
+
+        Order(String parameter, String field, Sort.Direction direction) {
+            this.parameter = parameter;
+            this.field = field;
+            this.direction = direction;
+        }
+
+        /**
+         * @param parameter field name, prefixed with {@code -} for descending
+         * @return null if there is no such order
+         */
+        @Nullable
+        public static Order of(String parameter) {
+            for (Order order : values())
+                if (order.parameter.equals(parameter))
+                    return order;
+            return null;
+        }
+
+        // One field only, so the sort comes straight from the index of that field
+        public Sort sort() {
+            return Sort.by(direction, field);
+        }
+
+        public Comparator<User> comparator() {
+            Comparator<User> ascending = field.equals(ID) ? Comparator.comparing(User::getEmail)
+                    : Comparator.comparing(User::getBirthDate);
+            return direction.isAscending() ? ascending : ascending.reversed();
+        }
+
+        String index() {
+            return field.equals(ID) ? ID_INDEX : BIRTH_DATE_INDEX;
+        }
+    }
+
+    /**
+     * @param index          hinted to MongoDB
+     * @param collectionScan whether the index does not bound the query, so it may read every user
+     */
+    public record Plan(String index, boolean collectionScan) {
+    }
+
+    /**
+     * Picks the index bounding the query most tightly: a name prefix or a birth date range, whichever is likely
+     * more selective. Without either, the index of the sort order is used, which needs no sort and reads only
+     * {@code limit} users, unless an address or phone has to be checked on every user. Most users have a phone,
+     * so the sparse phone index would not narrow the search much, but would still need every match sorted.
+     */
+    public Plan plan() {
+        boolean names = lastNamePrefix != null || firstNamePrefix != null;
+        boolean dates = fromDate != null || toDate != null;
+        String nameIndex = lastNamePrefix != null ? LAST_FIRST_INDEX : FIRST_LAST_INDEX;
+        if (names && dates) {
+            String prefix = lastNamePrefix != null ? lastNamePrefix : firstNamePrefix;
+            boolean narrowDates = fromDate != null && toDate != null
+                    && ChronoUnit.DAYS.between(fromDate, toDate) <= SELECTIVE_DATE_RANGE_DAYS;
+            boolean sortedByDate = order.index().equals(BIRTH_DATE_INDEX);
+            boolean preferDates = prefix.length() < SELECTIVE_NAME_PREFIX && (narrowDates || sortedByDate);
+            return new Plan(preferDates ? BIRTH_DATE_INDEX : nameIndex, false);
+        }
+        if (names)
+            return new Plan(nameIndex, false);
+        if (dates)
+            return new Plan(BIRTH_DATE_INDEX, false);
+        return new Plan(order.index(), address != null || hasPhone != null);
+    }
+}
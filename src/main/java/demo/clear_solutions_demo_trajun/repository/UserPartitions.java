@@ -0,0 +1,163 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.ID;
+
+/**
+ * Spreads users over several collections, possibly in different databases, by a consistent hash of their
+ * email: each partition owns {@value #POINTS_PER_PARTITION} points on a hash ring and a user belongs to the
+ * partition owning the first point at or after the hash of its email. Adding or removing a partition so only
+ * moves the users between it and its ring neighbours, which {@link #rebalance()} does.
+ * <p>While {@code rebalancing} is on, users may still sit in the partition they belonged to before: point
+ * reads that miss look in the other partitions, and deletes reach all of them.
+ */
+@Slf4j
+public class UserPartitions {
+
+    private static final int POINTS_PER_PARTITION = 128;
+
+    private static final int REBALANCE_BATCH_SIZE = 1000;
+
+    private static final int REBALANCE_CONCURRENCY = 16;
+
+    /**
+     * A {@code User} collection; {@code name} ({@code database.collection}) places it on the ring.
+     */
+    public record Partition(String name, ReactiveMongoTemplate template, String collection) {
+
+        /**
+         * Collection next to {@link #collection} holding its archived users.
+         */
+        public String archive() {
+            return collection + "_cold";
+        }
+    }
+
+    private final List<Partition> partitions;
+
+    private final NavigableMap<Long, Partition> ring = new TreeMap<>();
+
+    private final boolean rebalancing;
+
+    public UserPartitions(List<Partition> partitions, boolean rebalancing) {
+        if (partitions.isEmpty())
+            throw new IllegalArgumentException("At least one user partition is needed");
+        this.partitions = List.copyOf(partitions);
+        this.rebalancing = rebalancing;
+        for (Partition partition : partitions)
+            for (int i = 0; i < POINTS_PER_PARTITION; i++)
+                ring.put(hash(partition.name() + '#' + i), partition);
+    }
+
+    public Partition partitionOf(String email) {
+        var point = ring.ceilingEntry(hash(email));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<Partition> all() {
+        return partitions;
+    }
+
+    public boolean isPartitioned() {
+        return partitions.size() > 1;
+    }
+
+    public boolean isRebalancing() {
+        return rebalancing;
+    }
+
+    /**
+     * Creates the {@link User} indexes in partitions other than the one the mapping context manages.
+     */
+    public Mono<Void> ensureIndexes(MongoMappingContext mappingContext, ReactiveMongoTemplate defaultTemplate) {
+        String defaultCollection = defaultTemplate.getCollectionName(User.class);
+        List<IndexDefinition> indexes = new ArrayList<>();
+        new MongoPersistentEntityIndexResolver(mappingContext).resolveIndexFor(User.class).forEach(indexes::add);
+        return Flux.fromIterable(partitions)
+                .filter(partition -> partition.template() != defaultTemplate || !partition.collection().equals(defaultCollection))
+                .concatMap(partition -> Flux.fromIterable(indexes)
+                        .concatMap(index -> partition.template().indexOps(partition.collection()).ensureIndex(index)))
+                .then();
+    }
+
+    /**
+     * Moves every user found outside its partition into it, then every archived user into the archive of its
+     * partition. A copy already in the target (written there since the partitions changed) wins over the one
+     * being moved, and so does a user in the target collection over an archived copy. Users whose phone number
+     * is taken in the target partition stay where they are and are logged.
+     *
+     * @return number of moved users
+     */
+    public Mono<Long> rebalance() {
+        return misplaced(Partition::collection, this::move)
+                .concatWith(misplaced(Partition::archive, this::moveArchived))
+                .reduce(0L, Long::sum);
+    }
+
+    private Flux<Long> misplaced(Function<Partition, String> collection, Mover mover) {
+        return Flux.fromIterable(partitions)
+                .concatMap(source -> source.template()
+                        .find(new Query().cursorBatchSize(REBALANCE_BATCH_SIZE), Document.class, collection.apply(source))
+                        .filter(document -> partitionOf(document.getString(ID)) != source)
+                        .flatMap(document -> mover.move(document, source, partitionOf(document.getString(ID))),
+                                REBALANCE_CONCURRENCY));
+    }
+
+    private interface Mover {
+        Mono<Long> move(Document document, Partition source, Partition target);
+    }
+
+    private Mono<Long> move(Document document, Partition source, Partition target) {
+        String id = document.getString(ID);
+        return target.template().insert(document, target.collection())
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    if (!PhoneKeys.isDuplicatePhone(e.getMessage()))
+                        return Mono.just(true);
+                    log.warn("User {} not moved to partition {}: phone number taken there", id, target.name());
+                    return Mono.just(false);
+                })
+                .flatMap(moved -> moved
+                        ? source.template().remove(Query.query(Criteria.where(ID).is(id)), source.collection()).thenReturn(1L)
+                        : Mono.just(0L));
+    }
+
+    private Mono<Long> moveArchived(Document document, Partition source, Partition target) {
+        Query byId = Query.query(Criteria.where(ID).is(document.getString(ID)));
+        return target.template().exists(byId, target.collection())
+                .flatMap(hot -> hot ? Mono.empty()
+                        : target.template().findAndReplace(byId, document, FindAndReplaceOptions.options().upsert(),
+                        Document.class, target.archive()))
+                .then(source.template().remove(byId, source.archive()))
+                .thenReturn(1L);
+    }
+
+    // Same FNV-1a and MurmurHash3 finalizer as the email Bloom filter
+    static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++)
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
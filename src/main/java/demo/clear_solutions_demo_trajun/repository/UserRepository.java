@@ -4,13 +4,25 @@ package demo.clear_solutions_demo_trajun.repository;
 import demo.clear_solutions_demo_trajun.domain.User;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
-import reactor.core.publisher.Flux;
-
-import java.time.LocalDate;
+import reactor.core.publisher.Mono;
 
 @EnableReactiveMongoRepositories
-public interface UserRepository extends ReactiveMongoRepository<User, String> {
-    Flux<User> findByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+public interface UserRepository extends ReactiveMongoRepository<User, String>, UserRepositoryCustom {
+
+    // Implemented by UserRepositoryCustomImpl, which routes them to the user's partition
+    @Override
+    Mono<User> findById(String id);
+
+    @Override
+    <S extends User> Mono<S> save(S user);
+
+    @Override
+    <S extends User> Mono<S> insert(S user);
+
+    @Override
+    Mono<Void> deleteById(String id);
 
+    @Override
+    Mono<Void> deleteAll();
 }
 
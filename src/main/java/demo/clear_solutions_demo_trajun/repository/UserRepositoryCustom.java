@@ -0,0 +1,156 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Looks in the {@link UserPartitions partition} of the email, and while rebalancing in the others too.
+     */
+    Mono<User> findById(String id);
+
+    <S extends User> Mono<S> save(S user);
+
+    <S extends User> Mono<S> insert(S user);
+
+    /**
+     * Saves the user without its {@link PhoneKeys phone key}, for a user the backfill could not give one because
+     * another user has the same number. The number is kept, but the user stays unreachable by phone.
+     */
+    Mono<User> saveWithoutPhoneKey(User user);
+
+    /**
+     * Deletes from the partition of the email, and while rebalancing from all of them.
+     */
+    Mono<Void> deleteById(String id);
+
+    Mono<Void> deleteAll();
+
+    /**
+     * Users born strictly between the two dates, in birth date order across all partitions. A template query
+     * rather than a derived one, so it gets the {@link Deadline} of the caller like the other finds.
+     */
+    Flux<User> findByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * {@link #findById(String)} reading only the given fields; the others are null.
+     */
+    Mono<User> findById(String id, Set<UserField> fields);
+
+    /**
+     * {@link #findByBirthDateBetween(LocalDate, LocalDate)} reading only the given fields and the birth date,
+     * which orders the results. With just the email, it is a covered query on the birth date index.
+     */
+    Flux<User> findByBirthDateBetween(LocalDate fromDate, LocalDate toDate, Set<UserField> fields);
+
+    /**
+     * Streams the collection and then the archive, optionally restricted to a birth date range with the same
+     * (exclusive) semantics as {@link #findByBirthDateBetween}.
+     * The driver fetches {@code batchSize} documents per cursor round trip.
+     */
+    Flux<User> streamAll(@Nullable LocalDate fromDate, @Nullable LocalDate toDate, int batchSize);
+
+    /**
+     * Users whose normalized last and/or first name starts with the given prefix, in name order, as one index
+     * range scan. Sorted by {@code lastFirstKey} when a last name prefix is given, otherwise by {@code firstLastKey}.
+     *
+     * @param lastNamePrefix  normalized with {@link NameKeys#normalize}, null to match any
+     * @param firstNamePrefix normalized with {@link NameKeys#normalize}, null to match any
+     * @param after           sort key of the last user of the previous page, null for the first page
+     */
+    Flux<User> findByNamePrefix(@Nullable String lastNamePrefix, @Nullable String firstNamePrefix,
+                                @Nullable LocalDate fromDate, @Nullable LocalDate toDate,
+                                @Nullable String after, int limit);
+
+    /**
+     * Users matching every criterion of the filter, in its order, at most {@code limit}. Runs on the index of
+     * its {@link UserFilter#plan() plan}.
+     */
+    Flux<User> findByFilter(UserFilter filter);
+
+    /**
+     * User whose phone number has the given {@link PhoneKeys#toKey key}, one lookup on the unique phone key index.
+     */
+    Mono<User> findByPhoneKey(long phoneKey);
+
+    /**
+     * Users having any of the given phone keys, in one {@code $in} query on the phone key index; unknown keys
+     * are skipped and the order is unspecified.
+     */
+    Flux<User> findByPhoneKeys(Collection<Long> phoneKeys);
+
+    /**
+     * Writes the {@link NameKeys} and {@link PhoneKeys} into documents stored before they existed. A phone key
+     * that would duplicate another user's is left out, so that user is not found by phone; the other
+     * keys are written regardless.
+     *
+     * @return number of updated documents
+     */
+    Mono<Long> backfillSearchKeys();
+
+    /**
+     * Streams only the ids (emails) of all users, archived ones included, {@code batchSize} per cursor round trip.
+     */
+    Flux<String> streamIds(int batchSize);
+
+    /**
+     * Document count of the hot and archive collections from collection metadata, without scanning.
+     */
+    Mono<Long> estimatedCount();
+
+    /**
+     * Inserts all users in one unordered bulk write. Documents that fail (e.g. duplicate key)
+     * do not stop the others; their errors are returned, indexed by position in {@code users}.
+     */
+    Mono<List<BulkWriteError>> insertUnordered(List<User> users);
+
+    /**
+     * Sets {@code lastAccess} of the given users to {@code day} unless it is later already.
+     *
+     * @return number of updated users
+     */
+    Mono<Long> recordAccess(Collection<String> ids, LocalDate day);
+
+    /**
+     * Moves users not accessed since before {@code cutoff} to the archive collection next to their collection,
+     * {@code batchSize} at a time. Users stored before access tracking count as accessed today.
+     *
+     * @return number of archived users
+     */
+    Mono<Long> archiveStale(LocalDate cutoff, int batchSize);
+
+    /**
+     * Moves an archived user back into its collection.
+     *
+     * @return the user, empty if it is not archived
+     */
+    Mono<User> promoteArchived(String id);
+
+    /**
+     * Archived users having any of the given phone keys, which need not be unique among them; the order is
+     * unspecified.
+     */
+    Flux<User> findArchivedByPhoneKeys(Collection<Long> phoneKeys);
+
+    /**
+     * Archived users born strictly between the two dates, in birth date order.
+     */
+    Flux<User> findArchivedByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Rewrites birth dates still stored as BSON dates into the {@code yyyyMMdd} int form used by
+     * {@link UserDocumentConverters}, server-side in one update per hot and archive collection.
+     *
+     * @return number of migrated documents
+     */
+    Mono<Long> migrateLegacyBirthDates();
+}
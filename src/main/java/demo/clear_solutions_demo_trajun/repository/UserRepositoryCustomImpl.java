@@ -0,0 +1,543 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.result.UpdateResult;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions.Partition;
+import lombok.RequiredArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static demo.clear_solutions_demo_trajun.repository.NameKeys.FIRST_LAST_INDEX;
+import static demo.clear_solutions_demo_trajun.repository.NameKeys.FIRST_LAST_KEY;
+import static demo.clear_solutions_demo_trajun.repository.NameKeys.LAST_FIRST_INDEX;
+import static demo.clear_solutions_demo_trajun.repository.NameKeys.LAST_FIRST_KEY;
+import static demo.clear_solutions_demo_trajun.repository.PhoneKeys.PHONE_KEY;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.ADDRESS;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.BIRTH_DATE;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.ID;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.LAST_ACCESS;
+import static demo.clear_solutions_demo_trajun.repository.UserDocumentConverters.PHONE_NUMBER;
+
+/**
+ * Runs every user query on the {@link UserPartitions}: point operations on the partition of the email,
+ * the others on all partitions in parallel, merged in the order of their sort key when they have one.
+ * Overrides the {@code findById}, {@code save}, {@code insert} and {@code delete} methods of the base repository,
+ * which would only know the default collection.
+ */
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private static final String BACKFILL_PHONE_NUMBER = "^[0-9]{1," + PhoneKeys.MAX_DIGITS + "}$";
+
+    private static final int DUPLICATE_KEY_CODE = 11000;
+
+    private static final Index ARCHIVE_BIRTH_DATE_INDEX = new Index()
+            .on(BIRTH_DATE, Sort.Direction.ASC)
+            .on(ID, Sort.Direction.ASC)
+            .named(UserFilter.BIRTH_DATE_INDEX);
+
+    // Not unique: phone numbers of archived users may have been taken by other users since
+    private static final Index ARCHIVE_PHONE_KEY_INDEX = new Index()
+            .on(PHONE_KEY, Sort.Direction.ASC)
+            .sparse()
+            .named(PhoneKeys.PHONE_KEY_INDEX);
+
+    private static final Comparator<User> BIRTH_DATE_ORDER = Comparator.comparing(User::getBirthDate);
+
+    private final UserPartitions partitions;
+
+    // Without tiering nothing is archived, so creates skip the look into the archive
+    @Value("${user.tiering.enabled}")
+    private boolean tieringEnabled;
+
+    @Override
+    public Mono<User> findById(String id) {
+        return findOnHomePartitionFirst(id, partition -> partition.template().findById(id, User.class, partition.collection()));
+    }
+
+    @Override
+    public Mono<User> findById(String id, Set<UserField> fields) {
+        Query query = project(Query.query(Criteria.where(ID).is(id)), fields);
+        return findOnHomePartitionFirst(id, partition -> partition.template().findOne(query, User.class, partition.collection()));
+    }
+
+    private Mono<User> findOnHomePartitionFirst(String id, Function<Partition, Mono<User>> find) {
+        Partition home = partitions.partitionOf(id);
+        Mono<User> user = find.apply(home);
+        if (!partitions.isRebalancing())
+            return user;
+        return user.switchIfEmpty(Flux.fromIterable(partitions.all())
+                .filter(partition -> partition != home)
+                .flatMap(find)
+                .next());
+    }
+
+    @Override
+    public <S extends User> Mono<S> save(S user) {
+        Partition partition = partitions.partitionOf(user.getId());
+        return partition.template().save(user, partition.collection());
+    }
+
+    @Override
+    public Mono<User> saveWithoutPhoneKey(User user) {
+        Partition partition = partitions.partitionOf(user.getId());
+        Document document = UserDocumentConverters.UserWriteConverter.INSTANCE.convert(user);
+        document.remove(PHONE_KEY);
+        return partition.template().save(document, partition.collection()).thenReturn(user);
+    }
+
+    @Override
+    public <S extends User> Mono<S> insert(S user) {
+        Partition partition = partitions.partitionOf(user.getId());
+        if (!tieringEnabled)
+            return partition.template().insert(user, partition.collection());
+        return partition.template().exists(Query.query(Criteria.where(ID).is(user.getId())), partition.archive())
+                .flatMap(archived -> archived
+                        ? Mono.error(new DuplicateKeyException(archivedDuplicate(partition, user.getId())))
+                        : partition.template().insert(user, partition.collection()));
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        Query byId = Query.query(Criteria.where(ID).is(id));
+        if (!partitions.isRebalancing()) {
+            Partition partition = partitions.partitionOf(id);
+            return partition.template().remove(byId, User.class, partition.collection()).then();
+        }
+        return onAll(partition -> partition.template().remove(byId, User.class, partition.collection())).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return onAll(partition -> partition.template().remove(new Query(), User.class, partition.collection())
+                .then(partition.template().remove(new Query(), partition.archive()))).then();
+    }
+
+    @Override
+    public Flux<User> findByBirthDateBetween(LocalDate fromDate, LocalDate toDate) {
+        Query query = Query.query(Criteria.where(BIRTH_DATE).gt(fromDate).lt(toDate)).with(Sort.by(BIRTH_DATE));
+        return onAllSorted(partition -> partition.template().find(query, User.class, partition.collection()),
+                BIRTH_DATE_ORDER);
+    }
+
+    @Override
+    public Flux<User> findByBirthDateBetween(LocalDate fromDate, LocalDate toDate, Set<UserField> fields) {
+        Set<UserField> read = EnumSet.of(UserField.BIRTH_DATE);
+        read.addAll(fields);
+        Query query = project(Query.query(Criteria.where(BIRTH_DATE).gt(fromDate).lt(toDate)), read)
+                .with(Sort.by(BIRTH_DATE))
+                .withHint(UserFilter.BIRTH_DATE_INDEX);
+        return onAllSorted(partition -> partition.template().find(query, User.class, partition.collection()),
+                BIRTH_DATE_ORDER);
+    }
+
+    // The id is left out unless asked for, so a projection to indexed fields is covered by the index
+    private static Query project(Query query, Set<UserField> fields) {
+        for (UserField field : fields)
+            query.fields().include(field.documentField());
+        if (!fields.contains(UserField.EMAIL))
+            query.fields().exclude(ID);
+        return query;
+    }
+
+    @Override
+    public Flux<User> streamAll(LocalDate fromDate, LocalDate toDate, int batchSize) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        if (fromDate != null || toDate != null) {
+            Criteria birthDate = Criteria.where(BIRTH_DATE);
+            if (fromDate != null)
+                birthDate.gt(fromDate);
+            if (toDate != null)
+                birthDate.lt(toDate);
+            query.addCriteria(birthDate);
+        }
+        // One collection after the other, so an export holds one cursor at a time
+        return Flux.fromIterable(partitions.all())
+                .concatMap(partition -> partition.template().find(query, User.class, partition.collection())
+                        .concatWith(partition.template().find(query, User.class, partition.archive())));
+    }
+
+    @Override
+    public Flux<User> findByNamePrefix(String lastNamePrefix, String firstNamePrefix,
+                                       LocalDate fromDate, LocalDate toDate, String after, int limit) {
+        String sortKey = lastNamePrefix != null ? LAST_FIRST_KEY : FIRST_LAST_KEY;
+        Query query = new Query()
+                .with(Sort.by(sortKey))
+                .limit(limit)
+                .withHint(lastNamePrefix != null ? LAST_FIRST_INDEX : FIRST_LAST_INDEX);
+        Criteria key = prefix(sortKey, lastNamePrefix != null ? lastNamePrefix : firstNamePrefix);
+        if (after != null)
+            key.gt(after);
+        query.addCriteria(key);
+        if (lastNamePrefix != null && firstNamePrefix != null)
+            query.addCriteria(prefix(FIRST_LAST_KEY, firstNamePrefix));
+        if (fromDate != null || toDate != null) {
+            Criteria birthDate = Criteria.where(BIRTH_DATE);
+            if (fromDate != null)
+                birthDate.gt(fromDate);
+            if (toDate != null)
+                birthDate.lt(toDate);
+            query.addCriteria(birthDate);
+        }
+        Function<User, String> sortKeyOf = lastNamePrefix != null ? NameKeys::lastFirstKey : NameKeys::firstLastKey;
+        return onAllSorted(partition -> partition.template().find(query, User.class, partition.collection()),
+                Comparator.comparing(sortKeyOf))
+                .take(limit);
+    }
+
+    @Override
+    public Flux<User> findByFilter(UserFilter filter) {
+        Query query = new Query()
+                .with(filter.order().sort())
+                .limit(filter.limit())
+                .withHint(filter.plan().index());
+        if (filter.lastNamePrefix() != null)
+            query.addCriteria(prefix(LAST_FIRST_KEY, filter.lastNamePrefix()));
+        if (filter.firstNamePrefix() != null)
+            query.addCriteria(prefix(FIRST_LAST_KEY, filter.firstNamePrefix()));
+        if (filter.fromDate() != null || filter.toDate() != null) {
+            Criteria birthDate = Criteria.where(BIRTH_DATE);
+            if (filter.fromDate() != null)
+                birthDate.gt(filter.fromDate());
+            if (filter.toDate() != null)
+                birthDate.lt(filter.toDate());
+            query.addCriteria(birthDate);
+        }
+        if (filter.address() != null)
+            query.addCriteria(Criteria.where(ADDRESS).regex(Pattern.quote(filter.address()), "i"));
+        // On the number itself: users stored before phone keys, or sharing their number, have none
+        if (filter.hasPhone() != null)
+            query.addCriteria(filter.hasPhone() ? Criteria.where(PHONE_NUMBER).nin("", null)
+                    : Criteria.where(PHONE_NUMBER).in("", null));
+        return onAllSorted(partition -> partition.template().find(query, User.class, partition.collection()),
+                filter.order().comparator())
+                .take(filter.limit());
+    }
+
+    private static Criteria prefix(String field, String prefix) {
+        Criteria criteria = Criteria.where(field).gte(prefix);
+        String end = NameKeys.prefixEnd(prefix);
+        return end == null ? criteria : criteria.lt(end);
+    }
+
+    // Phone numbers are not partition keys, so phone lookups ask every partition
+    @Override
+    public Mono<User> findByPhoneKey(long phoneKey) {
+        Query query = Query.query(Criteria.where(PHONE_KEY).is(phoneKey));
+        return onAll(partition -> partition.template().findOne(query, User.class, partition.collection())).next();
+    }
+
+    @Override
+    public Flux<User> findByPhoneKeys(Collection<Long> phoneKeys) {
+        Query query = Query.query(Criteria.where(PHONE_KEY).in(phoneKeys));
+        return onAll(partition -> partition.template().find(query, User.class, partition.collection()));
+    }
+
+    @Override
+    public Mono<Long> backfillSearchKeys() {
+        return onAll(this::backfillSearchKeys).reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> backfillSearchKeys(Partition partition) {
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where(LAST_FIRST_KEY).exists(false),
+                Criteria.where(PHONE_KEY).exists(false).and(PHONE_NUMBER).regex(BACKFILL_PHONE_NUMBER)))
+                .cursorBatchSize(BACKFILL_BATCH_SIZE);
+        ReactiveMongoTemplate mongoTemplate = partition.template();
+        return mongoTemplate.find(query, Document.class, partition.collection())
+                .buffer(BACKFILL_BATCH_SIZE)
+                .concatMap(documents -> {
+                    ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class,
+                            partition.collection());
+                    for (Document document : documents) {
+                        User user = UserDocumentConverters.UserReadConverter.INSTANCE.convert(document);
+                        Query byId = Query.query(Criteria.where(ID).is(user.getId()));
+                        if (!document.containsKey(LAST_FIRST_KEY))
+                            bulk.updateOne(byId, new Update().set(LAST_FIRST_KEY, NameKeys.lastFirstKey(user))
+                                    .set(FIRST_LAST_KEY, NameKeys.firstLastKey(user)));
+                        // Separate update, so a duplicate phone does not hold back the name keys
+                        Long phoneKey = PhoneKeys.toKey(user.getPhoneNumber());
+                        if (phoneKey != null && !document.containsKey(PHONE_KEY))
+                            bulk.updateOne(byId, new Update().set(PHONE_KEY, phoneKey));
+                    }
+                    return bulk.execute()
+                            .onErrorResume(e -> writeResult(e) != null, e -> Mono.just(writeResult(e)));
+                })
+                .map(result -> (long) result.getModifiedCount())
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Flux<String> streamIds(int batchSize) {
+        Query query = new Query().cursorBatchSize(batchSize);
+        query.fields().include(ID);
+        return Flux.fromIterable(partitions.all())
+                .concatMap(partition -> partition.template().find(query, Document.class, partition.collection())
+                        .concatWith(partition.template().find(query, Document.class, partition.archive())))
+                .map(document -> document.getString(ID));
+    }
+
+    @Override
+    public Mono<Long> estimatedCount() {
+        return onAll(partition -> partition.template().estimatedCount(partition.collection())
+                .concatWith(partition.template().estimatedCount(partition.archive())))
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Mono<List<BulkWriteError>> insertUnordered(List<User> users) {
+        if (!partitions.isPartitioned())
+            return insertUnordered(partitions.all().get(0), users);
+
+        Map<Partition, List<Integer>> indexesByPartition = new LinkedHashMap<>();
+        for (int i = 0; i < users.size(); i++)
+            indexesByPartition.computeIfAbsent(partitions.partitionOf(users.get(i).getId()), p -> new ArrayList<>()).add(i);
+        return Flux.fromIterable(indexesByPartition.entrySet())
+                .flatMap(partition -> {
+                    List<Integer> indexes = partition.getValue();
+                    return insertUnordered(partition.getKey(), indexes.stream().map(users::get).toList())
+                            .flatMapIterable(errors -> errors)
+                            // Back to positions in users
+                            .map(error -> new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(),
+                                    indexes.get(error.getIndex())));
+                })
+                .collectList();
+    }
+
+    // Users still in the archive count as existing, so their emails fail like duplicates without a write
+    private Mono<List<BulkWriteError>> insertUnordered(Partition partition, List<User> users) {
+        Mono<Set<String>> inArchive = Mono.just(Set.of());
+        if (tieringEnabled) {
+            Query archived = Query.query(Criteria.where(ID).in(users.stream().map(User::getId).toList()));
+            archived.fields().include(ID);
+            inArchive = partition.template().find(archived, Document.class, partition.archive())
+                    .map(document -> document.getString(ID))
+                    .collect(Collectors.toSet());
+        }
+        return inArchive
+                .flatMap(archivedIds -> {
+                    List<BulkWriteError> errors = new ArrayList<>();
+                    List<Integer> indexes = new ArrayList<>(users.size());
+                    for (int i = 0; i < users.size(); i++) {
+                        String id = users.get(i).getId();
+                        if (archivedIds.contains(id))
+                            errors.add(new BulkWriteError(DUPLICATE_KEY_CODE,
+                                    archivedDuplicate(partition, id), new BsonDocument(), i));
+                        else
+                            indexes.add(i);
+                    }
+                    if (indexes.isEmpty())
+                        return Mono.just(errors);
+                    return partition.template()
+                            .bulkOps(BulkOperations.BulkMode.UNORDERED, User.class, partition.collection())
+                            .insert(indexes.stream().map(users::get).toList())
+                            .execute()
+                            .map(result -> List.<BulkWriteError>of())
+                            .onErrorResume(e -> writeErrors(e) != null, e -> Mono.just(writeErrors(e)))
+                            .map(insertErrors -> {
+                                // Back to positions in users
+                                for (BulkWriteError error : insertErrors)
+                                    errors.add(new BulkWriteError(error.getCode(), error.getMessage(),
+                                            error.getDetails(), indexes.get(error.getIndex())));
+                                return errors;
+                            });
+                });
+    }
+
+    private static String archivedDuplicate(Partition partition, String id) {
+        return "User " + id + " exists in archive " + partition.archive();
+    }
+
+    @Override
+    public Mono<Long> recordAccess(Collection<String> ids, LocalDate day) {
+        Update update = new Update().max(LAST_ACCESS, UserDocumentConverters.toLastAccessKey(day));
+        Map<Partition, List<String>> idsByPartition = new LinkedHashMap<>();
+        for (String id : ids)
+            idsByPartition.computeIfAbsent(partitions.partitionOf(id), p -> new ArrayList<>()).add(id);
+        return Flux.fromIterable(idsByPartition.entrySet())
+                .flatMap(partition -> partition.getKey().template().updateMulti(
+                        Query.query(Criteria.where(ID).in(partition.getValue())), update, partition.getKey().collection()))
+                .map(UpdateResult::getModifiedCount)
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Mono<Long> archiveStale(LocalDate cutoff, int batchSize) {
+        return onAll(partition -> archiveStale(partition, UserDocumentConverters.toLastAccessKey(cutoff), batchSize))
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> archiveStale(Partition partition, int cutoffKey, int batchSize) {
+        ReactiveMongoTemplate mongoTemplate = partition.template();
+        Query untracked = Query.query(Criteria.where(LAST_ACCESS).is(null));
+        Update trackFromToday = new Update().set(LAST_ACCESS, UserDocumentConverters.toLastAccessKey(LocalDate.now()));
+        Query stale = Query.query(Criteria.where(LAST_ACCESS).lt(cutoffKey)).cursorBatchSize(batchSize);
+        return mongoTemplate.indexOps(partition.archive()).ensureIndex(ARCHIVE_BIRTH_DATE_INDEX)
+                .then(mongoTemplate.indexOps(partition.archive()).ensureIndex(ARCHIVE_PHONE_KEY_INDEX))
+                .then(mongoTemplate.updateMulti(untracked, trackFromToday, partition.collection()))
+                .thenMany(mongoTemplate.find(stale, Document.class, partition.collection()))
+                .buffer(batchSize)
+                .concatMap(documents -> archive(partition, documents, cutoffKey))
+                .reduce(0L, Long::sum);
+    }
+
+    // Copy first, then delete what is still stale: a user written or read meanwhile stays hot, and so does a
+    // user whose copy failed
+    private Mono<Long> archive(Partition partition, List<Document> documents, int cutoffKey) {
+        ReactiveMongoTemplate mongoTemplate = partition.template();
+        List<Object> ids = documents.stream().map(document -> document.get(ID)).toList();
+        ReactiveBulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, partition.archive());
+        for (Document document : documents)
+            copy.replaceOne(Query.query(Criteria.where(ID).is(document.get(ID))), document,
+                    FindAndReplaceOptions.options().upsert());
+        return copy.execute()
+                .then(mongoTemplate.remove(Query.query(Criteria.where(ID).in(ids).and(LAST_ACCESS).lt(cutoffKey)),
+                        partition.collection()))
+                .flatMap(removed -> {
+                    if (removed.getDeletedCount() == ids.size())
+                        return Mono.just(removed.getDeletedCount());
+                    Query stillHot = Query.query(Criteria.where(ID).in(ids));
+                    stillHot.fields().include(ID);
+                    return mongoTemplate.find(stillHot, Document.class, partition.collection())
+                            .map(document -> document.get(ID))
+                            .collectList()
+                            .flatMap(kept -> mongoTemplate.remove(Query.query(Criteria.where(ID).in(kept)), partition.archive()))
+                            .thenReturn(removed.getDeletedCount());
+                });
+    }
+
+    @Override
+    public Mono<User> promoteArchived(String id) {
+        Partition home = partitions.partitionOf(id);
+        Flux<Partition> archives = partitions.isRebalancing()
+                ? Flux.concat(Mono.just(home), Flux.fromIterable(partitions.all()).filter(partition -> partition != home))
+                : Flux.just(home);
+        Query byId = Query.query(Criteria.where(ID).is(id));
+        return archives
+                .concatMap(partition -> partition.template().findOne(byId, Document.class, partition.archive())
+                        .map(document -> Map.entry(partition, document)))
+                .next()
+                .flatMap(archived -> {
+                    Document document = archived.getValue();
+                    ReactiveMongoTemplate archiveTemplate = archived.getKey().template();
+                    String archive = archived.getKey().archive();
+                    User user = UserDocumentConverters.UserReadConverter.INSTANCE.convert(document);
+                    document.put(LAST_ACCESS, UserDocumentConverters.toLastAccessKey(LocalDate.now()));
+                    return home.template().insert(document, home.collection())
+                            .then(archiveTemplate.remove(byId, archive))
+                            .thenReturn(user)
+                            .onErrorResume(DuplicateKeyException.class, e -> PhoneKeys.isDuplicatePhone(e.getMessage())
+                                    // Its phone number went to another user meanwhile: served, but left archived
+                                    ? Mono.just(user)
+                                    // Promoted concurrently, or created again since: the hot user wins
+                                    : archiveTemplate.remove(byId, archive)
+                                    .then(home.template().findById(id, User.class, home.collection())));
+                });
+    }
+
+    @Override
+    public Flux<User> findArchivedByPhoneKeys(Collection<Long> phoneKeys) {
+        Query query = Query.query(Criteria.where(PHONE_KEY).in(phoneKeys));
+        return onAll(partition -> partition.template().find(query, User.class, partition.archive()));
+    }
+
+    @Override
+    public Flux<User> findArchivedByBirthDateBetween(LocalDate fromDate, LocalDate toDate) {
+        Query query = Query.query(Criteria.where(BIRTH_DATE).gt(fromDate).lt(toDate))
+                .with(Sort.by(BIRTH_DATE))
+                .withHint(UserFilter.BIRTH_DATE_INDEX);
+        return onAllSorted(partition -> partition.template().find(query, User.class, partition.archive()), BIRTH_DATE_ORDER);
+    }
+
+    @Override
+    public Mono<Long> migrateLegacyBirthDates() {
+        // Same zone the default LocalDate converter used when writing the dates
+        ZoneId zone = ZoneId.systemDefault().normalized();
+        String timezone = zone.equals(ZoneOffset.UTC) ? "UTC" : zone.getId();
+        Document date = new Document("date", "$" + BIRTH_DATE).append("timezone", timezone);
+        Document birthDateKey = new Document("$add", List.of(
+                new Document("$multiply", List.of(new Document("$year", date), 10_000)),
+                new Document("$multiply", List.of(new Document("$month", date), 100)),
+                new Document("$dayOfMonth", date)));
+
+        return onAll(partition -> Flux.just(partition.collection(), partition.archive())
+                .flatMap(name -> partition.template().getCollection(name))
+                .flatMap(collection -> Mono.from(collection.updateMany(Filters.type(BIRTH_DATE, BsonType.DATE_TIME),
+                        List.of(new Document("$set", new Document(BIRTH_DATE, birthDateKey))))))
+                .map(UpdateResult::getModifiedCount))
+                .reduce(0L, Long::sum);
+    }
+
+    private <T> Flux<T> onAll(Function<Partition, Publisher<T>> operation) {
+        return Flux.fromIterable(partitions.all()).flatMap(operation);
+    }
+
+    // k-way merge of results each partition returns in that order
+    @SuppressWarnings("unchecked")
+    private Flux<User> onAllSorted(Function<Partition, Flux<User>> query, Comparator<User> order) {
+        if (!partitions.isPartitioned())
+            return query.apply(partitions.all().get(0));
+        List<Flux<User>> results = partitions.all().stream().map(query).toList();
+        return Flux.mergeComparing(order, results.toArray(new Flux[0]));
+    }
+
+    // The template translates bulk failures (usually into DuplicateKeyException), the per-document
+    // errors stay available on the original driver exception
+    private static List<BulkWriteError> writeErrors(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulkException)
+                return bulkException.getErrors();
+            if (cause instanceof MongoBulkWriteException bulkException)
+                return bulkException.getWriteConcernError() == null ? bulkException.getWriteErrors() : null;
+        }
+        return null;
+    }
+
+    // What an unordered bulk write did apply when some of its writes failed
+    private static BulkWriteResult writeResult(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulkException)
+                return bulkException.getResult();
+            if (cause instanceof MongoBulkWriteException bulkException)
+                return bulkException.getWriteConcernError() == null ? bulkException.getWriteResult() : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package demo.clear_solutions_demo_trajun.repository;
+
+import com.mongodb.WriteConcern;
+import org.springframework.lang.Nullable;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Named write concerns. The one chosen for a write travels in the Reactor context and is applied by
+ * {@link ContextAwareMongoTemplate} to every write of that subscription, repository and bulk writes included.
+ */
+public enum WriteDurability {
+
+    /**
+     * Acknowledged by the primary without waiting for its journal.
+     */
+    FAST(WriteConcern.W1.withJournal(false)),
+
+    /**
+     * The server's default write concern.
+     */
+    STANDARD(WriteConcern.ACKNOWLEDGED),
+
+    /**
+     * Acknowledged by a majority of the replica set once journaled.
+     */
+    DURABLE(WriteConcern.MAJORITY.withJournal(true));
+
+    private final WriteConcern writeConcern;
+
+    WriteDurability(WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
+    public WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    /**
+     * Case-insensitive, as in configuration and the {@code Write-Durability} header.
+     *
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static WriteDurability fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @Nullable
+    public static WriteDurability from(ContextView context) {
+        return context.getOrDefault(WriteDurability.class, null);
+    }
+
+    /**
+     * Overrides whatever the writes of the subscription would use.
+     */
+    public static Context override(Context context, WriteDurability durability) {
+        return context.put(WriteDurability.class, durability);
+    }
+
+    /**
+     * Uses {@code durability} unless the subscriber already chose one, e.g. a bulk operation for its
+     * single writes or a request override.
+     */
+    public static Function<Context, Context> byDefault(@Nullable WriteDurability durability) {
+        return context -> durability == null || context.hasKey(WriteDurability.class)
+                ? context : override(context, durability);
+    }
+}
@@ -0,0 +1,15 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+
+import java.time.Instant;
+
+/**
+ * One user mutation as recorded by the {@link AuditLog}: the user as written, or as it was before a delete.
+ */
+public record AuditEvent(Instant time, Type type, User user) {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+}
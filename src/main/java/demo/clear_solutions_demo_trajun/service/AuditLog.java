@@ -0,0 +1,343 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of user mutations. {@link #record} only puts the event into a {@link RingBuffer};
+ * one writer thread drains it in batches into the current segment file and forces it to disk every
+ * {@code fsyncInterval}. A segment that reaches {@code segmentSize} is closed and a new one started;
+ * segments are never written again once closed, and a restart always starts a new one.
+ * <p>Each record is {@code length, CRC32, payload}, so {@link AuditLogReader} can tell a record torn by
+ * a crash from a complete one. When the buffer is full, events are dropped and counted rather than
+ * making the request wait. An idle writer sleeps until an event is recorded or a pending fsync is due.
+ */
+@Slf4j
+public class AuditLog implements MeterBinder {
+
+    static final String SEGMENT_PREFIX = "audit-";
+
+    static final String SEGMENT_SUFFIX = ".log";
+
+    static final int HEADER_BYTES = 8;
+
+    private static final long NO_BIRTH_DATE = Long.MIN_VALUE;
+
+    private static final int MAX_BATCH = 1024;
+
+    // Longest idle sleep, in case a wake-up raced with going to sleep
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile RingBuffer<AuditEvent> queue;
+
+    private volatile boolean running;
+
+    private volatile boolean idle;
+
+    // record() calls past their running check, which stop() waits for before the last drain
+    private final AtomicInteger recording = new AtomicInteger();
+
+    private volatile Timer fsyncTimer;
+
+    private Thread writer;
+
+    private Path directory;
+
+    private long segmentSize;
+
+    private long fsyncIntervalNanos;
+
+    private FileChannel segment;
+
+    private long segmentIndex;
+
+    private long segmentBytes;
+
+    public void start(Path directory, long segmentSize, Duration fsyncInterval, int capacity) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        try {
+            Files.createDirectories(directory);
+            segmentIndex = lastSegmentIndex(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Audit log directory " + directory + " not usable", e);
+        }
+        // Assigned before the queue is published, so record() can wake it up
+        writer = new Thread(this::writeLoop, "user-audit-writer");
+        writer.setDaemon(true);
+        queue = new RingBuffer<>(capacity);
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Stops taking events, then writes what is queued, including events recorded concurrently with this call,
+     * forces it to disk and stops the writer.
+     */
+    public void stop() {
+        running = false;
+        if (writer == null)
+            return;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues the event without waiting. The user is encoded later by the writer, so it must not be
+     * changed afterwards.
+     */
+    public void record(AuditEvent.Type type, User user) {
+        RingBuffer<AuditEvent> events = queue;
+        if (events == null)
+            return;
+        recording.incrementAndGet();
+        try {
+            if (!running)
+                return;
+            if (!events.offer(new AuditEvent(Instant.now(), type, user)))
+                dropped.increment();
+        } finally {
+            recording.decrementAndGet();
+        }
+        if (idle)
+            LockSupport.unpark(writer);
+    }
+
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+        long reportedDrops = 0;
+        while (true) {
+            // Read before draining, so nothing queued before stop() is left behind
+            boolean stopping = !running;
+            int batch = 0;
+            int buffered = 0;
+            AuditEvent event;
+            while (batch < MAX_BATCH && (event = queue.poll()) != null) {
+                byte[] record = encode(event);
+                if (record.length > buffer.remaining()) {
+                    buffer = flush(buffer, buffered, record.length);
+                    buffered = 0;
+                }
+                buffer.put(record);
+                buffered++;
+                batch++;
+                // Segments end at a record boundary once they reach segmentSize
+                if (segmentBytes + buffer.position() >= segmentSize) {
+                    buffer = flush(buffer, buffered, 0);
+                    buffered = 0;
+                    force();
+                    closeSegment();
+                    unforced = false;
+                }
+            }
+            if (buffered > 0) {
+                buffer = flush(buffer, buffered, 0);
+                unforced = true;
+            }
+            long now = System.nanoTime();
+            if (unforced && (stopping || now - lastForce >= fsyncIntervalNanos)) {
+                force();
+                unforced = false;
+                lastForce = now;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                log.warn("Audit log buffer full, {} events dropped so far", drops);
+                reportedDrops = drops;
+            }
+            if (stopping) {
+                // Nothing is offered any more once no record() call is past its running check
+                if (batch == 0 && recording.get() == 0 && queue.size() == 0)
+                    break;
+                Thread.onSpinWait();
+                continue;
+            }
+            if (batch == 0) {
+                idle = true;
+                if (queue.size() == 0 && running)
+                    LockSupport.parkNanos(unforced ? Math.max(0, fsyncIntervalNanos - (now - lastForce))
+                            : IDLE_PARK_NANOS);
+                idle = false;
+            }
+        }
+        closeSegment();
+    }
+
+    /**
+     * Writes the buffer to the current segment, opening one if needed.
+     *
+     * @return an empty buffer with room for at least {@code needed} bytes
+     */
+    private ByteBuffer flush(ByteBuffer buffer, int events, int needed) {
+        buffer.flip();
+        try {
+            if (segment == null)
+                openSegment();
+            while (buffer.hasRemaining())
+                segmentBytes += segment.write(buffer);
+            written.add(events);
+        } catch (IOException e) {
+            log.error("Audit log write failed, {} events lost: {}", events, e.getMessage());
+            dropped.add(events);
+            closeSegment();
+        }
+        buffer.clear();
+        return needed > buffer.capacity() ? ByteBuffer.allocateDirect(needed) : buffer;
+    }
+
+    private void force() {
+        if (segment == null)
+            return;
+        long start = System.nanoTime();
+        try {
+            segment.force(false);
+        } catch (IOException e) {
+            log.error("Audit log fsync failed: {}", e.getMessage());
+            closeSegment();
+            return;
+        }
+        Timer timer = fsyncTimer;
+        if (timer != null)
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void openSegment() throws IOException {
+        segmentIndex++;
+        segmentBytes = 0;
+        segment = FileChannel.open(directory.resolve(segmentName(segmentIndex)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeSegment() {
+        if (segment == null)
+            return;
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.error("Audit log segment not closed cleanly: {}", e.getMessage());
+        }
+        segment = null;
+        segmentBytes = 0;
+    }
+
+    static String segmentName(long index) {
+        return String.format("%s%012d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long lastSegmentIndex(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditLog::isSegment)
+                    .map(file -> file.getFileName().toString())
+                    .mapToLong(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .max()
+                    .orElse(0);
+        }
+    }
+
+    static byte[] encode(AuditEvent event) {
+        User user = event.user();
+        byte[][] strings = {utf8(user.getEmail()), utf8(user.getFirstName()), utf8(user.getLastName()),
+                utf8(user.getAddress()), utf8(user.getPhoneNumber())};
+        int payloadBytes = Long.BYTES + 1 + Long.BYTES;
+        for (byte[] string : strings)
+            payloadBytes += Integer.BYTES + (string == null ? 0 : string.length);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        record.putInt(payloadBytes).putInt(0)
+                .putLong(event.time().toEpochMilli())
+                .put((byte) event.type().ordinal())
+                .putLong(user.getBirthDate() == null ? NO_BIRTH_DATE : user.getBirthDate().toEpochDay());
+        for (byte[] string : strings) {
+            record.putInt(string == null ? -1 : string.length);
+            if (string != null)
+                record.put(string);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, payloadBytes);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    static AuditEvent decode(ByteBuffer payload) {
+        Instant time = Instant.ofEpochMilli(payload.getLong());
+        AuditEvent.Type type = AuditEvent.Type.values()[payload.get()];
+        long birthDate = payload.getLong();
+        String email = string(payload);
+        String firstName = string(payload);
+        String lastName = string(payload);
+        String address = string(payload);
+        String phoneNumber = string(payload);
+        return new AuditEvent(time, type, new User(email, firstName, lastName,
+                birthDate == NO_BIRTH_DATE ? null : LocalDate.ofEpochDay(birthDate), address, phoneNumber));
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0)
+            return null;
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.audit.queue.depth", this, log -> log.queue == null ? 0 : log.queue.size())
+                .description("Audit events waiting for the writer")
+                .register(registry);
+        FunctionCounter.builder("user.audit.events", written, LongAdder::sum)
+                .tag("result", "written")
+                .register(registry);
+        FunctionCounter.builder("user.audit.events", dropped, LongAdder::sum)
+                .tag("result", "dropped")
+                .register(registry);
+        fsyncTimer = Timer.builder("user.audit.fsync")
+                .description("Time to force an audit log segment to disk")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
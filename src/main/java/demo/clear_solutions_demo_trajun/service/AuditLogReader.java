@@ -0,0 +1,101 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the segments an {@link AuditLog} wrote, oldest first. A record that is cut short or fails its
+ * checksum ends its segment: the writer was stopped in the middle of it, and the following segment was
+ * started after a restart.
+ * <p>Also a command line tool, run with {@code scripts/audit-log.sh}:
+ * <pre>
+ * audit-log.sh &lt;directory&gt; print [until]   every event, one per line
+ * audit-log.sh &lt;directory&gt; replay [until]  the users as they were at {@code until} (ISO instant, default now)
+ * </pre>
+ */
+public class AuditLogReader {
+
+    /**
+     * @return number of torn or corrupt records skipped
+     */
+    public static int read(Path directory, Consumer<AuditEvent> events) throws IOException {
+        int skipped = 0;
+        for (Path segment : segments(directory))
+            skipped += readSegment(segment, events);
+        return skipped;
+    }
+
+    /**
+     * Applies the events up to {@code until} in order to {@code users}, by email in order of their last write.
+     *
+     * @return number of torn or corrupt records skipped
+     */
+    public static int replay(Path directory, Instant until, Map<String, User> users) throws IOException {
+        return read(directory, event -> {
+            if (event.time().isAfter(until))
+                return;
+            users.remove(event.user().getEmail());
+            if (event.type() != AuditEvent.Type.DELETE)
+                users.put(event.user().getEmail(), event.user());
+        });
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditLog::isSegment).sorted().toList();
+        }
+    }
+
+    private static int readSegment(Path segment, Consumer<AuditEvent> events) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(segment));
+        CRC32 crc = new CRC32();
+        while (records.remaining() >= AuditLog.HEADER_BYTES) {
+            int length = records.getInt();
+            int checksum = records.getInt();
+            if (length < 0 || length > records.remaining())
+                return 1;
+            crc.reset();
+            crc.update(records.array(), records.position(), length);
+            if ((int) crc.getValue() != checksum)
+                return 1;
+            events.accept(AuditLog.decode(records.slice(records.position(), length)));
+            records.position(records.position() + length);
+        }
+        return records.hasRemaining() ? 1 : 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !List.of("print", "replay").contains(args[1])) {
+            System.err.println("Usage: audit-log <directory> print|replay [until]");
+            System.exit(2);
+        }
+        Path directory = Path.of(args[0]);
+        Instant until = args.length > 2 ? Instant.parse(args[2]) : Instant.now();
+        PrintStream out = System.out;
+        int skipped;
+        if (args[1].equals("print")) {
+            skipped = read(directory, event -> {
+                if (!event.time().isAfter(until))
+                    out.println(event.time() + "\t" + event.type() + "\t" + event.user());
+            });
+        } else {
+            Map<String, User> users = new LinkedHashMap<>();
+            skipped = replay(directory, until, users);
+            users.values().forEach(out::println);
+        }
+        if (skipped > 0)
+            System.err.println(skipped + " torn or corrupt records skipped");
+    }
+}
@@ -0,0 +1,97 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter over strings. {@link #put} and {@link #mightContain} may be called
+ * concurrently; a key is never reported absent once its {@code put} has returned.
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+
+    private final long bitSize;
+
+    private final int hashes;
+
+    private final LongAdder setBits = new LongAdder();
+
+    /**
+     * @param expectedInsertions number of keys the filter is sized for
+     * @param falsePositiveRate  target false positive rate at {@code expectedInsertions} keys
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate in (0, 1)");
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        this.words = new AtomicLongArray(Math.toIntExact((bits + 63) >>> 6));
+        this.bitSize = (long) words.length() << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN2));
+    }
+
+    /**
+     * @return true if the key may have been added before, false if it definitely was not
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        long combined = hash;
+        long step = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashes; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0)
+                return false;
+            combined += step;
+        }
+        return true;
+    }
+
+    public void put(String key) {
+        long hash = hash(key);
+        long combined = hash;
+        long step = mix(hash ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashes; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            if ((words.get(word) & mask) == 0 && (words.getAndAccumulate(word, mask, BloomFilter::or) & mask) == 0)
+                setBits.increment();
+            combined += step;
+        }
+    }
+
+    /**
+     * False positive rate implied by the current share of set bits.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) setBits.sum() / bitSize, hashes);
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashes() {
+        return hashes;
+    }
+
+    private static long or(long word, long mask) {
+        return word | mask;
+    }
+
+    private static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++)
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        return mix(h);
+    }
+
+    // MurmurHash3 finalizer, spreads the FNV result over all 64 bits
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
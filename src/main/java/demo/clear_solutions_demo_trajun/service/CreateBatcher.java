@@ -0,0 +1,134 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import demo.clear_solutions_demo_trajun.repository.Deadline;
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Gathers concurrent single-user creates for at most {@code window} or {@code maxBatchSize} users,
+ * writes them with one bulk insert and completes every waiting caller with its own outcome.
+ * <p>The insert runs outside the callers' subscriptions, so what they carry in their context is applied here:
+ * creates asking for different {@link WriteDurability}s are written as separate inserts with that durability,
+ * and each caller is held to its own {@link Deadline}. A create whose deadline passed before its batch was
+ * written is left out of it.
+ */
+public class CreateBatcher implements MeterBinder {
+
+    private static final Sinks.EmitFailureHandler RETRY_CONCURRENT_EMIT = Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1));
+
+    private final Function<List<User>, Flux<InsertOutcome>> bulkInsert;
+
+    private final Sinks.Many<PendingCreate> queue = Sinks.many().unicast().onBackpressureBuffer();
+
+    private volatile DistributionSummary batchSizes;
+
+    public CreateBatcher(Function<List<User>, Flux<InsertOutcome>> bulkInsert) {
+        this.bulkInsert = bulkInsert;
+    }
+
+    /**
+     * @param concurrency how many batches may be written at the same time
+     */
+    public void start(int maxBatchSize, Duration window, int concurrency) {
+        queue.asFlux()
+                .bufferTimeout(maxBatchSize, window, true)
+                .flatMap(this::flush, concurrency)
+                .subscribe();
+    }
+
+    /**
+     * Rejects new creates; already queued ones are still written.
+     */
+    public void stop() {
+        queue.emitComplete(RETRY_CONCURRENT_EMIT);
+    }
+
+    public Mono<User> create(User user) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context);
+            Mono<User> created = Mono.create(sink -> {
+                try {
+                    queue.emitNext(new PendingCreate(user, WriteDurability.from(context), deadline, sink),
+                            RETRY_CONCURRENT_EMIT);
+                } catch (Sinks.EmissionException e) {
+                    sink.error(e);
+                }
+            });
+            return deadline == null ? created
+                    : created.timeout(deadline.remaining(), Mono.error(CreateBatcher::exceeded));
+        });
+    }
+
+    private Mono<Void> flush(List<PendingCreate> batch) {
+        Map<Optional<WriteDurability>, List<PendingCreate>> byDurability = new LinkedHashMap<>();
+        for (PendingCreate create : batch) {
+            if (create.deadline() != null && create.deadline().isExpired())
+                create.sink().error(exceeded());
+            else
+                byDurability.computeIfAbsent(Optional.ofNullable(create.durability()), d -> new ArrayList<>()).add(create);
+        }
+        return Flux.fromIterable(byDurability.entrySet())
+                .flatMap(group -> write(group.getValue(), group.getKey().orElse(null)))
+                .then();
+    }
+
+    private Mono<Void> write(List<PendingCreate> batch, @Nullable WriteDurability durability) {
+        DistributionSummary summary = batchSizes;
+        if (summary != null)
+            summary.record(batch.size());
+
+        boolean[] completed = new boolean[batch.size()];
+        return bulkInsert.apply(batch.stream().map(PendingCreate::user).toList())
+                .contextWrite(context -> durability == null ? context : WriteDurability.override(context, durability))
+                .index()
+                .doOnNext(indexed -> {
+                    int i = indexed.getT1().intValue();
+                    InsertOutcome outcome = indexed.getT2();
+                    completed[i] = true;
+                    if (outcome.isInserted())
+                        batch.get(i).sink().success(outcome.user());
+                    else
+                        batch.get(i).sink().error(outcome.error());
+                })
+                .then()
+                .onErrorResume(e -> {
+                    for (int i = 0; i < batch.size(); i++)
+                        if (!completed[i])
+                            batch.get(i).sink().error(e);
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        batchSizes = DistributionSummary.builder("user.create.batch.size")
+                .description("Users written per coalesced insert")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static DeadlineExceededException exceeded() {
+        return new DeadlineExceededException("Deadline passed while waiting for a batched create");
+    }
+
+    private record PendingCreate(User user, @Nullable WriteDurability durability, @Nullable Deadline deadline,
+                                 MonoSink<User> sink) {
+    }
+}
@@ -0,0 +1,67 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental RFC 4180 record parser that is fed one physical line at a time.
+ * A quoted field may span several lines, so {@link #feed(String)} returns {@code null}
+ * until the record it is collecting is complete.
+ */
+public class CsvRecordParser {
+
+    private final int maxRecordLength;
+
+    private final List<String> fields = new ArrayList<>();
+
+    private final StringBuilder field = new StringBuilder();
+
+    private int recordLength;
+
+    private boolean inQuotes;
+
+    public CsvRecordParser(int maxRecordLength) {
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    public List<String> feed(String line) {
+        int length = line.endsWith("\r") ? line.length() - 1 : line.length();
+        recordLength += length;
+        if (recordLength > maxRecordLength)
+            throw new IllegalArgumentException("CSV record exceeds " + maxRecordLength + " characters");
+
+        if (inQuotes)
+            field.append('\n');
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c != '"')
+                    field.append(c);
+                else if (i + 1 < length && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else
+                    inQuotes = false;
+            } else if (c == '"')
+                inQuotes = true;
+            else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else
+                field.append(c);
+        }
+        if (inQuotes)
+            return null;
+
+        fields.add(field.toString());
+        field.setLength(0);
+        recordLength = 0;
+        List<String> record = List.copyOf(fields);
+        fields.clear();
+        return record;
+    }
+
+    public boolean hasIncompleteRecord() {
+        return inQuotes;
+    }
+}
@@ -0,0 +1,13 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import java.time.LocalDate;
+
+/**
+ * Birth date search range, exclusive at both ends like {@code findByBirthDateBetween}.
+ */
+record DateRange(LocalDate from, LocalDate to) {
+
+    boolean contains(LocalDate date) {
+        return date.isAfter(from) && date.isBefore(to);
+    }
+}
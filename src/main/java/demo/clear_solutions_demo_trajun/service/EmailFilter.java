@@ -0,0 +1,110 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory membership filter over all user emails, so lookups for emails that do not exist can be
+ * answered without a database round trip.
+ * <p>Until the first {@link #rebuild} completes every email "might exist". Added emails stay in the
+ * filter; deletes are only forgotten on the next rebuild, which also resizes the filter to the
+ * current number of users. Writes made by other instances are not seen before a rebuild either.
+ */
+public class EmailFilter implements MeterBinder {
+
+    private volatile BloomFilter current;
+
+    private volatile BloomFilter building;
+
+    private final LongAdder definiteMisses = new LongAdder();
+
+    private final LongAdder falsePositives = new LongAdder();
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * @return false only if no user with this email exists
+     */
+    public boolean mightContain(String email) {
+        BloomFilter filter = current;
+        if (filter == null || filter.mightContain(email))
+            return true;
+        definiteMisses.increment();
+        return false;
+    }
+
+    /**
+     * Records that an email let through by {@link #mightContain} turned out not to exist.
+     */
+    public void recordFalsePositive() {
+        if (current != null)
+            falsePositives.increment();
+    }
+
+    /**
+     * Must be called once a user with this email has been written.
+     */
+    public void add(String email) {
+        // building is read first: a rebuild publishes current before clearing building
+        BloomFilter next = building;
+        if (next != null)
+            next.put(email);
+        BloomFilter filter = current;
+        if (filter != null)
+            filter.put(email);
+    }
+
+    /**
+     * Fills a new filter from {@code emails} and swaps it in. Emails {@link #add added} while the scan
+     * runs go into both filters. Rebuilds must not overlap.
+     *
+     * @param emails cold publisher, subscribed after the new filter starts receiving writes
+     */
+    public Mono<Void> rebuild(long expectedEmails, double falsePositiveRate, Flux<String> emails) {
+        return Mono.defer(() -> {
+            BloomFilter next = new BloomFilter(expectedEmails, falsePositiveRate);
+            building = next;
+            return emails.doOnNext(next::put)
+                    .then(Mono.fromRunnable(() -> {
+                        current = next;
+                        definiteMisses.reset();
+                        falsePositives.reset();
+                    }))
+                    .doFinally(signal -> building = null)
+                    .then();
+        });
+    }
+
+    /**
+     * @return share of lookups for absent emails that were let through to the database since the last rebuild
+     */
+    public double getFalsePositiveRate() {
+        long positives = falsePositives.sum();
+        long total = positives + definiteMisses.sum();
+        return total == 0 ? 0 : (double) positives / total;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        BloomFilter filter = current;
+        return filter == null ? Double.NaN : filter.expectedFalsePositiveRate();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.email-filter.false-positive-rate", this, EmailFilter::getFalsePositiveRate)
+                .description("Observed share of absent emails the filter did not rule out, since the last rebuild")
+                .register(registry);
+        Gauge.builder("user.email-filter.expected-false-positive-rate", this, EmailFilter::getExpectedFalsePositiveRate)
+                .description("False positive rate implied by the filter's fill ratio")
+                .register(registry);
+        Gauge.builder("user.email-filter.ready", this, filter -> filter.isReady() ? 1 : 0)
+                .register(registry);
+    }
+}
@@ -0,0 +1,88 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus.Rejection;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus.State;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress of one CSV import. Counters are updated from the import pipeline and read
+ * concurrently by the status endpoint; only the first {@code maxRejections} reasons are kept.
+ */
+class ImportJob {
+
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+
+    private final String fileName;
+
+    private final int maxRejections;
+
+    private final Instant startedAt = Instant.now();
+
+    private final AtomicLong rowsProcessed = new AtomicLong();
+
+    private final AtomicLong accepted = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final Queue<Rejection> rejections = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger reportedRejections = new AtomicInteger();
+
+    @Getter
+    private volatile State state = State.RUNNING;
+
+    private volatile Instant finishedAt;
+
+    private volatile String error;
+
+    ImportJob(String fileName, int maxRejections) {
+        this.fileName = fileName;
+        this.maxRejections = maxRejections;
+    }
+
+    void accept() {
+        rowsProcessed.incrementAndGet();
+        accepted.incrementAndGet();
+    }
+
+    void reject(long row, String email, String reason) {
+        rowsProcessed.incrementAndGet();
+        rejected.incrementAndGet();
+        if (reportedRejections.getAndIncrement() < maxRejections)
+            rejections.add(new Rejection(row, email, reason));
+    }
+
+    ImportJobStatus finish(State state, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = state;
+        return toStatus();
+    }
+
+    boolean isFinished() {
+        return state != State.RUNNING;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    ImportJobStatus toStatus() {
+        Instant end = finishedAt == null ? Instant.now() : finishedAt;
+        long rows = rowsProcessed.get();
+        double seconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+        return new ImportJobStatus(id, fileName, state, rows, accepted.get(), rejected.get(), rows / seconds,
+                startedAt, finishedAt, error, List.copyOf(rejections));
+    }
+}
@@ -0,0 +1,16 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.springframework.lang.Nullable;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Result of inserting one user as part of a bulk write: either inserted, or rejected with the
+ * same error a single {@link UserService#createUser(User)} would have produced.
+ */
+public record InsertOutcome(User user, @Nullable ResponseStatusException error) {
+
+    public boolean isInserted() {
+        return error == null;
+    }
+}
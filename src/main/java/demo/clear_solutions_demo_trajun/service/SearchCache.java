@@ -0,0 +1,255 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Birth date search results by range, bounded by the total number of cached users and evicted least
+ * recently used first.
+ * <p>Cached ranges are indexed by the years they cover, so a write only drops the ranges that contain
+ * the written user's old or new birth date. Each year also counts its invalidations: a result whose
+ * years saw a write while it was being loaded is returned but not cached, so a slow query cannot put
+ * a result back that a write has already invalidated. Ranges wider than {@value #MAX_INDEXED_YEARS}
+ * years are kept aside, checked on every write and invalidated by any write during their load.
+ * <p>Cached users are shared between callers and must not be modified.
+ */
+public class SearchCache implements MeterBinder {
+
+    static final int MAX_INDEXED_YEARS = 150;
+
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<DateRange, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<Integer, Year> years = new HashMap<>();
+
+    private final Set<DateRange> wideRanges = new HashSet<>();
+
+    private long epoch;
+
+    // Counts invalidations of every range, added to every stamp
+    private long generation;
+
+    private long cachedUsers;
+
+    private long maxUsers;
+
+    private int maxEntryUsers;
+
+    private long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public SearchCache(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Until configured nothing is cached.
+     *
+     * @param maxUsers      total number of users across all cached results
+     * @param maxEntryUsers larger results are not cached
+     * @param ttl           bounds staleness from writes this instance does not see
+     */
+    public synchronized void configure(long maxUsers, int maxEntryUsers, Duration ttl) {
+        this.maxUsers = maxUsers;
+        this.maxEntryUsers = maxEntryUsers;
+        this.ttlNanos = ttl.toNanos();
+        evict();
+    }
+
+    /**
+     * @return the cached result, or null if the range has to be loaded
+     */
+    @Nullable
+    public List<User> get(LocalDate from, LocalDate to) {
+        DateRange range = new DateRange(from, to);
+        synchronized (this) {
+            Entry entry = entries.get(range);
+            if (entry != null && nanoClock.getAsLong() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+                return entry.users;
+            }
+            if (entry != null)
+                remove(range);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Passes {@code source} through and caches what it emitted once it completes.
+     */
+    public Flux<User> load(LocalDate from, LocalDate to, Flux<User> source) {
+        DateRange range = new DateRange(from, to);
+        return Flux.defer(() -> {
+            long stamp = stamp(range);
+            long loadedAt = nanoClock.getAsLong();
+            List<User> users = new ArrayList<>();
+            return source
+                    .doOnNext(user -> {
+                        if (users.size() <= maxEntryUsers)
+                            users.add(user);
+                    })
+                    .doOnComplete(() -> put(range, users, stamp, loadedAt));
+        });
+    }
+
+    /**
+     * Drops every cached range containing {@code birthDate}; must be called after each write with the
+     * written user's previous and new birth date.
+     */
+    public synchronized void invalidate(@Nullable LocalDate birthDate) {
+        if (birthDate == null)
+            return;
+        Year year = years.computeIfAbsent(birthDate.getYear(), y -> new Year());
+        year.epoch++;
+        epoch++;
+        List<DateRange> affected = new ArrayList<>();
+        for (DateRange range : year.ranges)
+            if (range.contains(birthDate))
+                affected.add(range);
+        for (DateRange range : wideRanges)
+            if (range.contains(birthDate))
+                affected.add(range);
+        for (DateRange range : affected) {
+            remove(range);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Drops every cached range, for writes that may have touched any of them.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        for (DateRange range : List.copyOf(entries.keySet())) {
+            remove(range);
+            invalidations.increment();
+        }
+    }
+
+    private synchronized long stamp(DateRange range) {
+        if (isWide(range))
+            return generation + epoch;
+        long stamp = generation;
+        for (int y = range.from().getYear(); y <= range.to().getYear(); y++) {
+            Year year = years.get(y);
+            if (year != null)
+                stamp += year.epoch;
+        }
+        return stamp;
+    }
+
+    private static boolean isWide(DateRange range) {
+        return range.to().getYear() - range.from().getYear() >= MAX_INDEXED_YEARS;
+    }
+
+    private synchronized void put(DateRange range, List<User> users, long stamp, long loadedAt) {
+        if (users.size() > maxEntryUsers || users.size() > maxUsers || stamp(range) != stamp)
+            return;
+        remove(range);
+        entries.put(range, new Entry(Collections.unmodifiableList(users), loadedAt));
+        if (isWide(range))
+            wideRanges.add(range);
+        else
+            for (int y = range.from().getYear(); y <= range.to().getYear(); y++)
+                years.computeIfAbsent(y, key -> new Year()).ranges.add(range);
+        cachedUsers += users.size();
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<DateRange, Entry>> it = entries.entrySet().iterator();
+        while (cachedUsers > maxUsers && it.hasNext()) {
+            Map.Entry<DateRange, Entry> eldest = it.next();
+            it.remove();
+            unindex(eldest.getKey());
+            cachedUsers -= eldest.getValue().users.size();
+            evictions.increment();
+        }
+    }
+
+    private void remove(DateRange range) {
+        Entry entry = entries.remove(range);
+        if (entry == null)
+            return;
+        unindex(range);
+        cachedUsers -= entry.users.size();
+    }
+
+    private void unindex(DateRange range) {
+        if (isWide(range)) {
+            wideRanges.remove(range);
+            return;
+        }
+        for (int y = range.from().getYear(); y <= range.to().getYear(); y++) {
+            Year year = years.get(y);
+            if (year != null)
+                year.ranges.remove(range);
+        }
+    }
+
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedUsers() {
+        return cachedUsers;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.search.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("user.search.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("user.search.cache.invalidations", invalidations, LongAdder::sum)
+                .description("Cached ranges dropped because a write touched them")
+                .register(registry);
+        FunctionCounter.builder("user.search.cache.evictions", evictions, LongAdder::sum)
+                .register(registry);
+        Gauge.builder("user.search.cache.entries", this, SearchCache::getEntries)
+                .register(registry);
+        Gauge.builder("user.search.cache.users", this, SearchCache::getCachedUsers)
+                .register(registry);
+    }
+
+    private record Entry(List<User> users, long loadedAt) {
+    }
+
+    // Cached ranges covering the year and the number of writes seen for it
+    private static final class Year {
+
+        private final Set<DateRange> ranges = new HashSet<>();
+
+        private long epoch;
+    }
+}
@@ -0,0 +1,229 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import demo.clear_solutions_demo_trajun.repository.Deadline;
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key: while a call is in flight, further callers
+ * subscribe to it instead of starting their own. The entry is dropped once the call terminates,
+ * so nothing is cached beyond the lifetime of the shared call. The shared call is cancelled once
+ * every caller has cancelled.
+ * <p>Unless created to run in the first caller's context, the shared call runs without the callers'
+ * {@link Deadline} and {@link WriteDurability}, so one caller's short deadline does not fail the others;
+ * each caller is held to its own deadline instead. With a {@link #setSharedTimeout shared timeout} the shared
+ * call gets a deadline of its own, the later of the first caller's and the shared timeout, so MongoDB still
+ * bounds its queries.
+ * <p>Callers receive the same value instances and must not modify them.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    /**
+     * Elements a {@link #flux} keeps for late joiners; once it has emitted more, late joiners run their own call.
+     */
+    public static final int MAX_REPLAYED = 1000;
+
+    private final String operation;
+
+    private final boolean inFirstCallerContext;
+
+    private final int maxReplayed;
+
+    private volatile Duration sharedTimeout;
+
+    private final ConcurrentMap<K, Object> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder executions = new LongAdder();
+
+    public SingleFlight(String operation) {
+        this(operation, false, MAX_REPLAYED);
+    }
+
+    /**
+     * @param inFirstCallerContext whether the shared call runs with the context of the caller that started it,
+     *                             for calls that are that caller's own work
+     */
+    public SingleFlight(String operation, boolean inFirstCallerContext) {
+        this(operation, inFirstCallerContext, MAX_REPLAYED);
+    }
+
+    /**
+     * @param maxReplayed elements a {@link #flux} keeps for late joiners
+     */
+    public SingleFlight(String operation, boolean inFirstCallerContext, int maxReplayed) {
+        this.operation = operation;
+        this.inFirstCallerContext = inFirstCallerContext;
+        this.maxReplayed = maxReplayed;
+    }
+
+    /**
+     * @param sharedTimeout how long a shared call may run at least, usually the default deadline of the
+     *                      endpoints using it; null leaves shared calls without a deadline
+     */
+    public void setSharedTimeout(@Nullable Duration sharedTimeout) {
+        this.sharedTimeout = sharedTimeout;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Mono<V> mono(K key, Function<K, Mono<V>> call) {
+        return Mono.deferContextual(context -> {
+            requests.increment();
+            Mono<V> shared = (Mono<V>) calls.computeIfAbsent(key, k -> {
+                executions.increment();
+                AtomicReference<Mono<V>> self = new AtomicReference<>();
+                Mono<V> execution = shared(call.apply(k))
+                        .doFinally(signal -> calls.remove(k, self.get()))
+                        .flux()
+                        .replay(1)
+                        .refCount()
+                        .singleOrEmpty();
+                self.set(execution);
+                return execution;
+            });
+            Deadline deadline = Deadline.from(context);
+            return deadline == null ? shared
+                    : shared.timeout(deadline.remaining(), Mono.error(() -> exceeded(deadline)));
+        });
+    }
+
+    /**
+     * Late joiners replay the elements already emitted, as long as there were at most {@code maxReplayed};
+     * later ones run the call on their own, so a long result is not held in memory for them.
+     */
+    @SuppressWarnings("unchecked")
+    public Flux<V> flux(K key, Function<K, Flux<V>> call) {
+        return Flux.deferContextual(context -> {
+            requests.increment();
+            SharedFlux<V> shared = (SharedFlux<V>) calls.computeIfAbsent(key, k -> {
+                executions.increment();
+                SharedFlux<V> entry = new SharedFlux<>();
+                entry.flux = shared(call.apply(k))
+                        .doOnNext(element -> entry.emitted(maxReplayed))
+                        .doFinally(signal -> calls.remove(k, entry))
+                        .replay(maxReplayed)
+                        .refCount();
+                return entry;
+            });
+            Flux<V> joined = shared.join(() -> {
+                executions.increment();
+                return call.apply(key);
+            });
+            Deadline deadline = Deadline.from(context);
+            if (deadline == null)
+                return joined;
+            // Every element's timeout ends at the deadline, so together they bound the whole call
+            return joined.timeout(Mono.delay(deadline.remaining()), element -> Mono.delay(deadline.remaining()))
+                    .onErrorMap(TimeoutException.class, e -> exceeded(deadline));
+        });
+    }
+
+    private Flux<V> shared(Flux<V> call) {
+        return inFirstCallerContext ? call : call.contextWrite(this::sharedContext);
+    }
+
+    private Mono<V> shared(Mono<V> call) {
+        return inFirstCallerContext ? call : call.contextWrite(this::sharedContext);
+    }
+
+    private Context sharedContext(Context firstCaller) {
+        Context context = firstCaller.delete(Deadline.class).delete(WriteDurability.class);
+        Duration timeout = sharedTimeout;
+        if (timeout == null)
+            return context;
+        return context.put(Deadline.class, Deadline.later(Deadline.from(firstCaller), Deadline.after(timeout)));
+    }
+
+    private DeadlineExceededException exceeded(Deadline deadline) {
+        return new DeadlineExceededException("Deadline passed while waiting for a shared " + operation + " call");
+    }
+
+    private static final class SharedFlux<V> {
+
+        private final Object lock = new Object();
+
+        private Flux<V> flux;
+
+        private long emitted;
+
+        // Set under the lock with the element that no longer fits the replay buffer
+        private volatile boolean overflowed;
+
+        void emitted(int maxReplayed) {
+            if (overflowed)
+                return;
+            synchronized (lock) {
+                if (++emitted > maxReplayed)
+                    overflowed = true;
+            }
+        }
+
+        /**
+         * Subscribes under the lock, so no element can leave the replay buffer between the check and the
+         * subscription.
+         */
+        Flux<V> join(Supplier<Flux<V>> ownCall) {
+            return Flux.from(subscriber -> {
+                if (!overflowed)
+                    synchronized (lock) {
+                        if (!overflowed) {
+                            flux.subscribe(subscriber);
+                            return;
+                        }
+                    }
+                ownCall.get().subscribe(subscriber);
+            });
+        }
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return share of requests served by another caller's in-flight call
+     */
+    public double getCoalescingRatio() {
+        long total = requests.sum();
+        return total == 0 ? 0 : 1 - (double) executions.sum() / total;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("user.coalescing.requests", this, SingleFlight::getRequests)
+                .tag("operation", operation)
+                .register(registry);
+        FunctionCounter.builder("user.coalescing.executions", this, SingleFlight::getExecutions)
+                .tag("operation", operation)
+                .description("Calls actually sent to the repository")
+                .register(registry);
+        Gauge.builder("user.coalescing.ratio", this, SingleFlight::getCoalescingRatio)
+                .tag("operation", operation)
+                .register(registry);
+        Gauge.builder("user.coalescing.in-flight", calls, ConcurrentMap::size)
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
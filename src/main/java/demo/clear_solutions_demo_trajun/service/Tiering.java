@@ -0,0 +1,57 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the emails of users read since the last flush, so their last access is written once per flush
+ * instead of once per read, and counts the users moved between the hot and the archive collections.
+ */
+public class Tiering implements MeterBinder {
+
+    private final AtomicReference<Set<String>> accessed = new AtomicReference<>(ConcurrentHashMap.newKeySet());
+
+    private final LongAdder archived = new LongAdder();
+
+    private final LongAdder promoted = new LongAdder();
+
+    public void recordAccess(String email) {
+        accessed.get().add(email);
+    }
+
+    /**
+     * @return the emails recorded since the previous call. One recorded concurrently may be missed, which only
+     * matters if the user is not read again before it goes stale
+     */
+    public Set<String> drainAccessed() {
+        return accessed.getAndSet(ConcurrentHashMap.newKeySet());
+    }
+
+    public void recordArchived(long users) {
+        archived.add(users);
+    }
+
+    public void recordPromoted() {
+        promoted.increment();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.tiering.pending.accesses", this, tiering -> tiering.accessed.get().size())
+                .description("Users read since the last access flush")
+                .register(registry);
+        FunctionCounter.builder("user.tiering.moved", archived, LongAdder::sum)
+                .tag("direction", "archived")
+                .register(registry);
+        FunctionCounter.builder("user.tiering.moved", promoted, LongAdder::sum)
+                .tag("direction", "promoted")
+                .register(registry);
+    }
+}
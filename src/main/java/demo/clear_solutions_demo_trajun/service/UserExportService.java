@@ -0,0 +1,164 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import demo.clear_solutions_demo_trajun.domain.ExportFormat;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Streams users as CSV or NDJSON straight into response {@link DataBuffer}s.
+ * Rows are grouped {@code user.export.rows-per-buffer} at a time into one buffer from the
+ * response's (pooled) factory, so memory stays bounded by the cursor batch and the write backpressure.
+ */
+@Service
+public class UserExportService {
+
+    private static final byte[] CSV_HEADER = "email,firstName,lastName,birthDate,address,phoneNumber\n"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1000};
+
+    private final UserRepository userRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectWriter userWriter;
+
+    @Value("${user.export.batch-size}")
+    private int defaultBatchSize;
+
+    @Value("${user.export.max-batch-size}")
+    private int maxBatchSize;
+
+    @Value("${user.export.rows-per-buffer}")
+    private int rowsPerBuffer;
+
+    public UserExportService(UserRepository userRepository, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.userWriter = objectMapper.writerFor(User.class).withRootValueSeparator("");
+    }
+
+    public Flux<DataBuffer> exportUsers(ExportFormat format, LocalDate fromDate, LocalDate toDate,
+                                        Integer batchSize, DataBufferFactory bufferFactory) {
+        if (fromDate != null && toDate != null && toDate.isBefore(fromDate))
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "toDate must be after fromDate"));
+
+        int cursorBatchSize = batchSize == null ? defaultBatchSize : Math.min(batchSize, maxBatchSize);
+        Flux<DataBuffer> rows = userRepository.streamAll(fromDate, toDate, cursorBatchSize)
+                .buffer(rowsPerBuffer)
+                .map(chunk -> writeChunk(format, chunk, bufferFactory));
+
+        if (format == ExportFormat.CSV)
+            return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(CSV_HEADER)), rows);
+        return rows;
+    }
+
+    private DataBuffer writeChunk(ExportFormat format, List<User> chunk, DataBufferFactory bufferFactory) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(chunk.size() * 128);
+        try {
+            if (format == ExportFormat.CSV)
+                writeCsv(buffer, chunk);
+            else
+                writeNdjson(buffer, chunk);
+            return buffer;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    private void writeNdjson(DataBuffer buffer, List<User> chunk) {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer.asOutputStream())) {
+            for (User user : chunk) {
+                userWriter.writeValue(generator, user);
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsv(DataBuffer buffer, List<User> chunk) {
+        for (User user : chunk) {
+            writeCsvField(buffer, user.getEmail());
+            buffer.write((byte) ',');
+            writeCsvField(buffer, user.getFirstName());
+            buffer.write((byte) ',');
+            writeCsvField(buffer, user.getLastName());
+            buffer.write((byte) ',');
+            writeDate(buffer, user.getBirthDate());
+            buffer.write((byte) ',');
+            writeCsvField(buffer, user.getAddress());
+            buffer.write((byte) ',');
+            writeCsvField(buffer, user.getPhoneNumber());
+            buffer.write((byte) '\n');
+        }
+    }
+
+    // RFC 4180: quote the field when it holds a separator, quote or line break and double inner quotes
+    private static void writeCsvField(DataBuffer buffer, String value) {
+        if (value == null || value.isEmpty())
+            return;
+        if (!needsQuoting(value)) {
+            buffer.write(value, StandardCharsets.UTF_8);
+            return;
+        }
+        buffer.write((byte) '"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                buffer.write(CharBuffer.wrap(value, start, i + 1), StandardCharsets.UTF_8);
+                buffer.write((byte) '"');
+                start = i + 1;
+            }
+        }
+        if (start < value.length())
+            buffer.write(CharBuffer.wrap(value, start, value.length()), StandardCharsets.UTF_8);
+        buffer.write((byte) '"');
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+                return true;
+        }
+        return false;
+    }
+
+    // dd-MM-yyyy, same as the JSON representation
+    private static void writeDate(DataBuffer buffer, LocalDate date) {
+        if (date == null)
+            return;
+        writeDigits(buffer, date.getDayOfMonth(), 2);
+        buffer.write((byte) '-');
+        writeDigits(buffer, date.getMonthValue(), 2);
+        buffer.write((byte) '-');
+        writeDigits(buffer, date.getYear(), 4);
+    }
+
+    private static void writeDigits(DataBuffer buffer, int value, int width) {
+        for (int i = width - 1; i >= 0; i--)
+            buffer.write((byte) ('0' + value / POWERS_OF_TEN[i] % 10));
+    }
+}
@@ -0,0 +1,226 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus.State;
+import demo.clear_solutions_demo_trajun.domain.User;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users from a CSV stream in the layout produced by the export
+ * ({@code email,firstName,lastName,birthDate,address,phoneNumber}, any column order).
+ * The file is decoded line by line as it arrives, rows are validated like a request body and
+ * inserted {@code user.import.chunk-size} at a time; the next chunk is not read before the
+ * previous one is written.
+ */
+@Service
+public class UserImportService {
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("email", "firstName", "lastName", "birthDate");
+
+    private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    private final StringDecoder lineDecoder = StringDecoder.textPlainOnly();
+
+    private final UserService userService;
+
+    private final Validator validator;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${user.import.chunk-size}")
+    private int chunkSize;
+
+    @Value("${user.import.max-record-length}")
+    private int maxRecordLength;
+
+    @Value("${user.import.max-reported-rejections}")
+    private int maxReportedRejections;
+
+    @Value("${user.import.retained-jobs}")
+    private int retainedJobs;
+
+    public UserImportService(UserService userService, Validator validator) {
+        this.userService = userService;
+        this.validator = validator;
+    }
+
+    public Mono<ImportJobStatus> importUsers(String fileName, Flux<DataBuffer> content) {
+        return trackImport(fileName, content).last();
+    }
+
+    /**
+     * Registers the job and emits its status right away, so the caller can hand out the job id
+     * before the file is processed, then emits the final status.
+     */
+    public Flux<ImportJobStatus> trackImport(String fileName, Flux<DataBuffer> content) {
+        return Flux.defer(() -> {
+            ImportJob job = new ImportJob(fileName, maxReportedRejections);
+            jobs.put(job.getId(), job);
+            return Flux.concat(Mono.just(job.toStatus()), process(job, content));
+        });
+    }
+
+    private Mono<ImportJobStatus> process(ImportJob job, Flux<DataBuffer> content) {
+        RowReader reader = new RowReader(new CsvRecordParser(maxRecordLength));
+
+        return lineDecoder.decode(content, STRING_TYPE, MimeTypeUtils.TEXT_PLAIN, null)
+                .mapNotNull(reader::read)
+                .filter(row -> {
+                    if (row.rejection() == null)
+                        return true;
+                    job.reject(row.number(), row.user().getEmail(), row.rejection());
+                    return false;
+                })
+                .buffer(chunkSize)
+                .concatMap(chunk -> insertChunk(job, chunk), 1)
+                .then(Mono.fromSupplier(() -> {
+                    reader.verifyComplete();
+                    return job.finish(State.COMPLETED, null);
+                }))
+                .doOnError(e -> job.finish(State.FAILED, e instanceof ResponseStatusException rse ? rse.getReason() : e.getMessage()))
+                .doOnCancel(() -> job.finish(State.CANCELLED, "Upload was cancelled"))
+                .doFinally(signal -> evictFinishedJobs());
+    }
+
+    public Mono<ImportJobStatus> getJobStatus(String jobId) {
+        return Mono.justOrEmpty(jobs.get(jobId))
+                .map(ImportJob::toStatus)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Import job " + jobId + " not found")));
+    }
+
+    public Flux<ImportJobStatus> getJobStatuses() {
+        return Flux.fromIterable(jobs.values()).map(ImportJob::toStatus);
+    }
+
+    private Mono<Void> insertChunk(ImportJob job, List<ImportRow> chunk) {
+        List<User> users = chunk.stream().map(ImportRow::user).toList();
+        return userService.insertUsers(users)
+                .index()
+                .doOnNext(outcome -> {
+                    if (outcome.getT2().isInserted())
+                        job.accept();
+                    else
+                        job.reject(chunk.get(outcome.getT1().intValue()).number(),
+                                outcome.getT2().user().getEmail(), outcome.getT2().error().getReason());
+                })
+                .then();
+    }
+
+    private void evictFinishedJobs() {
+        int excess = jobs.size() - retainedJobs;
+        if (excess <= 0)
+            return;
+        jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getFinishedAt))
+                .limit(excess)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+
+    private record ImportRow(long number, User user, String rejection) {
+    }
+
+    /**
+     * Turns decoded lines into rows: the first record is the header, blank lines are skipped.
+     */
+    private class RowReader {
+
+        private final CsvRecordParser parser;
+
+        private Map<String, Integer> columns;
+
+        private long rowNumber;
+
+        RowReader(CsvRecordParser parser) {
+            this.parser = parser;
+        }
+
+        ImportRow read(String line) {
+            List<String> record;
+            try {
+                record = parser.feed(line);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage() + " after row " + rowNumber);
+            }
+            if (record == null)
+                return null;
+            if (columns == null) {
+                columns = readHeader(record);
+                return null;
+            }
+            if (record.size() == 1 && record.get(0).isBlank())
+                return null;
+            return toRow(++rowNumber, record);
+        }
+
+        void verifyComplete() {
+            if (columns == null)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV file is empty");
+            if (parser.hasIncompleteRecord())
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "CSV file ends inside a quoted field after row " + rowNumber);
+        }
+
+        private Map<String, Integer> readHeader(List<String> header) {
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < header.size(); i++)
+                indexes.put(header.get(i).strip(), i);
+            List<String> missing = REQUIRED_COLUMNS.stream().filter(c -> !indexes.containsKey(c)).toList();
+            if (!missing.isEmpty())
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "CSV header is missing required columns " + missing);
+            return indexes;
+        }
+
+        private ImportRow toRow(long number, List<String> record) {
+            User user = new User(field(record, "email"), field(record, "firstName"), field(record, "lastName"),
+                    null, optionalField(record, "address"), optionalField(record, "phoneNumber"));
+            String birthDate = field(record, "birthDate");
+            if (!birthDate.isEmpty()) {
+                try {
+                    user.setBirthDate(LocalDate.parse(birthDate, BIRTH_DATE_FORMAT));
+                } catch (DateTimeParseException e) {
+                    return new ImportRow(number, user, "birthDate: must match dd-MM-yyyy");
+                }
+            }
+            Set<ConstraintViolation<User>> violations = validator.validate(user);
+            if (violations.isEmpty())
+                return new ImportRow(number, user, null);
+            return new ImportRow(number, user, violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+
+        private String field(List<String> record, String column) {
+            Integer index = columns.get(column);
+            return index == null || index >= record.size() ? "" : record.get(index);
+        }
+
+        private String optionalField(List<String> record, String column) {
+            String value = field(record, column);
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package demo.clear_solutions_demo_trajun.service;
+
+import demo.clear_solutions_demo_trajun.Util;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.PhoneKeys;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Objects;
+
+/**
+ * The business rules on users and their error messages, free of reactive types, so {@link UserService} and
+ * the blocking variant apply the same ones.
+ */
+public final class UserRules {
+
+    private UserRules() {
+    }
+
+    public static boolean isOldEnough(LocalDate birthDate, int minAge) {
+        return Period.between(birthDate, LocalDate.now()).getYears() > minAge;
+    }
+
+    public static UserRuleViolationException tooYoung(int minAge) {
+        return new UserRuleViolationException("User must be at least " + minAge + " years old.");
+    }
+
+    /**
+     * @throws UserRuleViolationException if the user is not older than {@code minAge}
+     */
+    public static void checkAge(LocalDate birthDate, int minAge) {
+        if (!isOldEnough(birthDate, minAge))
+            throw tooYoung(minAge);
+    }
+
+    public static boolean isValidRange(LocalDate fromDate, LocalDate toDate) {
+        return !toDate.isBefore(fromDate);
+    }
+
+    public static UserRuleViolationException invalidRange() {
+        return new UserRuleViolationException("toDate must be after fromDate");
+    }
+
+    /**
+     * An update moving the user to an email that another user already has.
+     */
+    public static UserRuleViolationException emailTaken(String email) {
+        return new UserRuleViolationException("User with email " + email + " already exists. Cannot update.");
+    }
+
+    public static UserRuleViolationException phoneTaken(String phoneNumber) {
+        return new UserRuleViolationException("Phone number " + phoneNumber + " belongs to another user.");
+    }
+
+    /**
+     * Whether a save failing with {@code e} collided with another user's phone number. An update that keeps
+     * the number does not count: the user was stored before phone keys and shares it, see
+     * {@link demo.clear_solutions_demo_trajun.repository.UserRepository#saveWithoutPhoneKey(User)}.
+     */
+    public static boolean isPhoneTaken(Throwable e, @Nullable String previousPhoneNumber, @Nullable String phoneNumber) {
+        return e instanceof DuplicateKeyException && PhoneKeys.isDuplicatePhone(e.getMessage())
+                && !(previousPhoneNumber != null
+                && Objects.equals(PhoneKeys.toKey(previousPhoneNumber), PhoneKeys.toKey(phoneNumber)));
+    }
+
+    /**
+     * Copies the fields present in {@code update} onto {@code user}; an empty {@code Optional} clears the field.
+     */
+    public static void applyUpdate(User user, UserUpdateDTO update) {
+        Util.updateFieldsFromDTO(user, update);
+    }
+}
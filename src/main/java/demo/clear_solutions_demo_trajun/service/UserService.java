@@ -1,98 +1,725 @@
 package demo.clear_solutions_demo_trajun.service;
 
-import demo.clear_solutions_demo_trajun.Util;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import demo.clear_solutions_demo_trajun.domain.PartialUser;
 import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserPage;
 import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
 import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.NameKeys;
+import demo.clear_solutions_demo_trajun.repository.PhoneKeys;
+import demo.clear_solutions_demo_trajun.repository.UserField;
+import demo.clear_solutions_demo_trajun.repository.UserFilter;
 import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.Period;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+@Slf4j
 @Service
-public class UserService {
+public class UserService implements MeterBinder {
+
+    private static final int EMAIL_SCAN_BATCH_SIZE = 10_000;
 
     private final UserRepository userRepository;
 
+    private final SingleFlight<String, User> findByIdFlight = new SingleFlight<>("findById");
+
+    private final SingleFlight<DateRange, User> searchFlight = new SingleFlight<>("search");
+
+    // Batched creates are still single writes to their callers
+    private final CreateBatcher createBatcher = new CreateBatcher(users -> insertUsers(users, this.singleWriteDurability));
+
+    private final EmailFilter emailFilter = new EmailFilter();
+
+    private final SearchCache searchCache = new SearchCache(System::nanoTime);
+
+    private final AuditLog auditLog = new AuditLog();
+
+    private final Tiering tiering = new Tiering();
+
+    private Disposable emailFilterRebuilds;
+
+    private Disposable accessFlushes;
+
+    private Disposable archiveRuns;
+
     @Value("${user.minAge}")
     private int minAge;
 
+    @Value("${user.deadline.enabled}")
+    private boolean deadlineEnabled;
+
+    @Value("${user.deadline.read}")
+    private Duration readDeadline;
+
+    @Value("${user.deadline.search}")
+    private Duration searchDeadline;
+
+    @Value("${user.create.batching.enabled}")
+    private boolean createBatchingEnabled;
+
+    @Value("${user.create.batching.max-batch-size}")
+    private int createBatchMaxSize;
+
+    @Value("${user.create.batching.window}")
+    private Duration createBatchWindow;
+
+    @Value("${user.create.batching.concurrency}")
+    private int createBatchConcurrency;
+
+    @Value("${user.search.cache.enabled}")
+    private boolean searchCacheEnabled;
+
+    @Value("${user.search.cache.max-users}")
+    private long searchCacheMaxUsers;
+
+    @Value("${user.search.cache.max-entry-users}")
+    private int searchCacheMaxEntryUsers;
+
+    @Value("${user.search.cache.ttl}")
+    private Duration searchCacheTtl;
+
+    @Value("${user.email-filter.enabled}")
+    private boolean emailFilterEnabled;
+
+    @Value("${user.email-filter.expected-users}")
+    private long emailFilterExpectedUsers;
+
+    @Value("${user.email-filter.false-positive-rate}")
+    private double emailFilterFalsePositiveRate;
+
+    @Value("${user.email-filter.rebuild-interval}")
+    private Duration emailFilterRebuildInterval;
+
+    @Value("${user.durability.single-write}")
+    private WriteDurability singleWriteDurability;
+
+    @Value("${user.durability.bulk-import}")
+    private WriteDurability bulkImportDurability;
+
+    @Value("${user.durability.bulk-update}")
+    private WriteDurability bulkUpdateDurability;
+
+    @Value("${user.durability.delete}")
+    private WriteDurability deleteDurability;
+
+    @Value("${user.search.filter.max-collection-scan}")
+    private long filterMaxCollectionScan;
+
+    @Value("${user.audit.enabled}")
+    private boolean auditEnabled;
+
+    @Value("${user.audit.directory}")
+    private String auditDirectory;
+
+    @Value("${user.audit.segment-size}")
+    private DataSize auditSegmentSize;
+
+    @Value("${user.audit.fsync-interval}")
+    private Duration auditFsyncInterval;
+
+    @Value("${user.audit.queue-capacity}")
+    private int auditQueueCapacity;
+
+    @Value("${user.tiering.enabled}")
+    private boolean tieringEnabled;
+
+    @Value("${user.tiering.stale-after}")
+    private Duration tieringStaleAfter;
+
+    @Value("${user.tiering.archive-interval}")
+    private Duration tieringArchiveInterval;
+
+    @Value("${user.tiering.access-flush-interval}")
+    private Duration tieringAccessFlushInterval;
+
+    @Value("${user.tiering.archive-batch-size}")
+    private int tieringArchiveBatchSize;
+
     public UserService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
+    // Coalesced calls run without their callers' deadlines, these keep MongoDB bounding them
+    @PostConstruct
+    void boundSharedCalls() {
+        if (deadlineEnabled) {
+            findByIdFlight.setSharedTimeout(readDeadline);
+            searchFlight.setSharedTimeout(searchDeadline);
+        }
+    }
+
+    @PostConstruct
+    void startCreateBatching() {
+        if (createBatchingEnabled)
+            createBatcher.start(createBatchMaxSize, createBatchWindow, createBatchConcurrency);
+    }
+
+    @PreDestroy
+    void stopCreateBatching() {
+        if (createBatchingEnabled)
+            createBatcher.stop();
+    }
+
+    @PostConstruct
+    void startAuditLog() {
+        if (!auditEnabled)
+            return;
+        if (auditDirectory.isBlank())
+            throw new IllegalStateException("user.audit.directory is required when the audit log is enabled");
+        auditLog.start(Path.of(auditDirectory), auditSegmentSize.toBytes(), auditFsyncInterval, auditQueueCapacity);
+    }
+
+    @PreDestroy
+    void stopAuditLog() {
+        auditLog.stop();
+    }
+
+    @PostConstruct
+    void configureSearchCache() {
+        if (searchCacheEnabled)
+            searchCache.configure(searchCacheMaxUsers, searchCacheMaxEntryUsers, searchCacheTtl);
+    }
+
+    /**
+     * Builds the email filter in the background once the application is up, then rebuilds it every
+     * {@code user.email-filter.rebuild-interval}. A failed build leaves the previous filter in place.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startEmailFilter() {
+        if (!emailFilterEnabled)
+            return;
+        emailFilterRebuilds = Flux.interval(Duration.ZERO, emailFilterRebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuildEmailFilter()
+                        .onErrorResume(e -> {
+                            log.warn("Email filter rebuild failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stopEmailFilter() {
+        if (emailFilterRebuilds != null)
+            emailFilterRebuilds.dispose();
+    }
+
+    /**
+     * Writes the last access of read users every {@code user.tiering.access-flush-interval}, and moves users
+     * neither read nor written for {@code user.tiering.stale-after} to the archive every
+     * {@code user.tiering.archive-interval}, starting now. Failed runs are logged and retried on the next tick.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startTiering() {
+        if (!tieringEnabled)
+            return;
+        accessFlushes = Flux.interval(tieringAccessFlushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flushAccesses()
+                        .onErrorResume(e -> {
+                            log.warn("User access flush failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        archiveRuns = Flux.interval(Duration.ZERO, tieringArchiveInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> archiveStaleUsers()
+                        .onErrorResume(e -> {
+                            log.warn("Archiving stale users failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stopTiering() {
+        if (accessFlushes != null)
+            accessFlushes.dispose();
+        if (archiveRuns != null)
+            archiveRuns.dispose();
+    }
+
+    public Mono<Long> flushAccesses() {
+        Set<String> accessed = tiering.drainAccessed();
+        if (accessed.isEmpty())
+            return Mono.just(0L);
+        return userRepository.recordAccess(accessed, LocalDate.now());
+    }
+
+    /**
+     * Archived users leave the cached search results, as if they had been deleted.
+     */
+    public Mono<Long> archiveStaleUsers() {
+        LocalDate cutoff = LocalDate.now().minusDays(tieringStaleAfter.toDays());
+        return userRepository.archiveStale(cutoff, tieringArchiveBatchSize)
+                .doOnNext(archived -> {
+                    if (archived > 0) {
+                        tiering.recordArchived(archived);
+                        searchCache.invalidateAll();
+                        log.info("Archived {} users not accessed since {}", archived, cutoff);
+                    }
+                });
+    }
+
+    /**
+     * Sized for 1.5 times the current number of users, so the filter holds its false positive
+     * rate while users are added until the next rebuild.
+     */
+    public Mono<Void> rebuildEmailFilter() {
+        return userRepository.estimatedCount()
+                .flatMap(count -> emailFilter.rebuild(Math.max(emailFilterExpectedUsers, count + count / 2),
+                        emailFilterFalsePositiveRate, userRepository.streamIds(EMAIL_SCAN_BATCH_SIZE)));
+    }
+
+    /**
+     * Concurrent lookups of the same email share one repository call. Returned users may be shared
+     * between callers, so write paths load their own copy through the repository.
+     */
     public Mono<User> findUserById(String email) {
-        return userRepository.findById(email);
+        if (!mightExist(email))
+            return Mono.empty();
+        return findByIdFlight.mono(email, this::findPossiblyExisting);
+    }
+
+    /**
+     * {@link #findUserById(String)} returning only the comma separated {@code fields}, which are all that is
+     * read from MongoDB.
+     */
+    public Mono<PartialUser> findUserById(String email, String fields) {
+        Set<UserField> projection;
+        try {
+            projection = parseFields(fields);
+        } catch (UserRuleViolationException e) {
+            return Mono.error(e);
+        }
+        if (!mightExist(email))
+            return Mono.empty();
+        return userRepository.findById(email, projection)
+                .doOnNext(user -> {
+                    if (tieringEnabled)
+                        tiering.recordAccess(email);
+                })
+                .switchIfEmpty(Mono.defer(() -> promoteArchived(email)))
+                .switchIfEmpty(Mono.fromRunnable(emailFilter::recordFalsePositive))
+                .map(user -> partial(user, projection));
     }
 
+    /**
+     * With {@code user.create.batching.enabled} the user is written together with concurrent creates
+     * in one bulk insert, relying on the duplicate key error instead of a lookup beforehand. The same
+     * applies when the email filter rules the email out.
+     */
     public Mono<User> createUser(User user) {
 
         if (!isUserOldEnough(user.getBirthDate()))
-            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "User must be at least " + minAge + " years old."));
-
-        return findUserById(user.getId())
-                .flatMap(existingUser -> Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                        "User with id " + existingUser.getId() + " already exists."))
-                )
-                .switchIfEmpty(userRepository.save(user))
+            return Mono.error(UserRules.tooYoung(minAge));
+
+        if (createBatchingEnabled)
+            return createBatcher.create(user);
+
+        if (!mightExist(user.getId()))
+            return insertUser(user, () -> UserRuleViolationException.alreadyExists(user.getId()));
+
+        return findPossiblyExisting(user.getId())
+                .flatMap(existingUser -> Mono.error(UserRuleViolationException.alreadyExists(existingUser.getId())))
+                .switchIfEmpty(Mono.defer(() -> updateUser(user)))
                 .cast(User.class);
     }
 
+    /**
+     * Bulk counterpart of {@link #createUser(User)}: applies the same age rule, then inserts the
+     * eligible users in one unordered write. Emits one outcome per input user, in input order.
+     */
+    public Flux<InsertOutcome> insertUsers(List<User> users) {
+        return insertUsers(users, bulkImportDurability);
+    }
+
+    private Flux<InsertOutcome> insertUsers(List<User> users, @Nullable WriteDurability durability) {
+        InsertOutcome[] outcomes = new InsertOutcome[users.size()];
+        List<User> eligible = new ArrayList<>(users.size());
+        List<Integer> eligibleIndexes = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (isUserOldEnough(user.getBirthDate())) {
+                eligible.add(user);
+                eligibleIndexes.add(i);
+            } else
+                outcomes[i] = new InsertOutcome(user, UserRules.tooYoung(minAge));
+        }
+        if (eligible.isEmpty())
+            return Flux.fromArray(outcomes);
+
+        return userRepository.insertUnordered(eligible)
+                .contextWrite(WriteDurability.byDefault(durability))
+                .flatMapMany(errors -> {
+                    for (int i = 0; i < eligible.size(); i++)
+                        outcomes[eligibleIndexes.get(i)] = new InsertOutcome(eligible.get(i), null);
+                    for (BulkWriteError error : errors) {
+                        User user = eligible.get(error.getIndex());
+                        outcomes[eligibleIndexes.get(error.getIndex())] = new InsertOutcome(user, toStatusException(user, error));
+                    }
+                    for (InsertOutcome outcome : outcomes)
+                        if (outcome.isInserted())
+                            written(outcome.user(), null);
+                    return Flux.fromArray(outcomes);
+                });
+    }
+
+    private static ResponseStatusException toStatusException(User user, BulkWriteError error) {
+        if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY)
+            return PhoneKeys.isDuplicatePhone(error.getMessage())
+                    ? UserRules.phoneTaken(user.getPhoneNumber()) : UserRuleViolationException.alreadyExists(user.getId());
+        return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, error.getMessage());
+    }
+
     public Mono<User> updateUser(User user) {
-        return userRepository.save(user);
+        return saveUser(user, null, null);
+    }
+
+    /**
+     * @param previousPhoneNumber number of the user being updated; a duplicate phone key is not a conflict while it
+     *                            stays the same, see {@link UserRepository#saveWithoutPhoneKey(User)}
+     */
+    private Mono<User> saveUser(User user, @Nullable LocalDate previousBirthDate, @Nullable String previousPhoneNumber) {
+        return userRepository.save(user)
+                .onErrorMap(e -> UserRules.isPhoneTaken(e, previousPhoneNumber, user.getPhoneNumber()),
+                        e -> UserRules.phoneTaken(user.getPhoneNumber()))
+                // Any duplicate phone left kept its number: a user stored before phone keys, which stays unindexed
+                .onErrorResume(e -> e instanceof DuplicateKeyException && PhoneKeys.isDuplicatePhone(e.getMessage()),
+                        e -> userRepository.saveWithoutPhoneKey(user))
+                .contextWrite(WriteDurability.byDefault(singleWriteDurability))
+                .doOnNext(saved -> written(saved, previousBirthDate));
     }
 
     public Mono<User> fullyUpdateUser(String userId, User user) {
-        return findUserById(userId)
+        return findExisting(userId)
                 .flatMap(u -> {
                     if (!isUserOldEnough(user.getBirthDate()))
-                        return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                "User must be at least " + minAge + " years old."));
+                        return Mono.error(UserRules.tooYoung(minAge));
                     if (userId.equals(user.getId()))
-                        return updateUser(user);
-                    else
-                        return findUserById(user.getId())
-                                .flatMap(ex -> Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                                        "User with email " + user.getId() + " already exists. Cannot update.")))
-                                .switchIfEmpty(updateUser(user))
-                                .cast(User.class);
-                }).switchIfEmpty(Mono.error(UserNotFoundException.fromId(userId)));
+                        return saveUser(user, u.getBirthDate(), u.getPhoneNumber());
+                    if (!mightExist(user.getId()))
+                        return insertUser(user, () -> UserRules.emailTaken(user.getId()));
+                    return findPossiblyExisting(user.getId())
+                            .flatMap(ex -> Mono.error(UserRules.emailTaken(user.getId())))
+                            .switchIfEmpty(Mono.defer(() -> updateUser(user)))
+                            .cast(User.class);
+                }).switchIfEmpty(Mono.error(() -> UserNotFoundException.fromId(userId)));
     }
 
     public Mono<User> updateUserFields(String userId, UserUpdateDTO updateDTO) {
-        return findUserById(userId)
+        return findExisting(userId)
                 .flatMap(existingUser -> {
-                    Util.updateFieldsFromDTO(existingUser, updateDTO);
+                    LocalDate previousBirthDate = existingUser.getBirthDate();
+                    String previousPhoneNumber = existingUser.getPhoneNumber();
+                    UserRules.applyUpdate(existingUser, updateDTO);
                     if (isUserOldEnough(existingUser.getBirthDate()))
-                        return updateUser(existingUser);
-                    else return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                            "User must be at least " + minAge + " years old."));
+                        return saveUser(existingUser, previousBirthDate, previousPhoneNumber);
+                    else return Mono.error(UserRules.tooYoung(minAge));
                 })
-                .switchIfEmpty(Mono.error(UserNotFoundException.fromId(userId)));
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.fromId(userId)));
     }
 
     public Mono<Void> deleteUser(String userId) {
-        return findUserById(userId)
-                .switchIfEmpty(Mono.error(UserNotFoundException.fromId(userId)))
-                .flatMap(u -> userRepository.deleteById(userId));
+        return findExisting(userId)
+                .switchIfEmpty(Mono.error(() -> UserNotFoundException.fromId(userId)))
+                .flatMap(u -> userRepository.deleteById(userId)
+                        .contextWrite(WriteDurability.byDefault(deleteDurability))
+                        .doOnSuccess(deleted -> {
+                            searchCache.invalidate(u.getBirthDate());
+                            auditLog.record(AuditEvent.Type.DELETE, u);
+                        }));
     }
 
+    /**
+     * Served from the {@link SearchCache} when the range was loaded before and no write has touched it
+     * since; otherwise concurrent searches for the same range share one query, which fills the cache.
+     */
     public Flux<User> findUsersByBirthDateRange(LocalDate fromDate, LocalDate toDate) {
-        if (toDate.isBefore(fromDate))
-            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "toDate must be after fromDate"));
-        return userRepository.findByBirthDateBetween(fromDate, toDate);
+        if (!UserRules.isValidRange(fromDate, toDate))
+            return Flux.error(UserRules.invalidRange());
+        List<User> cached = searchCache.get(fromDate, toDate);
+        if (cached != null)
+            return Flux.fromIterable(cached);
+        return searchFlight.flux(new DateRange(fromDate, toDate), range -> searchCache.load(range.from(), range.to(),
+                userRepository.findByBirthDateBetween(range.from(), range.to())));
+    }
+
+    /**
+     * {@link #findUsersByBirthDateRange(LocalDate, LocalDate)} together with the archived users in the range, in
+     * birth date order. Archived users are read, not promoted.
+     */
+    public Flux<User> findUsersByBirthDateRangeIncludingArchived(LocalDate fromDate, LocalDate toDate) {
+        if (!tieringEnabled || toDate.isBefore(fromDate))
+            return findUsersByBirthDateRange(fromDate, toDate);
+        return Flux.mergeComparing(Comparator.comparing(User::getBirthDate),
+                findUsersByBirthDateRange(fromDate, toDate),
+                userRepository.findArchivedByBirthDateBetween(fromDate, toDate));
+    }
+
+    /**
+     * {@link #findUsersByBirthDateRange(LocalDate, LocalDate)} returning only the comma separated {@code fields}.
+     * A range in the {@link SearchCache} is served from there; otherwise only those fields are read from
+     * MongoDB, and the result is not cached. Archived users are not included, unlike with
+     * {@link #findUsersByBirthDateRangeIncludingArchived}.
+     */
+    public Flux<PartialUser> findUsersByBirthDateRange(LocalDate fromDate, LocalDate toDate, String fields) {
+        if (!UserRules.isValidRange(fromDate, toDate))
+            return Flux.error(UserRules.invalidRange());
+        Set<UserField> projection;
+        try {
+            projection = parseFields(fields);
+        } catch (UserRuleViolationException e) {
+            return Flux.error(e);
+        }
+        List<User> cached = searchCache.get(fromDate, toDate);
+        Flux<User> users = cached != null ? Flux.fromIterable(cached)
+                : userRepository.findByBirthDateBetween(fromDate, toDate, projection);
+        return users.map(user -> partial(user, projection));
+    }
+
+    private static Set<UserField> parseFields(String fields) {
+        Set<UserField> projection = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(",")) {
+            UserField field = UserField.of(name.strip());
+            if (field == null)
+                throw new UserRuleViolationException("Unknown field " + name.strip()
+                        + ", fields are email, firstName, lastName, birthDate, address and phoneNumber");
+            projection.add(field);
+        }
+        return projection;
+    }
+
+    private static PartialUser partial(User user, Set<UserField> fields) {
+        return new PartialUser(
+                fields.contains(UserField.EMAIL) ? user.getEmail() : null,
+                fields.contains(UserField.FIRST_NAME) ? user.getFirstName() : null,
+                fields.contains(UserField.LAST_NAME) ? user.getLastName() : null,
+                fields.contains(UserField.BIRTH_DATE) ? user.getBirthDate() : null,
+                fields.contains(UserField.ADDRESS) ? user.getAddress() : null,
+                fields.contains(UserField.PHONE_NUMBER) ? user.getPhoneNumber() : null);
+    }
+
+    /**
+     * Case- and accent-insensitive prefix search on last and/or first name, optionally within a birth date
+     * range, in name order. Pages are chained by the opaque {@code after} token of the previous page.
+     * Archived users are not searched; a lookup by email or phone brings them back.
+     */
+    public Mono<UserPage> findUsersByNamePrefix(@Nullable String lastName, @Nullable String firstName,
+                                                @Nullable LocalDate fromDate, @Nullable LocalDate toDate,
+                                                int limit, @Nullable String after) {
+        String lastNamePrefix = namePrefix(lastName);
+        String firstNamePrefix = namePrefix(firstName);
+        if (lastNamePrefix == null && firstNamePrefix == null)
+            return Mono.error(new UserRuleViolationException("lastName or firstName is required"));
+        if (fromDate != null && toDate != null && toDate.isBefore(fromDate))
+            return Mono.error(UserRules.invalidRange());
+        String afterKey;
+        try {
+            afterKey = after == null ? null : new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new UserRuleViolationException("Invalid page token"));
+        }
+
+        return userRepository.findByNamePrefix(lastNamePrefix, firstNamePrefix, fromDate, toDate, afterKey, limit)
+                .collectList()
+                .map(users -> {
+                    if (users.size() < limit)
+                        return new UserPage(users, null);
+                    User last = users.get(users.size() - 1);
+                    String key = lastNamePrefix != null ? NameKeys.lastFirstKey(last) : NameKeys.firstLastKey(last);
+                    return new UserPage(users,
+                            Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8)));
+                });
+    }
+
+    /**
+     * Users matching all given criteria, {@code limit} at most, in the order named by {@code sort}
+     * ({@code birthDate} or {@code email}, {@code -} first for descending). A search that no index narrows down
+     * reads every user, so it is rejected once there are more than {@code user.search.filter.max-collection-scan}.
+     * Archived users are not searched; a lookup by email or phone brings them back.
+     */
+    public Flux<User> searchUsers(@Nullable LocalDate fromDate, @Nullable LocalDate toDate,
+                                  @Nullable String lastName, @Nullable String firstName,
+                                  @Nullable String address, @Nullable Boolean hasPhone, String sort, int limit) {
+        UserFilter.Order order = UserFilter.Order.of(sort);
+        if (order == null)
+            return Flux.error(new UserRuleViolationException("sort must be birthDate, -birthDate, email or -email"));
+        if (fromDate != null && toDate != null && toDate.isBefore(fromDate))
+            return Flux.error(UserRules.invalidRange());
+        UserFilter filter = new UserFilter(fromDate, toDate, namePrefix(lastName), namePrefix(firstName),
+                address == null || address.isBlank() ? null : address.strip(), hasPhone, order, limit);
+        if (!filter.plan().collectionScan())
+            return userRepository.findByFilter(filter);
+        return userRepository.estimatedCount()
+                .flatMapMany(count -> count > filterMaxCollectionScan
+                        ? Flux.error(new UserRuleViolationException("Too many users to search by address or phone "
+                        + "alone, add a name or birth date range"))
+                        : userRepository.findByFilter(filter));
+    }
+
+    /**
+     * Lookup by phone number on the phone key index. A number no current user has is looked up among the
+     * archived users, and the one found is promoted like on a lookup by email.
+     */
+    public Mono<User> findUserByPhoneNumber(String phoneNumber) {
+        Long phoneKey = PhoneKeys.toKey(phoneNumber);
+        if (phoneKey == null)
+            return Mono.error(new UserRuleViolationException("Invalid phone number " + phoneNumber));
+        return userRepository.findByPhoneKey(phoneKey)
+                .doOnNext(this::accessed)
+                .switchIfEmpty(Mono.defer(() -> !tieringEnabled ? Mono.empty()
+                        : userRepository.findArchivedByPhoneKeys(List.of(phoneKey)).next()
+                        .flatMap(archived -> promoteArchived(archived.getEmail()))));
+    }
+
+    /**
+     * Resolves many phone numbers in one query, and the numbers it did not find in a second one on the archived
+     * users, which are not promoted. Unknown numbers are skipped, so callers match the returned users by their
+     * phone number; the order is unspecified.
+     */
+    public Flux<User> findUsersByPhoneNumbers(List<String> phoneNumbers) {
+        Set<Long> phoneKeys = new HashSet<>(phoneNumbers.size() * 2);
+        for (String phoneNumber : phoneNumbers) {
+            Long phoneKey = PhoneKeys.toKey(phoneNumber);
+            if (phoneKey == null)
+                return Flux.error(new UserRuleViolationException("Invalid phone number " + phoneNumber));
+            phoneKeys.add(phoneKey);
+        }
+        if (phoneKeys.isEmpty())
+            return Flux.empty();
+        if (!tieringEnabled)
+            return userRepository.findByPhoneKeys(phoneKeys);
+        // Numbers no current user has are looked up among the archived users, which are returned as they are
+        Set<Long> missing = ConcurrentHashMap.newKeySet();
+        missing.addAll(phoneKeys);
+        return userRepository.findByPhoneKeys(phoneKeys)
+                .doOnNext(user -> missing.remove(PhoneKeys.toKey(user.getPhoneNumber())))
+                .concatWith(Flux.defer(() -> missing.isEmpty() ? Flux.empty()
+                        : userRepository.findArchivedByPhoneKeys(missing)));
+    }
+
+    @Nullable
+    private static String namePrefix(@Nullable String name) {
+        String prefix = NameKeys.normalize(name);
+        return prefix.isEmpty() ? null : prefix;
+    }
+
+    /**
+     * Repository lookup unless the email filter rules the email out.
+     */
+    private Mono<User> findExisting(String email) {
+        if (!mightExist(email))
+            return Mono.empty();
+        return findPossiblyExisting(email);
+    }
+
+    // Only a filter that is enabled rules emails out; a disabled one is never consulted, even once built
+    private boolean mightExist(String email) {
+        return !emailFilterEnabled || emailFilter.mightContain(email);
+    }
+
+    // For emails the filter did not rule out, so a miss counts as a false positive
+    private Mono<User> findPossiblyExisting(String email) {
+        return userRepository.findById(email)
+                .doOnNext(this::accessed)
+                .switchIfEmpty(Mono.defer(() -> promoteArchived(email)))
+                .switchIfEmpty(Mono.fromRunnable(emailFilter::recordFalsePositive));
+    }
+
+    // An archived user that is looked up moves back to the hot collection, stamped as read today
+    private Mono<User> promoteArchived(String email) {
+        if (!tieringEnabled)
+            return Mono.empty();
+        return userRepository.promoteArchived(email)
+                .doOnNext(promoted -> {
+                    tiering.recordPromoted();
+                    searchCache.invalidate(promoted.getBirthDate());
+                });
+    }
+
+    private void accessed(User user) {
+        if (tieringEnabled)
+            tiering.recordAccess(user.getEmail());
+    }
+
+    // Used when the filter ruled the email out: the unique id still rejects users it has not seen yet
+    private Mono<User> insertUser(User user, Supplier<UserRuleViolationException> duplicate) {
+        return userRepository.insert(user)
+                .contextWrite(WriteDurability.byDefault(singleWriteDurability))
+                .onErrorMap(DuplicateKeyException.class, e -> UserRules.isPhoneTaken(e, null, user.getPhoneNumber())
+                        ? UserRules.phoneTaken(user.getPhoneNumber()) : duplicate.get())
+                .doOnNext(saved -> written(saved, null));
+    }
+
+    // Every successful write goes through here so the email filter, the search cache and the audit log stay
+    // current. Only updates of an existing user know its previous birth date
+    private void written(User user, @Nullable LocalDate previousBirthDate) {
+        emailFilter.add(user.getId());
+        searchCache.invalidate(previousBirthDate);
+        searchCache.invalidate(user.getBirthDate());
+        auditLog.record(previousBirthDate == null ? AuditEvent.Type.CREATE : AuditEvent.Type.UPDATE, user);
+    }
+
+    /**
+     * Runs the single creates of a bulk create stream with {@code user.durability.bulk-import}.
+     */
+    public <T> Flux<T> withBulkImportDurability(Flux<T> creates) {
+        return creates.contextWrite(WriteDurability.byDefault(bulkImportDurability));
+    }
+
+    /**
+     * Runs the single updates of a bulk update stream with {@code user.durability.bulk-update}.
+     */
+    public <T> Flux<T> withBulkUpdateDurability(Flux<T> updates) {
+        return updates.contextWrite(WriteDurability.byDefault(bulkUpdateDurability));
     }
 
     public boolean isUserOldEnough(LocalDate birthDate) {
-        return Period.between(birthDate, LocalDate.now()).getYears() > minAge;
+        return UserRules.isOldEnough(birthDate, minAge);
     }
-}
 
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        findByIdFlight.bindTo(registry);
+        searchFlight.bindTo(registry);
+        createBatcher.bindTo(registry);
+        emailFilter.bindTo(registry);
+        searchCache.bindTo(registry);
+        auditLog.bindTo(registry);
+        tiering.bindTo(registry);
+    }
+}
@@ -0,0 +1,60 @@
+package demo.clear_solutions_demo_trajun.mvc;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Past;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RequiredArgsConstructor
+@RestController
+@Profile("mvc")
+@Validated
+@RequestMapping("/api/users")
+public class BlockingUserController {
+
+    private final BlockingUserService userService;
+
+    @GetMapping("/{email}")
+    public User findUserById(@PathVariable String email) throws UserNotFoundException {
+        return userService.findUserById(email);
+    }
+
+    @PostMapping
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public User createUser(@Valid @RequestBody User user) {
+        return userService.createUser(user);
+    }
+
+    @PatchMapping("/{email}")
+    public User updateUserFields(@PathVariable String email, @Valid @RequestBody UserUpdateDTO userUpdateDTO)
+            throws UserNotFoundException {
+        return userService.updateUserFields(email, userUpdateDTO);
+    }
+
+    @PutMapping("/{email}")
+    public User updateUser(@PathVariable String email, @Valid @RequestBody User user) throws UserNotFoundException {
+        return userService.fullyUpdateUser(email, user);
+    }
+
+    @DeleteMapping("/{email}")
+    @ResponseStatus(code = HttpStatus.NO_CONTENT)
+    public void deleteUser(@PathVariable String email) throws UserNotFoundException {
+        userService.deleteUser(email);
+    }
+
+    @GetMapping("/search")
+    public List<User> findUsersByBirthDateRange(@DateTimeFormat(pattern = "dd-MM-yyyy") @RequestParam LocalDate fromDate,
+                                                @DateTimeFormat(pattern = "dd-MM-yyyy") @Past @RequestParam LocalDate toDate) {
+        return userService.findUsersByBirthDateRange(fromDate, toDate);
+    }
+}
@@ -0,0 +1,11 @@
+package demo.clear_solutions_demo_trajun.mvc;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BlockingUserRepository extends MongoRepository<User, String> {
+    List<User> findByBirthDateBetween(LocalDate fromDate, LocalDate toDate);
+}
@@ -0,0 +1,97 @@
+package demo.clear_solutions_demo_trajun.mvc;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.PhoneKeys;
+import demo.clear_solutions_demo_trajun.repository.UserDocumentConverters;
+import demo.clear_solutions_demo_trajun.service.UserRules;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Blocking mirror of {@link UserService}: same {@link UserRules} and error messages, one thread per request.
+ */
+@Service
+@Profile("mvc")
+public class BlockingUserService {
+
+    private final BlockingUserRepository userRepository;
+
+    private final MongoOperations mongoOperations;
+
+    @Value("${user.minAge}")
+    private int minAge;
+
+    public BlockingUserService(BlockingUserRepository userRepository, MongoOperations mongoOperations) {
+        this.userRepository = userRepository;
+        this.mongoOperations = mongoOperations;
+    }
+
+    public User findUserById(String email) throws UserNotFoundException {
+        return userRepository.findById(email)
+                .orElseThrow(() -> UserNotFoundException.fromId(email));
+    }
+
+    public User createUser(User user) {
+        UserRules.checkAge(user.getBirthDate(), minAge);
+        if (userRepository.existsById(user.getId()))
+            throw UserRuleViolationException.alreadyExists(user.getId());
+        return save(user, null);
+    }
+
+    public User fullyUpdateUser(String userId, User user) throws UserNotFoundException {
+        User existingUser = findUserById(userId);
+        UserRules.checkAge(user.getBirthDate(), minAge);
+        if (userId.equals(user.getId()))
+            return save(user, existingUser.getPhoneNumber());
+        if (userRepository.existsById(user.getId()))
+            throw UserRules.emailTaken(user.getId());
+        return save(user, null);
+    }
+
+    public User updateUserFields(String userId, UserUpdateDTO updateDTO) throws UserNotFoundException {
+        User existingUser = findUserById(userId);
+        String previousPhoneNumber = existingUser.getPhoneNumber();
+        UserRules.applyUpdate(existingUser, updateDTO);
+        UserRules.checkAge(existingUser.getBirthDate(), minAge);
+        return save(existingUser, previousPhoneNumber);
+    }
+
+    public void deleteUser(String userId) throws UserNotFoundException {
+        findUserById(userId);
+        userRepository.deleteById(userId);
+    }
+
+    public List<User> findUsersByBirthDateRange(LocalDate fromDate, LocalDate toDate) {
+        if (!UserRules.isValidRange(fromDate, toDate))
+            throw UserRules.invalidRange();
+        return userRepository.findByBirthDateBetween(fromDate, toDate);
+    }
+
+    private User save(User user, @Nullable String previousPhoneNumber) {
+        try {
+            return userRepository.save(user);
+        } catch (DuplicateKeyException e) {
+            if (UserRules.isPhoneTaken(e, previousPhoneNumber, user.getPhoneNumber()))
+                throw UserRules.phoneTaken(user.getPhoneNumber());
+            if (!PhoneKeys.isDuplicatePhone(e.getMessage()))
+                throw e;
+            // Kept its number: a user stored before phone keys, which stays unindexed
+            Document document = UserDocumentConverters.UserWriteConverter.INSTANCE.convert(user);
+            document.remove(PhoneKeys.PHONE_KEY);
+            mongoOperations.save(document, mongoOperations.getCollectionName(User.class));
+            return user;
+        }
+    }
+}
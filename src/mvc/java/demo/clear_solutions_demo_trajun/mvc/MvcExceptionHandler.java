@@ -0,0 +1,30 @@
+package demo.clear_solutions_demo_trajun.mvc;
+
+import demo.clear_solutions_demo_trajun.exception.ApiErrorDetail;
+import demo.clear_solutions_demo_trajun.exception.ApiFieldErrorDetail;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+import java.util.List;
+
+/**
+ * Servlet counterpart of the WebFlux {@code RestResponseEntityExceptionHandler}, same field error body.
+ */
+@RestControllerAdvice
+@Profile("mvc")
+public class MvcExceptionHandler extends ResponseEntityExceptionHandler {
+    @Override
+    protected ResponseEntity<Object> handleMethodArgumentNotValid(
+            MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
+        List<ApiFieldErrorDetail> errorList = ex.getBindingResult().getFieldErrors()
+                .stream().map(fe -> new ApiFieldErrorDetail(fe.getField(), fe.getObjectName(), fe.getDefaultMessage()))
+                .toList();
+        return handleExceptionInternal(ex, new ApiErrorDetail(ex.getBody(), errorList), headers, status, request);
+    }
+}
@@ -0,0 +1,26 @@
+package demo.clear_solutions_demo_trajun.mvc;
+
+import demo.clear_solutions_demo_trajun.configuration.MongoConfiguration;
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Blocking Spring MVC variant of the user API running on virtual threads, built with {@code -Pmvc}.
+ * Serves the same endpoints as the WebFlux application for side-by-side comparison.
+ */
+@SpringBootApplication
+@Profile("mvc")
+@EntityScan(basePackageClasses = User.class)
+@Import(MongoConfiguration.class)
+public class MvcUserApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(MvcUserApplication.class);
+        application.setAdditionalProfiles("mvc");
+        application.run(args);
+    }
+}
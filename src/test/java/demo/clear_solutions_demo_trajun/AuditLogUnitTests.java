@@ -0,0 +1,166 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.service.AuditEvent;
+import demo.clear_solutions_demo_trajun.service.AuditLog;
+import demo.clear_solutions_demo_trajun.service.AuditLogReader;
+import demo.clear_solutions_demo_trajun.service.RingBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.named;
+
+public class AuditLogUnitTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ring_buffer_hands_every_element_to_the_consumer_once() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(1000);
+        Assertions.assertEquals(1024, buffer.capacity());
+        int producers = 4;
+        int perProducer = 50_000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            Thread.ofPlatform().start(() -> {
+                for (int i = first; i < first + perProducer; i++)
+                    while (!buffer.offer(i))
+                        Thread.onSpinWait();
+                done.countDown();
+            });
+        }
+
+        boolean[] seen = new boolean[producers * perProducer];
+        int received = 0;
+        while (received < seen.length) {
+            Integer element = buffer.poll();
+            if (element == null)
+                continue;
+            Assertions.assertFalse(seen[element], "received twice: " + element);
+            seen[element] = true;
+            received++;
+        }
+        done.await();
+        Assertions.assertNull(buffer.poll());
+        Assertions.assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void full_ring_buffer_rejects_instead_of_waiting() {
+        RingBuffer<String> buffer = new RingBuffer<>(2);
+
+        Assertions.assertTrue(buffer.offer("a"));
+        Assertions.assertTrue(buffer.offer("b"));
+        Assertions.assertFalse(buffer.offer("c"));
+        Assertions.assertEquals("a", buffer.poll());
+        Assertions.assertTrue(buffer.offer("c"));
+        Assertions.assertEquals(2, buffer.size());
+    }
+
+    @Test
+    void events_are_read_back_in_order_across_segments() throws IOException {
+        AuditLog auditLog = new AuditLog();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        auditLog.bindTo(registry);
+        auditLog.start(directory, 256, Duration.ofMillis(10), 1024);
+        for (int i = 0; i < 20; i++)
+            auditLog.record(AuditEvent.Type.CREATE, named("user" + i + "@example.com", "Name" + i, "Doe"));
+        auditLog.record(AuditEvent.Type.UPDATE, named("user1@example.com", "Renamed", "Doe"));
+        auditLog.record(AuditEvent.Type.DELETE, named("user2@example.com", "Name2", "Doe"));
+        auditLog.stop();
+
+        List<AuditEvent> events = new ArrayList<>();
+        Assertions.assertEquals(0, AuditLogReader.read(directory, events::add));
+        Assertions.assertEquals(22, events.size());
+        Assertions.assertEquals("user0@example.com", events.get(0).user().getEmail());
+        Assertions.assertEquals(TestUsers.BIRTH_DATE, events.get(0).user().getBirthDate());
+        Assertions.assertNull(events.get(0).user().getAddress());
+        Assertions.assertEquals(AuditEvent.Type.DELETE, events.get(21).type());
+        // About 80 bytes per event, so the fourth event of a segment takes it past 256 bytes
+        Assertions.assertEquals(6, segments().size());
+        Assertions.assertEquals(22, registry.get("user.audit.events").tag("result", "written").functionCounter().count());
+        Assertions.assertTrue(registry.get("user.audit.fsync").timer().count() > 0);
+
+        Map<String, User> users = new LinkedHashMap<>();
+        Assertions.assertEquals(0, AuditLogReader.replay(directory, Instant.now(), users));
+        Assertions.assertEquals(19, users.size());
+        Assertions.assertEquals("Renamed", users.get("user1@example.com").getFirstName());
+        Assertions.assertFalse(users.containsKey("user2@example.com"));
+    }
+
+    @Test
+    void torn_record_ends_its_segment_and_restart_starts_a_new_one() throws IOException {
+        AuditLog auditLog = new AuditLog();
+        auditLog.start(directory, 1 << 20, Duration.ofSeconds(1), 16);
+        auditLog.record(AuditEvent.Type.CREATE, named("a@b.c", "First", "Doe"));
+        auditLog.record(AuditEvent.Type.CREATE, named("d@e.f", "Second", "Doe"));
+        auditLog.stop();
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        AuditLog restarted = new AuditLog();
+        restarted.start(directory, 1 << 20, Duration.ofSeconds(1), 16);
+        restarted.record(AuditEvent.Type.DELETE, named("a@b.c", "First", "Doe"));
+        restarted.stop();
+
+        List<AuditEvent> events = new ArrayList<>();
+        Assertions.assertEquals(1, AuditLogReader.read(directory, events::add));
+        Assertions.assertEquals(List.of("a@b.c", "a@b.c"), events.stream().map(event -> event.user().getEmail()).toList());
+        Assertions.assertEquals(2, segments().size());
+        Assertions.assertEquals(1, AuditLogReader.replay(directory, Instant.now(), new LinkedHashMap<>()));
+    }
+
+    @Test
+    void stop_writes_events_recorded_while_stopping() throws InterruptedException, IOException {
+        AuditLog auditLog = new AuditLog();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        auditLog.bindTo(registry);
+        auditLog.start(directory, 1 << 20, Duration.ofSeconds(1), 1 << 16);
+        int producers = 4;
+        CountDownLatch started = new CountDownLatch(producers);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String email = "user" + p + "@example.com";
+            threads.add(Thread.ofPlatform().start(() -> {
+                started.countDown();
+                for (int i = 0; i < 20_000; i++)
+                    auditLog.record(AuditEvent.Type.UPDATE, named(email, "Name" + i, "Doe"));
+            }));
+        }
+        started.await();
+        auditLog.stop();
+        for (Thread thread : threads)
+            thread.join();
+
+        List<AuditEvent> events = new ArrayList<>();
+        AuditLogReader.read(directory, events::add);
+        Assertions.assertEquals(0, registry.get("user.audit.queue.depth").gauge().value());
+        Assertions.assertEquals(events.size(), registry.get("user.audit.events").tag("result", "written").functionCounter().count());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.configuration.AdaptiveConcurrencyLimit;
+import demo.clear_solutions_demo_trajun.configuration.ConcurrencyLimitWebFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrencyLimitUnitTests {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, 0.2, 1.5, clock::get);
+
+    @Test
+    void try_acquire_rejects_when_limit_is_reached() {
+        for (int i = 0; i < 10; i++)
+            Assertions.assertNotNull(limit.tryAcquire());
+
+        Assertions.assertNull(limit.tryAcquire());
+        Assertions.assertEquals(1, limit.getRejected());
+        Assertions.assertEquals(10, limit.getInFlight());
+    }
+
+    @Test
+    void limit_grows_while_latency_is_steady() {
+        runRounds(20, Duration.ofMillis(5));
+
+        Assertions.assertTrue(limit.getLimit() > 10, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void limit_shrinks_when_latency_degrades() {
+        runRounds(20, Duration.ofMillis(5));
+        int steadyLimit = limit.getLimit();
+
+        runRounds(20, Duration.ofMillis(100));
+
+        Assertions.assertTrue(limit.getLimit() < steadyLimit, limit.getLimit() + " >= " + steadyLimit);
+    }
+
+    @Test
+    void limit_does_not_grow_when_mostly_idle() {
+        for (int i = 0; i < 50; i++) {
+            AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+            clock.addAndGet(Duration.ofMillis(5).toNanos());
+            permit.complete();
+        }
+
+        Assertions.assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void released_permit_frees_slot_without_sample() {
+        AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        permit.release();
+
+        Assertions.assertEquals(0, limit.getInFlight());
+        Assertions.assertEquals(0, limit.getLongRttMillis());
+    }
+
+    @Test
+    void filter_sheds_excess_requests_with_503_and_retry_after() {
+        ConcurrencyLimitWebFilter filter = new ConcurrencyLimitWebFilter(true, 2, 2, 10, 0.2, 1.5,
+                Duration.ofSeconds(3));
+        WebFilterChain hangingChain = exchange -> Mono.never();
+
+        List<Disposable> pending = new ArrayList<>();
+        for (int i = 0; i < 2; i++)
+            pending.add(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/a@b.c")),
+                    hangingChain).subscribe());
+
+        MockServerWebExchange rejected = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/a@b.c"));
+        StepVerifier.create(filter.filter(rejected, hangingChain)).verifyComplete();
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        Assertions.assertEquals("3", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        MockServerWebExchange write = MockServerWebExchange.from(MockServerHttpRequest.post("/api/users"));
+        StepVerifier.create(filter.filter(write, exchange -> Mono.empty())).verifyComplete();
+        Assertions.assertNull(write.getResponse().getStatusCode());
+
+        pending.forEach(Disposable::dispose);
+        MockServerWebExchange afterCancel = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/a@b.c"));
+        StepVerifier.create(filter.filter(afterCancel, exchange -> Mono.empty())).verifyComplete();
+        Assertions.assertNull(afterCancel.getResponse().getStatusCode());
+    }
+
+    private void runRounds(int rounds, Duration latency) {
+        for (int round = 0; round < rounds; round++) {
+            List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+            AdaptiveConcurrencyLimit.Permit permit;
+            while ((permit = limit.tryAcquire()) != null)
+                permits.add(permit);
+            clock.addAndGet(latency.toNanos());
+            permits.forEach(AdaptiveConcurrencyLimit.Permit::complete);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import demo.clear_solutions_demo_trajun.repository.Deadline;
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import demo.clear_solutions_demo_trajun.service.CreateBatcher;
+import demo.clear_solutions_demo_trajun.service.InsertOutcome;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.user;
+
+public class CreateBatcherUnitTests {
+
+    private final List<List<User>> batches = new CopyOnWriteArrayList<>();
+
+    private CreateBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null)
+            batcher.stop();
+    }
+
+    @Test
+    void concurrent_creates_are_written_as_one_batch() {
+        batcher = new CreateBatcher(users -> {
+            batches.add(users);
+            return Flux.fromIterable(users).map(user -> new InsertOutcome(user, null));
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        batcher.bindTo(registry);
+        batcher.start(10, Duration.ofMillis(50), 1);
+
+        StepVerifier.create(Flux.merge(batcher.create(user("a@b.c")), batcher.create(user("d@e.f")),
+                        batcher.create(user("g@h.i"))).map(User::getId).collectSortedList())
+                .expectNext(List.of("a@b.c", "d@e.f", "g@h.i"))
+                .verifyComplete();
+        Assertions.assertEquals(1, batches.size());
+        DistributionSummary summary = registry.get("user.create.batch.size").summary();
+        Assertions.assertEquals(3, summary.totalAmount());
+    }
+
+    @Test
+    void full_batch_is_flushed_before_window_ends() {
+        batcher = new CreateBatcher(users -> {
+            batches.add(users);
+            return Flux.fromIterable(users).map(user -> new InsertOutcome(user, null));
+        });
+        batcher.start(2, Duration.ofMinutes(1), 1);
+
+        StepVerifier.create(Flux.merge(batcher.create(user("a@b.c")), batcher.create(user("d@e.f"))))
+                .expectNextCount(2)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        Assertions.assertEquals(1, batches.size());
+    }
+
+    @Test
+    void rejected_user_gets_its_own_error() {
+        batcher = new CreateBatcher(users -> Flux.fromIterable(users)
+                .map(user -> new InsertOutcome(user, user.getId().equals("dup@b.c")
+                        ? new ResponseStatusException(HttpStatus.BAD_REQUEST, "User with id dup@b.c already exists.")
+                        : null)));
+        batcher.start(10, Duration.ofMillis(20), 1);
+
+        Mono<User> duplicate = batcher.create(user("dup@b.c"));
+        Mono<User> fresh = batcher.create(user("new@b.c"));
+
+        StepVerifier.create(Mono.zip(duplicate.map(User::getId).onErrorResume(e -> Mono.just(e.getMessage())), fresh))
+                .assertNext(result -> {
+                    Assertions.assertTrue(result.getT1().contains("already exists"));
+                    Assertions.assertEquals("new@b.c", result.getT2().getId());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void failed_bulk_insert_fails_every_waiting_create() {
+        batcher = new CreateBatcher(users -> Flux.error(new IllegalStateException("connection lost")));
+        batcher.start(10, Duration.ofMillis(20), 1);
+
+        StepVerifier.create(Flux.mergeDelayError(2, batcher.create(user("a@b.c")), batcher.create(user("d@e.f"))))
+                .verifyErrorMessage("Multiple exceptions");
+    }
+
+    @Test
+    void creates_are_written_with_their_callers_durability() {
+        List<WriteDurability> durabilities = new CopyOnWriteArrayList<>();
+        batcher = new CreateBatcher(users -> Flux.deferContextual(context -> {
+            batches.add(users);
+            durabilities.add(WriteDurability.from(context));
+            return Flux.fromIterable(users).map(user -> new InsertOutcome(user, null));
+        }));
+        batcher.start(10, Duration.ofMillis(50), 1);
+
+        StepVerifier.create(Flux.merge(
+                        batcher.create(user("a@b.c")).contextWrite(c -> WriteDurability.override(c, WriteDurability.DURABLE)),
+                        batcher.create(user("d@e.f")),
+                        batcher.create(user("g@h.i")).contextWrite(c -> WriteDurability.override(c, WriteDurability.DURABLE))))
+                .expectNextCount(3)
+                .verifyComplete();
+        Assertions.assertEquals(2, batches.size());
+        Assertions.assertEquals(List.of("a@b.c", "g@h.i"), batches.get(0).stream().map(User::getId).toList());
+        Assertions.assertEquals(WriteDurability.DURABLE, durabilities.get(0));
+        Assertions.assertNull(durabilities.get(1));
+    }
+
+    @Test
+    void create_is_held_to_its_callers_deadline_and_left_out_once_expired() {
+        batcher = new CreateBatcher(users -> {
+            batches.add(users);
+            return Flux.fromIterable(users).map(user -> new InsertOutcome(user, null));
+        });
+        batcher.start(10, Duration.ofMillis(200), 1);
+
+        StepVerifier.create(Flux.merge(
+                        batcher.create(user("a@b.c")).contextWrite(Deadline.within(Deadline.after(Duration.ofMillis(20))))
+                                .onErrorResume(DeadlineExceededException.class, e -> Mono.just(user("timed@out"))),
+                        batcher.create(user("d@e.f")))
+                        .map(User::getId).collectSortedList())
+                .expectNext(List.of("d@e.f", "timed@out"))
+                .verifyComplete();
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(List.of("d@e.f"), batches.get(0).stream().map(User::getId).toList());
+    }
+}
@@ -0,0 +1,119 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import demo.clear_solutions_demo_trajun.configuration.DeadlineWebFilter;
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import demo.clear_solutions_demo_trajun.repository.ContextAwareMongoTemplate;
+import demo.clear_solutions_demo_trajun.repository.Deadline;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class DeadlineUnitTests {
+
+    private final DeadlineWebFilter filter = new DeadlineWebFilter(true, Duration.ofSeconds(2), Duration.ofSeconds(5),
+            Duration.ofSeconds(5), Duration.ofSeconds(10));
+
+    @Test
+    void endpoint_deadline_or_header_is_put_in_context() {
+        AtomicReference<Deadline> deadline = new AtomicReference<>();
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/a@b.c")),
+                exchange -> Mono.deferContextual(context -> {
+                    deadline.set(Deadline.from(context));
+                    return Mono.empty();
+                })).block();
+        Duration remaining = deadline.get().remaining();
+        Assertions.assertTrue(remaining.compareTo(Duration.ofSeconds(1)) > 0 && remaining.compareTo(Duration.ofSeconds(2)) <= 0);
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/search")
+                        .header(DeadlineWebFilter.REQUEST_TIMEOUT, "1m")),
+                exchange -> Mono.deferContextual(context -> {
+                    deadline.set(Deadline.from(context));
+                    return Mono.empty();
+                })).block();
+        Assertions.assertTrue(deadline.get().remaining().compareTo(Duration.ofSeconds(10)) <= 0);
+    }
+
+    @Test
+    void expired_deadline_cancels_the_request_with_504() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/search")
+                .header(DeadlineWebFilter.REQUEST_TIMEOUT, "50"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.<Void>never().doOnCancel(() -> cancelled.set(true))))
+                .expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.GATEWAY_TIMEOUT,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify(Duration.ofSeconds(2));
+        Assertions.assertTrue(cancelled.get());
+    }
+
+    @Test
+    void server_side_time_limit_is_answered_with_504() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/search"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new UncategorizedMongoDbException("operation exceeded time limit",
+                        new MongoExecutionTimeoutException(50, "operation exceeded time limit")))))
+                .expectError(DeadlineExceededException.class)
+                .verify();
+    }
+
+    @Test
+    void invalid_header_is_rejected_and_export_has_no_deadline() {
+        StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/a@b.c")
+                        .header(DeadlineWebFilter.REQUEST_TIMEOUT, "soon")), exchange -> Mono.empty()))
+                .expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+
+        AtomicReference<Deadline> deadline = new AtomicReference<>();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/export")),
+                exchange -> Mono.deferContextual(context -> {
+                    deadline.set(Deadline.from(context));
+                    return Mono.empty();
+                })).block();
+        Assertions.assertNull(deadline.get());
+    }
+
+    @Test
+    void template_does_not_start_queries_after_the_deadline() {
+        try (MongoClient client = MongoClients.create("mongodb://localhost:1")) {
+            ContextAwareMongoTemplate template = new ContextAwareMongoTemplate(
+                    new SimpleReactiveMongoDatabaseFactory(client, "test"),
+                    new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+
+            StepVerifier.create(template.findById("a@b.c", Document.class, "usr")
+                            .contextWrite(Deadline.within(Deadline.after(Duration.ZERO))))
+                    .expectError(DeadlineExceededException.class)
+                    .verify(Duration.ofSeconds(1));
+        }
+    }
+
+    @Test
+    void earlier_deadline_is_kept() {
+        Deadline earlier = Deadline.after(Duration.ofSeconds(1));
+
+        StepVerifier.create(Mono.deferContextual(context -> Mono.just(Deadline.from(context)))
+                        .contextWrite(Deadline.within(Deadline.after(Duration.ofSeconds(5))))
+                        .contextWrite(Deadline.within(earlier)))
+                .expectNext(earlier)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,152 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.service.BloomFilter;
+import demo.clear_solutions_demo_trajun.service.EmailFilter;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.stream.IntStream;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.user;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmailFilterUnitTests {
+
+    @Test
+    void bloom_filter_has_no_false_negatives_and_keeps_its_false_positive_rate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        IntStream.range(0, 100_000).parallel().forEach(i -> filter.put("user" + i + "@example.com"));
+
+        for (int i = 0; i < 100_000; i++)
+            Assertions.assertTrue(filter.mightContain("user" + i + "@example.com"));
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("other" + i + "@example.com"))
+                .count();
+        Assertions.assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+        Assertions.assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    void every_email_might_exist_until_the_first_rebuild() {
+        EmailFilter filter = new EmailFilter();
+        filter.add("a@b.c");
+
+        Assertions.assertFalse(filter.isReady());
+        Assertions.assertTrue(filter.mightContain("missing@example.com"));
+    }
+
+    @Test
+    void emails_added_during_a_rebuild_are_kept() {
+        EmailFilter filter = new EmailFilter();
+        Sinks.Many<String> scan = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(filter.rebuild(1000, 0.01, scan.asFlux()))
+                .then(() -> {
+                    scan.tryEmitNext("scanned@example.com");
+                    filter.add("added@example.com");
+                    scan.tryEmitComplete();
+                })
+                .verifyComplete();
+
+        Assertions.assertTrue(filter.isReady());
+        Assertions.assertTrue(filter.mightContain("scanned@example.com"));
+        Assertions.assertTrue(filter.mightContain("added@example.com"));
+        Assertions.assertFalse(filter.mightContain("missing@example.com"));
+    }
+
+    @Test
+    void false_positive_rate_is_published() {
+        EmailFilter filter = new EmailFilter();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        filter.bindTo(registry);
+        filter.rebuild(1000, 0.01, Flux.empty()).block();
+
+        filter.mightContain("missing1@example.com");
+        filter.mightContain("missing2@example.com");
+        filter.mightContain("missing3@example.com");
+        filter.recordFalsePositive();
+
+        Assertions.assertEquals(0.25, registry.get("user.email-filter.false-positive-rate").gauge().value());
+        Assertions.assertEquals(1, registry.get("user.email-filter.ready").gauge().value());
+    }
+
+    @Test
+    void service_answers_ruled_out_emails_without_a_lookup() {
+        UserRepository repository = Mockito.mock(UserRepository.class);
+        when(repository.estimatedCount()).thenReturn(Mono.just(1L));
+        when(repository.streamIds(any(Integer.class))).thenReturn(Flux.just("known@example.com"));
+        when(repository.insert(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        UserService userService = userService(repository);
+        userService.rebuildEmailFilter().block();
+
+        StepVerifier.create(userService.findUserById("missing@example.com")).verifyComplete();
+        StepVerifier.create(userService.createUser(user("new@example.com")))
+                .expectNextMatches(created -> created.getEmail().equals("new@example.com"))
+                .verifyComplete();
+
+        verify(repository, never()).findById(any(String.class));
+        verify(repository).insert(user("new@example.com"));
+        when(repository.findById("new@example.com")).thenReturn(Mono.just(user("new@example.com")));
+        StepVerifier.create(userService.findUserById("new@example.com"))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void service_still_rejects_duplicates_the_filter_has_not_seen() {
+        UserRepository repository = Mockito.mock(UserRepository.class);
+        when(repository.estimatedCount()).thenReturn(Mono.just(0L));
+        when(repository.streamIds(any(Integer.class))).thenReturn(Flux.empty());
+        when(repository.insert(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException("E11000")));
+        UserService userService = userService(repository);
+        userService.rebuildEmailFilter().block();
+
+        StepVerifier.create(userService.createUser(user("elsewhere@example.com")))
+                .expectErrorSatisfies(e -> {
+                    Assertions.assertInstanceOf(UserRuleViolationException.class, e);
+                    Assertions.assertEquals("User with id elsewhere@example.com already exists.",
+                            ((UserRuleViolationException) e).getReason());
+                })
+                .verify();
+    }
+
+    @Test
+    void disabled_filter_never_answers_for_the_database() {
+        UserRepository repository = Mockito.mock(UserRepository.class);
+        when(repository.estimatedCount()).thenReturn(Mono.just(0L));
+        when(repository.streamIds(any(Integer.class))).thenReturn(Flux.empty());
+        when(repository.findById("other-instance@example.com"))
+                .thenReturn(Mono.just(user("other-instance@example.com")));
+        UserService userService = userService(repository);
+        ReflectionTestUtils.setField(userService, "emailFilterEnabled", false);
+        userService.rebuildEmailFilter().block();
+
+        StepVerifier.create(userService.findUserById("other-instance@example.com"))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    private static UserService userService(UserRepository repository) {
+        UserService userService = new UserService(repository);
+        ReflectionTestUtils.setField(userService, "emailFilterEnabled", true);
+        ReflectionTestUtils.setField(userService, "minAge", 18);
+        ReflectionTestUtils.setField(userService, "emailFilterExpectedUsers", 1000L);
+        ReflectionTestUtils.setField(userService, "emailFilterFalsePositiveRate", 0.01);
+        return userService;
+    }
+}
@@ -0,0 +1,118 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.NameKeys;
+import demo.clear_solutions_demo_trajun.repository.UserFilter;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions.Partition;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.UserRepositoryCustomImpl;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FilterSearchUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final UserService userService = new UserService(repository);
+
+    @Test
+    void plan_runs_on_the_most_selective_index() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        Assertions.assertEquals(NameKeys.LAST_FIRST_INDEX,
+                filter(null, null, "doe", null, null, null, UserFilter.Order.EMAIL_ASC).plan().index());
+        Assertions.assertEquals(NameKeys.FIRST_LAST_INDEX,
+                filter(null, null, null, "jo", null, null, UserFilter.Order.EMAIL_ASC).plan().index());
+        Assertions.assertEquals(UserFilter.BIRTH_DATE_INDEX,
+                filter(from, from.plusMonths(6), "d", null, null, null, UserFilter.Order.EMAIL_ASC).plan().index());
+        Assertions.assertEquals(NameKeys.LAST_FIRST_INDEX,
+                filter(from, from.plusMonths(6), "doe", null, null, null, UserFilter.Order.BIRTH_DATE_ASC).plan().index());
+        Assertions.assertEquals(NameKeys.LAST_FIRST_INDEX,
+                filter(from, from.plusYears(30), "d", null, null, null, UserFilter.Order.EMAIL_ASC).plan().index());
+        Assertions.assertEquals(UserFilter.BIRTH_DATE_INDEX,
+                filter(from, null, null, null, "kyiv", true, UserFilter.Order.EMAIL_DESC).plan().index());
+
+        UserFilter.Plan sortOnly = filter(null, null, null, null, null, null, UserFilter.Order.EMAIL_DESC).plan();
+        Assertions.assertEquals(new UserFilter.Plan(UserFilter.ID_INDEX, false), sortOnly);
+        UserFilter.Plan addressOnly = filter(null, null, null, null, "kyiv", null, UserFilter.Order.BIRTH_DATE_ASC).plan();
+        Assertions.assertEquals(new UserFilter.Plan(UserFilter.BIRTH_DATE_INDEX, true), addressOnly);
+    }
+
+    @Test
+    void collection_scan_is_refused_above_the_configured_size() {
+        ReflectionTestUtils.setField(userService, "filterMaxCollectionScan", 1000L);
+        when(repository.estimatedCount()).thenReturn(Mono.just(5000L));
+
+        StepVerifier.create(userService.searchUsers(null, null, null, null, "Kyiv", null, "email", 10))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+        verify(repository, never()).findByFilter(any());
+
+        when(repository.estimatedCount()).thenReturn(Mono.just(500L));
+        when(repository.findByFilter(any())).thenReturn(Flux.empty());
+        StepVerifier.create(userService.searchUsers(null, null, null, null, "Kyiv", null, "email", 10))
+                .verifyComplete();
+    }
+
+    @Test
+    void names_are_normalized_and_unknown_sort_is_rejected() {
+        when(repository.findByFilter(any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(userService.searchUsers(null, null, "Müller", null, " ", null, "-birthDate", 10))
+                .verifyComplete();
+        verify(repository).findByFilter(new UserFilter(null, null, "muller", null, null, null,
+                UserFilter.Order.BIRTH_DATE_DESC, 10));
+
+        StepVerifier.create(userService.searchUsers(null, null, "Doe", null, null, null, "firstName", 10))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+    }
+
+    @Test
+    void query_carries_every_criterion_the_hint_and_the_order() {
+        ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(template.find(query.capture(), eq(User.class), eq("usr"))).thenReturn(Flux.empty());
+        UserRepositoryCustomImpl repository = new UserRepositoryCustomImpl(
+                new UserPartitions(List.of(new Partition("cleasol.usr", template, "usr")), false));
+
+        StepVerifier.create(repository.findByFilter(filter(LocalDate.of(1990, 1, 1), null, "doe", null, "a.b (c)",
+                        false, UserFilter.Order.EMAIL_DESC)))
+                .verifyComplete();
+
+        Document criteria = query.getValue().getQueryObject();
+        Assertions.assertEquals(List.of("lastFirstKey", "birthDate", "address", "phoneNumber"), List.copyOf(criteria.keySet()));
+        Assertions.assertEquals(new Document("$in", Arrays.asList("", null)), criteria.get("phoneNumber"));
+        Assertions.assertEquals("\\Qa.b (c)\\E", ((Pattern) criteria.get("address")).pattern());
+        Assertions.assertEquals(NameKeys.LAST_FIRST_INDEX, query.getValue().getHint());
+        Assertions.assertEquals(new Document("_id", -1), query.getValue().getSortObject());
+        Assertions.assertEquals(20, query.getValue().getLimit());
+    }
+
+    private static UserFilter filter(LocalDate fromDate, LocalDate toDate, String lastName, String firstName,
+                                     String address, Boolean hasPhone, UserFilter.Order order) {
+        return new UserFilter(fromDate, toDate, lastName, firstName, address, hasPhone, order, 20);
+    }
+}
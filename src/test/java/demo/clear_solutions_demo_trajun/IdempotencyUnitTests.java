@@ -0,0 +1,138 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.configuration.IdempotencyWebFilter;
+import demo.clear_solutions_demo_trajun.repository.IdempotencyRepository;
+import demo.clear_solutions_demo_trajun.repository.IdempotentResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IdempotencyUnitTests {
+
+    private static final String BODY = "{\"email\":\"test@example.com\"}";
+
+    private final IdempotencyRepository repository = Mockito.mock(IdempotencyRepository.class);
+
+    private final IdempotencyWebFilter filter = new IdempotencyWebFilter(repository, true, Duration.ofHours(1), 100);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private final WebFilterChain createdChain = exchange -> {
+        executions.incrementAndGet();
+        return write(exchange.getResponse(), HttpStatus.CREATED);
+    };
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findByKey(any())).thenReturn(Mono.empty());
+        when(repository.insert(any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void retry_is_answered_with_the_first_response() {
+        MockServerWebExchange first = exchange(MockServerHttpRequest.post("/api/users"), "key-1");
+        filter.filter(first, createdChain).block();
+        MockServerWebExchange retry = exchange(MockServerHttpRequest.post("/api/users"), "key-1");
+        filter.filter(retry, createdChain).block();
+
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertEquals(HttpStatus.CREATED, retry.getResponse().getStatusCode());
+        Assertions.assertEquals(MediaType.APPLICATION_JSON, retry.getResponse().getHeaders().getContentType());
+        Assertions.assertEquals("true", retry.getResponse().getHeaders().getFirst(IdempotencyWebFilter.IDEMPOTENT_REPLAYED));
+        Assertions.assertEquals(BODY, retry.getResponse().getBodyAsString().block());
+        verify(repository).insert(any());
+    }
+
+    @Test
+    void concurrent_duplicate_waits_for_the_first_request() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        WebFilterChain slowChain = exchange -> {
+            executions.incrementAndGet();
+            return release.asMono().then(write(exchange.getResponse(), HttpStatus.CREATED));
+        };
+        MockServerWebExchange first = exchange(MockServerHttpRequest.post("/api/users"), "key-1");
+        MockServerWebExchange duplicate = exchange(MockServerHttpRequest.post("/api/users"), "key-1");
+
+        StepVerifier.create(filter.filter(first, slowChain).and(filter.filter(duplicate, slowChain)))
+                .then(release::tryEmitEmpty)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertEquals(BODY, duplicate.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    void response_stored_by_another_instance_is_replayed() {
+        when(repository.findByKey("key-1")).thenReturn(Mono.just(new IdempotentResponse("key-1",
+                "DELETE /api/users/test@example.com", 204, null, new byte[0], Instant.now())));
+        MockServerWebExchange retry = exchange(MockServerHttpRequest.delete("/api/users/test@example.com"), "key-1");
+
+        filter.filter(retry, createdChain).block();
+
+        Assertions.assertEquals(0, executions.get());
+        Assertions.assertEquals(HttpStatus.NO_CONTENT, retry.getResponse().getStatusCode());
+    }
+
+    @Test
+    void key_reused_for_another_request_is_rejected() {
+        filter.filter(exchange(MockServerHttpRequest.post("/api/users"), "key-1"), createdChain).block();
+
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.put("/api/users/a@b.c"), "key-1"), createdChain))
+                .expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+    }
+
+    @Test
+    void server_errors_are_not_replayed() {
+        WebFilterChain failingChain = exchange -> {
+            executions.incrementAndGet();
+            return write(exchange.getResponse(), HttpStatus.SERVICE_UNAVAILABLE);
+        };
+
+        filter.filter(exchange(MockServerHttpRequest.post("/api/users"), "key-1"), failingChain).block();
+        filter.filter(exchange(MockServerHttpRequest.post("/api/users"), "key-1"), failingChain).block();
+
+        Assertions.assertEquals(2, executions.get());
+    }
+
+    @Test
+    void reads_other_endpoints_and_requests_without_a_key_pass_through() {
+        filter.filter(exchange(MockServerHttpRequest.get("/api/users/a@b.c"), "key-1"), createdChain).block();
+        filter.filter(exchange(MockServerHttpRequest.post("/api/users/import"), "key-1"), createdChain).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/users")), createdChain).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/users")), createdChain).block();
+
+        Assertions.assertEquals(4, executions.get());
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request, String key) {
+        return MockServerWebExchange.from(request.header(IdempotencyWebFilter.IDEMPOTENCY_KEY, key));
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, HttpStatus status) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -0,0 +1,122 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import demo.clear_solutions_demo_trajun.configuration.CachingJackson2JsonEncoder;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserSearchRequest;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+
+public class JsonCodecUnitTests {
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final User user = new User("test@example.com", "John", "Doe", LocalDate.of(1991, 8, 4),
+            "123 Main St", "1234567890");
+
+    @Test
+    void user_birth_date_is_written_as_dd_MM_yyyy_and_read_back() throws Exception {
+        String json = mapper.writeValueAsString(user);
+
+        Assertions.assertTrue(json.contains("\"birthDate\":\"04-08-1991\""), json);
+        Assertions.assertEquals(user.getBirthDate(), mapper.readValue(json, User.class).getBirthDate());
+    }
+
+    @Test
+    void every_day_matches_the_formatter() throws Exception {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+        for (LocalDate date = LocalDate.of(1899, 12, 1); date.getYear() < 2101; date = date.plusDays(1)) {
+            String text = formatter.format(date);
+            User dated = new User("test@example.com", "John", "Doe", date, null, null);
+
+            Assertions.assertTrue(mapper.writeValueAsString(dated).contains('"' + text + '"'), text);
+            Assertions.assertEquals(date, readBirthDate('"' + text + '"'));
+        }
+    }
+
+    @Test
+    void overflowing_day_is_clamped_like_the_formatter() throws Exception {
+        // The formatter resolves SMART by default, so these are accepted rather than rejected
+        Assertions.assertEquals(LocalDate.of(2021, 2, 28), readBirthDate("\"31-02-2021\""));
+        Assertions.assertEquals(LocalDate.of(2020, 2, 29), readBirthDate("\"30-02-2020\""));
+        Assertions.assertEquals(LocalDate.of(2021, 4, 30), readBirthDate("\"31-04-2021\""));
+    }
+
+    @Test
+    void input_off_the_fast_path_falls_back_to_the_formatter() throws Exception {
+        Assertions.assertEquals(LocalDate.of(1991, 8, 4), readBirthDate("\" 04-08-1991 \""));
+        Assertions.assertNull(readBirthDate("\"\""));
+        Assertions.assertNull(readBirthDate("null"));
+
+        for (String invalid : new String[]{"\"32-01-2000\"", "\"01-13-2000\"", "\"4-8-1991\"", "\"1991-08-04\"",
+                "\"0a-08-1991\"", "\"04/08/1991\""}) {
+            InvalidFormatException e = Assertions.assertThrows(InvalidFormatException.class,
+                    () -> readBirthDate(invalid), invalid);
+            Assertions.assertInstanceOf(DateTimeParseException.class, e.getCause(), invalid);
+        }
+    }
+
+    @Test
+    void update_dto_and_search_request_use_the_same_format() throws Exception {
+        UserUpdateDTO dto = mapper.readValue("{\"birthDate\":\"04-08-1991\"}", UserUpdateDTO.class);
+        Assertions.assertEquals(Optional.of(LocalDate.of(1991, 8, 4)), dto.getBirthDate());
+        Assertions.assertEquals("{\"birthDate\":\"04-08-1991\"}", mapper.writeValueAsString(
+                UserUpdateDTO.builder().birthDate(Optional.of(LocalDate.of(1991, 8, 4))).build()));
+
+        UserSearchRequest request = new UserSearchRequest(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31));
+        String json = mapper.writeValueAsString(request);
+        Assertions.assertEquals("{\"fromDate\":\"01-01-1990\",\"toDate\":\"31-12-1999\"}", json);
+        Assertions.assertEquals(request, mapper.readValue(json, UserSearchRequest.class));
+    }
+
+    @Test
+    void encoder_reuses_one_typed_writer_per_type() {
+        ObjectWriter[] seen = new ObjectWriter[2];
+        CachingJackson2JsonEncoder encoder = new CachingJackson2JsonEncoder(mapper) {
+            @Override
+            protected ObjectWriter customizeWriter(ObjectWriter writer, MimeType mimeType,
+                                                   ResolvableType elementType, Map<String, Object> hints) {
+                ObjectWriter customized = super.customizeWriter(writer, mimeType, elementType, hints);
+                seen[seen[0] == null ? 0 : 1] = customized;
+                return customized;
+            }
+        };
+
+        for (int i = 0; i < 2; i++) {
+            String json = DataBufferUtils.join(encoder.encode(Flux.just(user, user), DefaultDataBufferFactory.sharedInstance,
+                            ResolvableType.forClass(User.class), MediaType.APPLICATION_JSON, null))
+                    .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                    .block();
+            Assertions.assertEquals("[" + userJson() + "," + userJson() + "]", json);
+        }
+
+        Assertions.assertSame(seen[0], seen[1]);
+        Assertions.assertTrue(seen[0].hasPrefetchedSerializer());
+    }
+
+    private String userJson() {
+        return "{\"email\":\"test@example.com\",\"firstName\":\"John\",\"lastName\":\"Doe\","
+                + "\"birthDate\":\"04-08-1991\",\"address\":\"123 Main St\",\"phoneNumber\":\"1234567890\"}";
+    }
+
+    private LocalDate readBirthDate(String value) throws Exception {
+        return mapper.readValue("{\"email\":\"a@b.c\",\"birthDate\":" + value + "}", User.class).getBirthDate();
+    }
+}
@@ -0,0 +1,48 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.configuration.LegacyBirthDateMigration;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.when;
+
+public class LegacyBirthDateMigrationUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final LegacyBirthDateMigration migration = new LegacyBirthDateMigration(repository);
+
+    @Test
+    void not_ready_until_legacy_birth_dates_are_migrated() {
+        Sinks.One<Long> migrated = Sinks.one();
+        when(repository.migrateLegacyBirthDates()).thenReturn(migrated.asMono());
+
+        StepVerifier.create(migration.run())
+                .then(() -> Assertions.assertEquals(Status.OUT_OF_SERVICE, migration.health().getStatus()))
+                .then(() -> migrated.tryEmitValue(3L))
+                .verifyComplete();
+
+        Assertions.assertEquals(Status.UP, migration.health().getStatus());
+        Assertions.assertEquals(3L, migration.health().getDetails().get("migrated"));
+    }
+
+    @Test
+    void ready_anyway_once_retries_are_exhausted() {
+        when(repository.migrateLegacyBirthDates()).thenReturn(Mono.error(new IllegalStateException("no server")));
+
+        StepVerifier.withVirtualTime(migration::run)
+                .thenAwait(Duration.ofMinutes(1))
+                .verifyComplete();
+
+        Assertions.assertEquals(Status.UP, migration.health().getStatus());
+        Assertions.assertTrue(migration.health().getDetails().containsKey("error"));
+    }
+}
@@ -0,0 +1,97 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.NameKeys;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.named;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NameSearchUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final UserService userService = new UserService(repository);
+
+    @Test
+    void names_are_normalized_for_case_and_accents() {
+        Assertions.assertEquals("doe", NameKeys.normalize(" Doe "));
+        Assertions.assertEquals("muller", NameKeys.normalize("Müller"));
+        Assertions.assertEquals("olcer", NameKeys.normalize("Ölçer"));
+        Assertions.assertEquals("o'brien", NameKeys.normalize("o'brien"));
+        Assertions.assertEquals("", NameKeys.normalize(null));
+        Assertions.assertEquals("doe\u0001john\u0001a@b.c",
+                NameKeys.lastFirstKey(named("a@b.c", "JOHN", "Doe")));
+    }
+
+    @Test
+    void prefix_end_bounds_every_key_with_the_prefix() {
+        String end = NameKeys.prefixEnd("do");
+        Assertions.assertEquals("dp", end);
+        Assertions.assertTrue("doe\u0001john\u0001a@b.c".compareTo(end) < 0);
+        Assertions.assertTrue("dp".compareTo(end) >= 0);
+        Assertions.assertNull(NameKeys.prefixEnd(""));
+    }
+
+    @Test
+    void full_page_links_the_next_one_by_its_last_key() {
+        User first = named("a@b.c", "John", "Doe");
+        User last = named("d@e.f", "Jane", "Doe");
+        when(repository.findByNamePrefix(eq("doe"), isNull(), isNull(), isNull(), isNull(), eq(2)))
+                .thenReturn(Flux.just(first, last));
+        when(repository.findByNamePrefix(eq("doe"), isNull(), isNull(), isNull(), eq(NameKeys.lastFirstKey(last)), eq(2)))
+                .thenReturn(Flux.empty());
+
+        String next = userService.findUsersByNamePrefix("Doe", null, null, null, 2, null)
+                .map(page -> {
+                    Assertions.assertEquals(2, page.users().size());
+                    return page.next();
+                })
+                .block();
+
+        Assertions.assertNotNull(next);
+        StepVerifier.create(userService.findUsersByNamePrefix("Doe", null, null, null, 2, next))
+                .expectNextMatches(page -> page.users().isEmpty() && page.next() == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void first_name_only_search_pages_by_first_name_key() {
+        User user = named("a@b.c", "Jöhn", "Doe");
+        when(repository.findByNamePrefix(isNull(), eq("john"), any(), any(), any(), anyInt()))
+                .thenReturn(Flux.just(user));
+
+        StepVerifier.create(userService.findUsersByNamePrefix(null, "JOHN", null, null, 1, null))
+                .expectNextMatches(page -> page.next() != null)
+                .verifyComplete();
+        verify(repository).findByNamePrefix(isNull(), eq("john"), isNull(), isNull(), isNull(), eq(1));
+    }
+
+    @Test
+    void search_without_a_name_or_with_a_bad_token_is_rejected() {
+        StepVerifier.create(userService.findUsersByNamePrefix(" ", null, null, null, 10, null))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+        StepVerifier.create(userService.findUsersByNamePrefix("Doe", null, null, null, 10, "not base64!"))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+        StepVerifier.create(userService.findUsersByNamePrefix("Doe", null,
+                        LocalDate.of(2000, 1, 1), LocalDate.of(1990, 1, 1), 10, null))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,56 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.configuration.NativeHints;
+import demo.clear_solutions_demo_trajun.domain.DayMonthYearDate;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.lang.reflect.Field;
+
+public class NativeHintsUnitTests {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeHintsUnitTests() {
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void every_update_dto_field_and_its_user_counterpart_is_reflectively_accessible() throws NoSuchFieldException {
+        for (Field dtoField : UserUpdateDTO.class.getDeclaredFields()) {
+            if (dtoField.isSynthetic())
+                continue;
+            Field userField = User.class.getDeclaredField(dtoField.getName());
+            Assertions.assertTrue(RuntimeHintsPredicates.reflection().onField(dtoField).test(hints), dtoField.getName());
+            Assertions.assertTrue(RuntimeHintsPredicates.reflection().onField(userField).test(hints), userField.getName());
+        }
+    }
+
+    @Test
+    void user_is_registered_for_binding() throws NoSuchMethodException {
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection()
+                .onMethod(User.class.getMethod("getBirthDate")).test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(User.class.getDeclaredConstructor()).test(hints));
+    }
+
+    @Test
+    void birth_date_serializers_can_be_instantiated() throws NoSuchMethodException {
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(DayMonthYearDate.Serializer.class.getConstructor()).test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(DayMonthYearDate.Deserializer.class.getConstructor()).test(hints));
+    }
+
+    @Test
+    void swagger_ui_resources_are_included() {
+        // The webjar keeps its files under a directory named after its version
+        String index = "META-INF/resources/webjars/swagger-ui/5.13.0/index.html";
+        Assertions.assertNotNull(getClass().getClassLoader().getResource(index));
+        Assertions.assertTrue(RuntimeHintsPredicates.resource().forResource(index).test(hints));
+    }
+}
@@ -0,0 +1,101 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.PhoneKeys;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.user;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PhoneLookupUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final UserService userService = new UserService(repository);
+
+    @Test
+    void phone_numbers_pack_into_distinct_keys() {
+        Assertions.assertEquals(11234567890L, PhoneKeys.toKey("1234567890"));
+        Assertions.assertEquals(10123456789L, PhoneKeys.toKey("0123456789"));
+        Assertions.assertNotEquals(PhoneKeys.toKey("0123456789"), PhoneKeys.toKey("123456789"));
+        Assertions.assertEquals(1_999_999_999_999_999_999L, PhoneKeys.toKey("999999999999999999"));
+        Assertions.assertNull(PhoneKeys.toKey("9999999999999999999"));
+        Assertions.assertNull(PhoneKeys.toKey("123-456-78"));
+        Assertions.assertNull(PhoneKeys.toKey(""));
+        Assertions.assertNull(PhoneKeys.toKey(null));
+    }
+
+    @Test
+    void batch_lookup_is_one_query_over_distinct_keys() {
+        when(repository.findByPhoneKeys(any())).thenReturn(Flux.just(user("a@b.c", "1234567890")));
+
+        StepVerifier.create(userService.findUsersByPhoneNumbers(List.of("1234567890", "0987654321", "1234567890")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(repository).findByPhoneKeys(Set.of(11234567890L, 10987654321L));
+    }
+
+    @Test
+    void invalid_phone_number_is_rejected_without_a_query() {
+        StepVerifier.create(userService.findUsersByPhoneNumbers(List.of("1234567890", "12345abcde")))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+        StepVerifier.create(userService.findUserByPhoneNumber("+1234567890"))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+
+        verify(repository, never()).findByPhoneKeys(any());
+    }
+
+    @Test
+    void phone_of_another_user_is_reported_as_such() {
+        when(repository.findById("a@b.c")).thenReturn(Mono.empty());
+        when(repository.save(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException(
+                "E11000 duplicate key error collection: cleasol.usr index: phoneKey dup key: { phoneKey: 11234567890 }")));
+        ReflectionTestUtils.setField(userService, "minAge", 18);
+
+        StepVerifier.create(userService.createUser(user("a@b.c", "1234567890")))
+                .expectErrorSatisfies(e -> Assertions.assertEquals("Phone number 1234567890 belongs to another user.",
+                        ((UserRuleViolationException) e).getReason()))
+                .verify();
+    }
+
+    @Test
+    void legacy_user_sharing_its_phone_can_still_be_updated() {
+        User legacy = user("a@b.c", "1234567890");
+        when(repository.findById("a@b.c")).thenReturn(Mono.just(legacy));
+        when(repository.save(any(User.class))).thenReturn(Mono.error(new DuplicateKeyException(
+                "E11000 duplicate key error collection: cleasol.usr index: phoneKey dup key: { phoneKey: 11234567890 }")));
+        when(repository.saveWithoutPhoneKey(any(User.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        ReflectionTestUtils.setField(userService, "minAge", 18);
+
+        User moved = user("a@b.c", "1234567890");
+        moved.setAddress("2 Main St");
+        StepVerifier.create(userService.fullyUpdateUser("a@b.c", moved))
+                .expectNext(moved)
+                .verifyComplete();
+        verify(repository).saveWithoutPhoneKey(moved);
+
+        StepVerifier.create(userService.fullyUpdateUser("a@b.c", user("a@b.c", "0987654321")))
+                .expectErrorSatisfies(e -> Assertions.assertEquals("Phone number 0987654321 belongs to another user.",
+                        ((UserRuleViolationException) e).getReason()))
+                .verify();
+    }
+}
@@ -0,0 +1,91 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.PartialUser;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.repository.UserField;
+import demo.clear_solutions_demo_trajun.repository.UserFilter;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions.Partition;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.UserRepositoryCustomImpl;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProjectionUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final UserService userService = new UserService(repository);
+
+    private final ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private final UserRepositoryCustomImpl repositoryImpl = new UserRepositoryCustomImpl(
+            new UserPartitions(List.of(new Partition("cleasol.usr", template, "usr")), false));
+
+    @Test
+    void only_the_requested_fields_are_read_and_returned() {
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        LocalDate to = LocalDate.of(2000, 1, 1);
+        when(repository.findByBirthDateBetween(from, to, EnumSet.of(UserField.EMAIL, UserField.BIRTH_DATE)))
+                .thenReturn(Flux.just(new User("a@b.c", null, null, LocalDate.of(1995, 3, 4), null, null)));
+
+        StepVerifier.create(userService.findUsersByBirthDateRange(from, to, "email, birthDate"))
+                .expectNext(new PartialUser("a@b.c", null, null, LocalDate.of(1995, 3, 4), null, null))
+                .verifyComplete();
+    }
+
+    @Test
+    void unknown_field_is_rejected_without_a_query() {
+        StepVerifier.create(userService.findUserById("a@b.c", "email,password"))
+                .expectError(UserRuleViolationException.class)
+                .verify();
+
+        verify(repository, never()).findById(any(String.class), any());
+    }
+
+    @Test
+    void email_and_birth_date_range_search_is_covered_by_the_birth_date_index() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(template.find(query.capture(), eq(User.class), eq("usr"))).thenReturn(Flux.empty());
+
+        StepVerifier.create(repositoryImpl.findByBirthDateBetween(LocalDate.of(1990, 1, 1), LocalDate.of(2000, 1, 1),
+                        EnumSet.of(UserField.EMAIL)))
+                .verifyComplete();
+
+        // Only fields of the birthDate__id index, so MongoDB answers from the index without fetching documents
+        Assertions.assertEquals(new Document("birthDate", 1).append("_id", 1), query.getValue().getFieldsObject());
+        Assertions.assertEquals(UserFilter.BIRTH_DATE_INDEX, query.getValue().getHint());
+    }
+
+    @Test
+    void id_is_left_out_unless_requested() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(template.findOne(query.capture(), eq(User.class), eq("usr"))).thenReturn(Mono.empty());
+
+        StepVerifier.create(repositoryImpl.findById("a@b.c", EnumSet.of(UserField.FIRST_NAME, UserField.PHONE_NUMBER)))
+                .verifyComplete();
+
+        Assertions.assertEquals(new Document("firstName", 1).append("phoneNumber", 1).append("_id", 0),
+                query.getValue().getFieldsObject());
+    }
+}
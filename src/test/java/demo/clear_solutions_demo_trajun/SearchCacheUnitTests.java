@@ -0,0 +1,119 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.service.SearchCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.bornIn;
+
+public class SearchCacheUnitTests {
+
+    private static final LocalDate Y1990 = LocalDate.of(1990, 1, 1);
+    private static final LocalDate Y2000 = LocalDate.of(2000, 1, 1);
+    private static final LocalDate Y2010 = LocalDate.of(2010, 1, 1);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final SearchCache cache = new SearchCache(now::get);
+
+    @BeforeEach
+    void setUp() {
+        cache.configure(10, 5, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void loaded_range_is_served_from_memory() {
+        load(Y1990, Y2000, bornIn("a@b.c", 1995));
+
+        Assertions.assertEquals(List.of(bornIn("a@b.c", 1995)), cache.get(Y1990, Y2000));
+        Assertions.assertNull(cache.get(Y1990, Y2010));
+    }
+
+    @Test
+    void write_drops_only_ranges_containing_the_birth_date() {
+        load(Y1990, Y2000, bornIn("a@b.c", 1995));
+        load(Y2000, Y2010, bornIn("d@e.f", 2005));
+        load(LocalDate.of(1995, 6, 1), Y2010);
+
+        cache.invalidate(LocalDate.of(2007, 3, 3));
+
+        Assertions.assertNotNull(cache.get(Y1990, Y2000));
+        Assertions.assertNull(cache.get(Y2000, Y2010));
+        Assertions.assertNull(cache.get(LocalDate.of(1995, 6, 1), Y2010));
+    }
+
+    @Test
+    void result_loaded_across_a_write_is_not_cached() {
+        Sinks.Many<User> query = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(cache.load(Y1990, Y2000, query.asFlux()))
+                .then(() -> {
+                    query.tryEmitNext(bornIn("a@b.c", 1995));
+                    cache.invalidate(LocalDate.of(1996, 1, 1));
+                    query.tryEmitComplete();
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Assertions.assertNull(cache.get(Y1990, Y2000));
+    }
+
+    @Test
+    void wide_range_is_dropped_by_any_write_inside_it() {
+        LocalDate from = LocalDate.of(1800, 1, 1);
+        load(from, Y2010, bornIn("a@b.c", 1995));
+        cache.invalidate(LocalDate.of(2020, 1, 1));
+        Assertions.assertNotNull(cache.get(from, Y2010));
+
+        cache.invalidate(LocalDate.of(1850, 1, 1));
+        Assertions.assertNull(cache.get(from, Y2010));
+    }
+
+    @Test
+    void least_recently_used_ranges_are_evicted_over_the_user_budget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        load(Y1990, Y2000, users(1990, 4));
+        load(Y2000, Y2010, users(2000, 4));
+        cache.get(Y1990, Y2000);
+        load(LocalDate.of(1980, 1, 1), Y1990, users(1980, 4));
+
+        Assertions.assertNotNull(cache.get(Y1990, Y2000));
+        Assertions.assertNull(cache.get(Y2000, Y2010));
+        Assertions.assertEquals(8, cache.getCachedUsers());
+        Assertions.assertEquals(1, registry.get("user.search.cache.evictions").functionCounter().count());
+    }
+
+    @Test
+    void oversized_and_expired_results_are_not_served() {
+        load(Y1990, Y2000, users(1990, 6));
+        Assertions.assertNull(cache.get(Y1990, Y2000));
+
+        load(Y2000, Y2010, users(2000, 2));
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+        Assertions.assertNull(cache.get(Y2000, Y2010));
+        Assertions.assertEquals(0, cache.getEntries());
+    }
+
+    private void load(LocalDate from, LocalDate to, User... users) {
+        cache.load(from, to, Flux.just(users)).blockLast();
+    }
+
+    private static User[] users(int year, int count) {
+        User[] users = new User[count];
+        for (int i = 0; i < count; i++)
+            users[i] = bornIn(year + "-" + i + "@example.com", year + i);
+        return users;
+    }
+}
@@ -0,0 +1,213 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import demo.clear_solutions_demo_trajun.exception.DeadlineExceededException;
+import demo.clear_solutions_demo_trajun.repository.ContextAwareMongoTemplate;
+import demo.clear_solutions_demo_trajun.repository.Deadline;
+import demo.clear_solutions_demo_trajun.service.SingleFlight;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.reactivestreams.Subscriber;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SingleFlightUnitTests {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test");
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void concurrent_mono_calls_share_one_execution() {
+        Sinks.One<String> result = Sinks.one();
+        Mono<String> first = singleFlight.mono("key", k -> {
+            calls.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<String> second = singleFlight.mono("key", k -> {
+            calls.incrementAndGet();
+            return Mono.just("other");
+        });
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> result.tryEmitValue("value"))
+                .assertNext(values -> {
+                    Assertions.assertEquals("value", values.getT1());
+                    Assertions.assertEquals("value", values.getT2());
+                })
+                .verifyComplete();
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(0.5, singleFlight.getCoalescingRatio());
+    }
+
+    @Test
+    void finished_call_is_not_reused() {
+        StepVerifier.create(singleFlight.mono("key", k -> Mono.fromCallable(() -> "v" + calls.incrementAndGet())))
+                .expectNext("v1")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.mono("key", k -> Mono.fromCallable(() -> "v" + calls.incrementAndGet())))
+                .expectNext("v2")
+                .verifyComplete();
+        Assertions.assertEquals(0, singleFlight.getCoalescingRatio());
+    }
+
+    @Test
+    void errors_are_shared_and_then_forgotten() {
+        Sinks.One<String> result = Sinks.one();
+        Mono<String> call = singleFlight.mono("key", k -> {
+            calls.incrementAndGet();
+            return result.asMono();
+        });
+
+        StepVerifier.create(Flux.merge(call, call))
+                .then(() -> result.tryEmitError(new IllegalStateException("boom")))
+                .verifyError(IllegalStateException.class);
+        StepVerifier.create(singleFlight.mono("key", k -> Mono.just("recovered")))
+                .expectNext("recovered")
+                .verifyComplete();
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    void late_flux_subscriber_replays_emitted_elements() {
+        Sinks.Many<String> source = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<String> first = singleFlight.flux("range", k -> {
+            calls.incrementAndGet();
+            return source.asFlux();
+        });
+
+        StepVerifier.create(first)
+                .then(() -> source.tryEmitNext("a"))
+                .expectNext("a")
+                .then(() -> StepVerifier.create(singleFlight.flux("range", k -> Flux.just("other")))
+                        .expectNext("a")
+                        .thenCancel()
+                        .verify())
+                .then(() -> {
+                    source.tryEmitNext("b");
+                    source.tryEmitComplete();
+                })
+                .expectNext("b")
+                .verifyComplete();
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(2, singleFlight.getRequests());
+    }
+
+    @Test
+    void shared_call_runs_without_the_callers_deadlines_and_each_caller_keeps_its_own() {
+        Sinks.One<String> result = Sinks.one();
+        AtomicBoolean sawDeadline = new AtomicBoolean();
+        Mono<String> call = singleFlight.mono("key", k -> Mono.deferContextual(context -> {
+            calls.incrementAndGet();
+            sawDeadline.set(context.hasKey(Deadline.class));
+            return result.asMono();
+        }));
+        AtomicReference<String> patient = new AtomicReference<>();
+        call.contextWrite(Deadline.within(Deadline.after(Duration.ofSeconds(5)))).subscribe(patient::set);
+
+        StepVerifier.create(call.contextWrite(Deadline.within(Deadline.after(Duration.ofMillis(20)))))
+                .expectError(DeadlineExceededException.class)
+                .verify(Duration.ofSeconds(5));
+        result.tryEmitValue("value");
+
+        Assertions.assertEquals("value", patient.get());
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertFalse(sawDeadline.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shared_query_is_sent_with_max_time_ms_of_the_shared_timeout() {
+        FindPublisher<Document> find = Mockito.mock(FindPublisher.class, Mockito.RETURNS_SELF);
+        Mockito.doAnswer(invocation -> {
+            Flux.<Document>empty().subscribe(invocation.<Subscriber<Document>>getArgument(0));
+            return null;
+        }).when(find).subscribe(any());
+        MongoCollection<Document> collection = Mockito.mock(MongoCollection.class, invocation ->
+                invocation.getMethod().getReturnType() == FindPublisher.class ? find
+                        : Mockito.RETURNS_SELF.answer(invocation));
+        MongoDatabase database = Mockito.mock(MongoDatabase.class, Mockito.RETURNS_SELF);
+        when(database.getCollection("usr", Document.class)).thenReturn(collection);
+        MongoClient client = Mockito.mock(MongoClient.class);
+        when(client.getDatabase("test")).thenReturn(database);
+        ContextAwareMongoTemplate template = new ContextAwareMongoTemplate(
+                new SimpleReactiveMongoDatabaseFactory(client, "test"),
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        SingleFlight<String, Document> search = new SingleFlight<>("search");
+        search.setSharedTimeout(Duration.ofSeconds(5));
+
+        // A caller with a much shorter deadline does not shorten the shared query, nor leaves it unbounded
+        StepVerifier.create(search.flux("key", k -> template.find(new Query(), Document.class, "usr"))
+                        .contextWrite(Deadline.within(Deadline.after(Duration.ofMillis(500)))))
+                .verifyComplete();
+
+        ArgumentCaptor<Long> maxTimeMs = ArgumentCaptor.forClass(Long.class);
+        verify(find).maxTime(maxTimeMs.capture(), eq(TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(maxTimeMs.getValue() > 4000 && maxTimeMs.getValue() <= 5000);
+    }
+
+    @Test
+    void shared_call_is_cancelled_once_every_caller_cancelled() {
+        AtomicInteger cancellations = new AtomicInteger();
+        Mono<String> call = singleFlight.mono("key", k -> Mono.<String>never().doOnCancel(cancellations::incrementAndGet));
+
+        Disposable first = call.subscribe();
+        Disposable second = call.subscribe();
+        first.dispose();
+        Assertions.assertEquals(0, cancellations.get());
+        second.dispose();
+        Assertions.assertEquals(1, cancellations.get());
+        Assertions.assertEquals(0.5, singleFlight.getCoalescingRatio());
+    }
+
+    @Test
+    void late_flux_subscriber_runs_its_own_call_once_too_much_was_emitted() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", false, 2);
+        Sinks.Many<Integer> source = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<Integer> first = flight.flux("range", k -> source.asFlux());
+
+        StepVerifier.create(first)
+                .then(() -> {
+                    source.tryEmitNext(1);
+                    source.tryEmitNext(2);
+                })
+                .expectNext(1, 2)
+                .then(() -> StepVerifier.create(flight.flux("range", k -> Flux.just(-1)))
+                        .expectNext(1, 2)
+                        .thenCancel()
+                        .verify())
+                .then(() -> source.tryEmitNext(3))
+                .expectNext(3)
+                .then(() -> StepVerifier.create(flight.flux("range", k -> Flux.just(-1)))
+                        .expectNext(-1)
+                        .verifyComplete())
+                .then(source::tryEmitComplete)
+                .verifyComplete();
+        Assertions.assertEquals(2, flight.getExecutions());
+    }
+}
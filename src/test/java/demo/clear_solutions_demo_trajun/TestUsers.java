@@ -0,0 +1,36 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+
+import java.time.LocalDate;
+
+/**
+ * Valid users for tests, differing from one another only in what a test is about.
+ */
+public final class TestUsers {
+
+    public static final LocalDate BIRTH_DATE = LocalDate.of(1991, 8, 4);
+
+    private TestUsers() {
+    }
+
+    public static User user(String email) {
+        return new User(email, "John", "Doe", BIRTH_DATE, null, null);
+    }
+
+    public static User user(String email, String phoneNumber) {
+        return new User(email, "John", "Doe", BIRTH_DATE, null, phoneNumber);
+    }
+
+    public static User named(String email, String firstName, String lastName) {
+        return new User(email, firstName, lastName, BIRTH_DATE, null, null);
+    }
+
+    public static User bornOn(String email, LocalDate birthDate) {
+        return new User(email, "John", "Doe", birthDate, null, null);
+    }
+
+    public static User bornIn(String email, int year) {
+        return bornOn(email, LocalDate.of(year, 1, 1));
+    }
+}
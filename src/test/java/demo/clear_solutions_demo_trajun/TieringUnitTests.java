@@ -0,0 +1,242 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.PhoneKeys;
+import demo.clear_solutions_demo_trajun.repository.UserDocumentConverters;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions.Partition;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.UserRepositoryCustomImpl;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.bornOn;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TieringUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final UserService userService = new UserService(repository);
+
+    @Test
+    void lookup_of_an_archived_user_promotes_it() {
+        User archived = bornOn("old@example.com", LocalDate.of(1950, 1, 1));
+        when(repository.findById("old@example.com")).thenReturn(Mono.empty());
+        when(repository.promoteArchived("old@example.com")).thenReturn(Mono.just(archived));
+
+        StepVerifier.create(userService.findUserById("old@example.com")).verifyComplete();
+        verify(repository, never()).promoteArchived(anyString());
+
+        ReflectionTestUtils.setField(userService, "tieringEnabled", true);
+        StepVerifier.create(userService.findUserById("old@example.com"))
+                .expectNext(archived)
+                .verifyComplete();
+    }
+
+    @Test
+    void reads_are_flushed_once_per_user() {
+        ReflectionTestUtils.setField(userService, "tieringEnabled", true);
+        when(repository.findById("a@b.c")).thenReturn(Mono.just(bornOn("a@b.c", LocalDate.of(1990, 1, 1))));
+        when(repository.recordAccess(any(), any())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(userService.findUserById("a@b.c")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(userService.findUserById("a@b.c")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(userService.flushAccesses()).expectNext(1L).verifyComplete();
+        StepVerifier.create(userService.flushAccesses()).expectNext(0L).verifyComplete();
+
+        verify(repository, times(1)).recordAccess(Set.of("a@b.c"), LocalDate.now());
+    }
+
+    @Test
+    void archived_users_are_merged_in_birth_date_order() {
+        ReflectionTestUtils.setField(userService, "tieringEnabled", true);
+        LocalDate from = LocalDate.of(1940, 1, 1);
+        LocalDate to = LocalDate.of(2000, 1, 1);
+        User hot1 = bornOn("a@b.c", LocalDate.of(1950, 1, 1));
+        User hot2 = bornOn("d@e.f", LocalDate.of(1990, 1, 1));
+        User cold = bornOn("g@h.i", LocalDate.of(1960, 1, 1));
+        when(repository.findByBirthDateBetween(from, to)).thenReturn(Flux.just(hot1, hot2));
+        when(repository.findArchivedByBirthDateBetween(from, to)).thenReturn(Flux.just(cold));
+
+        StepVerifier.create(userService.findUsersByBirthDateRangeIncludingArchived(from, to))
+                .expectNext(hot1, cold, hot2)
+                .verifyComplete();
+    }
+
+    @Test
+    void stale_users_are_copied_before_they_are_removed_and_kept_if_read_meanwhile() {
+        ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+        ReactiveIndexOperations archiveIndexes = Mockito.mock(ReactiveIndexOperations.class);
+        ReactiveBulkOperations copy = Mockito.mock(ReactiveBulkOperations.class);
+        when(template.indexOps("usr_cold")).thenReturn(archiveIndexes);
+        when(archiveIndexes.ensureIndex(any())).thenReturn(Mono.just("birthDate__id"));
+        when(template.updateMulti(any(Query.class), any(UpdateDefinition.class), eq("usr")))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+        when(template.find(any(Query.class), eq(Document.class), eq("usr"))).thenReturn(
+                Flux.just(new Document("_id", "a@b.c"), new Document("_id", "d@e.f")),
+                Flux.just(new Document("_id", "d@e.f")));
+        when(template.bulkOps(BulkOperations.BulkMode.UNORDERED, "usr_cold")).thenReturn(copy);
+        when(copy.replaceOne(any(Query.class), any(), any())).thenReturn(copy);
+        when(copy.execute()).thenReturn(Mono.just(Mockito.mock(BulkWriteResult.class)));
+        ArgumentCaptor<Query> hotRemoval = ArgumentCaptor.forClass(Query.class);
+        when(template.remove(hotRemoval.capture(), eq("usr"))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        ArgumentCaptor<Query> archiveRemoval = ArgumentCaptor.forClass(Query.class);
+        when(template.remove(archiveRemoval.capture(), eq("usr_cold"))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        UserRepositoryCustomImpl repositoryImpl = new UserRepositoryCustomImpl(
+                new UserPartitions(List.of(new Partition("cleasol.usr", template, "usr")), false));
+        LocalDate cutoff = LocalDate.of(2024, 1, 1);
+
+        StepVerifier.create(repositoryImpl.archiveStale(cutoff, 100))
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(copy, times(2)).replaceOne(any(Query.class), any(), any());
+        Document removed = hotRemoval.getValue().getQueryObject();
+        Assertions.assertEquals(new Document("$lt", UserDocumentConverters.toLastAccessKey(cutoff)), removed.get("lastAccess"));
+        Assertions.assertEquals(new Document("_id", new Document("$in", List.of("d@e.f"))),
+                archiveRemoval.getValue().getQueryObject());
+    }
+
+    @Test
+    void bulk_create_of_an_archived_email_fails_as_a_duplicate_without_a_write() {
+        ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+        ReactiveBulkOperations insert = Mockito.mock(ReactiveBulkOperations.class);
+        when(template.find(any(Query.class), eq(Document.class), eq("usr_cold")))
+                .thenReturn(Flux.just(new Document("_id", "old@example.com")));
+        when(template.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class, "usr")).thenReturn(insert);
+        ArgumentCaptor<List<User>> inserted = ArgumentCaptor.captor();
+        when(insert.insert(inserted.capture())).thenReturn(insert);
+        when(insert.execute()).thenReturn(Mono.just(Mockito.mock(BulkWriteResult.class)));
+        UserRepositoryCustomImpl repositoryImpl = new UserRepositoryCustomImpl(
+                new UserPartitions(List.of(new Partition("cleasol.usr", template, "usr")), false));
+        ReflectionTestUtils.setField(repositoryImpl, "tieringEnabled", true);
+
+        StepVerifier.create(repositoryImpl.insertUnordered(List.of(
+                        bornOn("new@example.com", LocalDate.of(1990, 1, 1)), bornOn("old@example.com", LocalDate.of(1950, 1, 1)))))
+                .assertNext(errors -> {
+                    Assertions.assertEquals(1, errors.size());
+                    Assertions.assertEquals(1, errors.get(0).getIndex());
+                    Assertions.assertEquals(ErrorCategory.DUPLICATE_KEY, ErrorCategory.fromErrorCode(errors.get(0).getCode()));
+                })
+                .verifyComplete();
+        Assertions.assertEquals(List.of("new@example.com"), inserted.getValue().stream().map(User::getEmail).toList());
+    }
+
+    @Test
+    void create_looks_into_the_archive_only_with_tiering() {
+        ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+        User user = bornOn("old@example.com", LocalDate.of(1950, 1, 1));
+        when(template.exists(any(Query.class), eq("usr_cold"))).thenReturn(Mono.just(true));
+        when(template.insert(user, "usr")).thenReturn(Mono.just(user));
+        UserRepositoryCustomImpl repositoryImpl = new UserRepositoryCustomImpl(
+                new UserPartitions(List.of(new Partition("cleasol.usr", template, "usr")), false));
+
+        StepVerifier.create(repositoryImpl.insert(user)).expectNext(user).verifyComplete();
+        verify(template, never()).exists(any(Query.class), anyString());
+
+        ReflectionTestUtils.setField(repositoryImpl, "tieringEnabled", true);
+        StepVerifier.create(repositoryImpl.insert(user))
+                .expectErrorSatisfies(e -> {
+                    Assertions.assertInstanceOf(DuplicateKeyException.class, e);
+                    Assertions.assertFalse(PhoneKeys.isDuplicatePhone(e.getMessage()));
+                })
+                .verify();
+    }
+
+    @Test
+    void export_streams_the_archive_after_the_collection() {
+        ReactiveMongoTemplate template = Mockito.mock(ReactiveMongoTemplate.class);
+        when(template.find(any(Query.class), eq(User.class), eq("usr")))
+                .thenReturn(Flux.just(bornOn("a@b.c", LocalDate.of(1990, 1, 1))));
+        when(template.find(any(Query.class), eq(User.class), eq("usr_cold")))
+                .thenReturn(Flux.just(bornOn("old@example.com", LocalDate.of(1950, 1, 1))));
+        UserRepositoryCustomImpl repositoryImpl = new UserRepositoryCustomImpl(
+                new UserPartitions(List.of(new Partition("cleasol.usr", template, "usr")), false));
+
+        StepVerifier.create(repositoryImpl.streamAll(null, null, 100).map(User::getEmail))
+                .expectNext("a@b.c", "old@example.com")
+                .verifyComplete();
+    }
+
+    @Test
+    void rebalance_moves_archived_users_unless_their_new_partition_has_them() {
+        ReactiveMongoTemplate first = Mockito.mock(ReactiveMongoTemplate.class);
+        ReactiveMongoTemplate second = Mockito.mock(ReactiveMongoTemplate.class);
+        UserPartitions partitions = new UserPartitions(List.of(
+                new Partition("users1.usr", first, "usr"), new Partition("users2.usr", second, "usr")), true);
+        List<String> misplaced = IntStream.range(0, 50).mapToObj(i -> "user" + i + "@example.com")
+                .filter(email -> partitions.partitionOf(email).template() == second)
+                .limit(2).toList();
+        for (ReactiveMongoTemplate template : List.of(first, second)) {
+            when(template.find(any(Query.class), eq(Document.class), eq("usr"))).thenReturn(Flux.empty());
+            when(template.find(any(Query.class), eq(Document.class), eq("usr_cold"))).thenReturn(Flux.empty());
+        }
+        when(first.find(any(Query.class), eq(Document.class), eq("usr_cold"))).thenReturn(
+                Flux.fromIterable(misplaced).map(email -> new Document("_id", email)));
+        when(second.exists(any(Query.class), eq("usr"))).thenReturn(Mono.just(false), Mono.just(true));
+        when(second.findAndReplace(any(Query.class), any(Document.class), any(), eq(Document.class), eq("usr_cold")))
+                .thenReturn(Mono.empty());
+        when(first.remove(any(Query.class), eq("usr_cold"))).thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(partitions.rebalance()).expectNext(2L).verifyComplete();
+
+        verify(second, times(1)).findAndReplace(any(Query.class), any(Document.class), any(), eq(Document.class), eq("usr_cold"));
+        verify(first, times(2)).remove(any(Query.class), eq("usr_cold"));
+    }
+
+    @Test
+    void phone_lookup_promotes_an_archived_user_and_searches_skip_the_archive() {
+        ReflectionTestUtils.setField(userService, "tieringEnabled", true);
+        User archived = new User("old@example.com", "First", "Last", LocalDate.of(1950, 1, 1), null, "1234567890");
+        when(repository.findByPhoneKey(anyLong())).thenReturn(Mono.empty());
+        when(repository.findArchivedByPhoneKeys(any())).thenReturn(Flux.just(archived));
+        when(repository.promoteArchived("old@example.com")).thenReturn(Mono.just(archived));
+        when(repository.findByNamePrefix(any(), any(), any(), any(), any(), anyInt())).thenReturn(Flux.empty());
+        when(repository.findByFilter(any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(userService.findUserByPhoneNumber("1234567890"))
+                .expectNext(archived)
+                .verifyComplete();
+        StepVerifier.create(userService.findUsersByNamePrefix("Last", null, null, null, 10, null))
+                .assertNext(page -> Assertions.assertTrue(page.users().isEmpty()))
+                .verifyComplete();
+        StepVerifier.create(userService.searchUsers(LocalDate.of(1940, 1, 1), null, null, null, null, null, "email", 10))
+                .verifyComplete();
+
+        verify(repository, times(1)).findArchivedByPhoneKeys(any());
+        verify(repository, never()).findArchivedByBirthDateBetween(any(), any());
+    }
+}
@@ -1,5 +1,7 @@
 package demo.clear_solutions_demo_trajun;
 
+import demo.clear_solutions_demo_trajun.domain.ExportFormat;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
 import demo.clear_solutions_demo_trajun.domain.User;
 import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
 import demo.clear_solutions_demo_trajun.repository.UserRepository;
@@ -12,6 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.testcontainers.containers.MongoDBContainer;
@@ -21,6 +26,7 @@ import org.testcontainers.utility.DockerImageName;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 
@@ -341,6 +347,7 @@ public class UserControllerIntegrationTests {
         userService.createUser(user).block();
         User otherUser = getValidUser();
         otherUser.setEmail("other@null.com");
+        otherUser.setPhoneNumber("0987654321");
         user.setEmail("other@null.com");
         userService.createUser(otherUser).block();
         String message = "User with email " + otherUser.getId() + " already exists. Cannot update.";
@@ -357,6 +364,27 @@ public class UserControllerIntegrationTests {
                 .isEqualTo(message);
     }
 
+    @Test
+    void findUserByPhoneNumber_expect_user_and_duplicate_phone_rejected() {
+        User user = getValidUser();
+        userService.createUser(user).block();
+        User otherUser = getValidUser();
+        otherUser.setEmail("other@null.com");
+
+        webTestClient.get()
+                .uri(apiPath + "/by-phone/" + user.getPhoneNumber())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(User.class).isEqualTo(user);
+        webTestClient.post()
+                .uri(apiPath)
+                .body(BodyInserters.fromValue(otherUser))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Phone number 1234567890 belongs to another user.");
+    }
+
     @Test
     void deleteUser_user_found_expect_no_content() {
         User user = getValidUser();
@@ -391,6 +419,7 @@ public class UserControllerIntegrationTests {
         User user2 = getValidUser();
         user2.setBirthDate(LocalDate.of(1985, 1, 1));
         user2.setEmail("some@mail.com");
+        user2.setPhoneNumber("0987654321");
         userService.createUser(user1).block();
         userService.createUser(user2).block();
 
@@ -422,4 +451,106 @@ public class UserControllerIntegrationTests {
     }
 
 
+    @Test
+    void searchUsers_has_phone_expect_users_with_a_number_with_or_without_phone_key() {
+        User withPhone = getValidUser();
+        User withoutPhone = getValidUser();
+        withoutPhone.setEmail("nophone@example.com");
+        withoutPhone.setPhoneNumber(null);
+        // Shares its number with a user stored before phone keys, so it has none
+        User legacy = getValidUser();
+        legacy.setEmail("legacy@example.com");
+        userService.createUser(withPhone).block();
+        userService.createUser(withoutPhone).block();
+        userRepository.saveWithoutPhoneKey(legacy).block();
+
+        webTestClient.get()
+                .uri(apiPath + "/search/filter?hasPhone=true&sort=email")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .isEqualTo(List.of(legacy, withPhone));
+        webTestClient.get()
+                .uri(apiPath + "/search/filter?hasPhone=false&fromDate=01-01-1900&sort=-birthDate")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .isEqualTo(List.of(withoutPhone));
+    }
+
+    @Test
+    void exportUsers_ndjson_birth_date_range_expect_matching_users_one_per_line() {
+        User user1 = getValidUser();
+        user1.setBirthDate(LocalDate.of(1995, 1, 1));
+        User user2 = getValidUser();
+        user2.setBirthDate(LocalDate.of(1985, 1, 1));
+        user2.setEmail("some@mail.com");
+        user2.setPhoneNumber("0987654321");
+        userService.createUser(user1).block();
+        userService.createUser(user2).block();
+
+        webTestClient.get()
+                .uri("/api/users/export?format=ndjson&fromDate=01-01-1990&toDate=31-12-2000&batchSize=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(User.class)
+                .isEqualTo(List.of(user1));
+    }
+
+    @Test
+    void exportUsers_csv_expect_header_and_all_users() {
+        userService.createUser(getValidUser()).block();
+
+        webTestClient.get()
+                .uri("/api/users/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(ExportFormat.CSV.getMediaType())
+                .expectBody(String.class)
+                .isEqualTo("email,firstName,lastName,birthDate,address,phoneNumber\n"
+                        + "test@example.com,John,Doe," + dateInPast.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))
+                        + ",123 Main St,1234567890\n");
+    }
+
+    @Test
+    void importUsers_csv_upload_expect_valid_rows_inserted_and_job_status_available() {
+        String csv = "email,firstName,lastName,birthDate\n"
+                + "test@example.com,John,Doe,24-08-1991\n"
+                + "young@example.com,Tim,Doe," + dateInPastMinusHalfMinAge.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")) + "\n";
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource(csv.getBytes()) {
+            @Override
+            public String getFilename() {
+                return "users.csv";
+            }
+        });
+
+        ImportJobStatus running = webTestClient.post()
+                .uri(apiPath + "/import")
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(ImportJobStatus.class)
+                .returnResult().getResponseBody();
+
+        assert running != null;
+        Assertions.assertEquals(ImportJobStatus.State.RUNNING, running.state());
+
+        ImportJobStatus status = webTestClient.get()
+                .uri(apiPath + "/import/" + running.id())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ImportJobStatus.class)
+                .returnResult().getResponseBody();
+
+        assert status != null;
+        Assertions.assertEquals(ImportJobStatus.State.COMPLETED, status.state());
+        Assertions.assertEquals(2, status.rowsProcessed());
+        Assertions.assertEquals(1, status.accepted());
+        Assertions.assertEquals(1, status.rejected());
+        Assertions.assertEquals(minAgeTemplate, status.rejections().get(0).reason());
+        Assertions.assertNotNull(userRepository.findById("test@example.com").block());
+    }
+
 }
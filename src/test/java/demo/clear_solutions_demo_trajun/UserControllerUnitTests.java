@@ -1,9 +1,16 @@
 package demo.clear_solutions_demo_trajun;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import demo.clear_solutions_demo_trajun.configuration.CodecConfiguration;
+import demo.clear_solutions_demo_trajun.configuration.IdempotencyWebFilter;
 import demo.clear_solutions_demo_trajun.controller.UserController;
+import demo.clear_solutions_demo_trajun.domain.PartialUser;
 import demo.clear_solutions_demo_trajun.domain.User;
 import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
 import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
+import demo.clear_solutions_demo_trajun.repository.IdempotencyRepository;
 import demo.clear_solutions_demo_trajun.service.UserService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
@@ -13,16 +20,22 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = UserController.class)
@@ -34,6 +47,9 @@ public class UserControllerUnitTests {
     @MockBean
     private final UserService userService;
 
+    @MockBean
+    private IdempotencyRepository idempotencyRepository;
+
 
     //@Value("${user.minAge}")
     private final int minAge = 18;
@@ -48,6 +64,9 @@ public class UserControllerUnitTests {
     String existsTemplate = "User with id %s already exists.";
     String minAgeTemplate = "User must be at least %d years old.".formatted(minAge);
 
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+
 
     public User getValidUser() {
         return new User("test@example.com", "John", "Doe", dateInPast, "123 Main St", "1234567890");
@@ -117,6 +136,28 @@ public class UserControllerUnitTests {
                 });
     }
 
+    @Test
+    void createUser_retried_with_idempotency_key_expect_replayed_response_and_single_create() {
+        User validUser = getValidUser();
+        when(userService.createUser(validUser)).thenReturn(Mono.just(validUser));
+        when(idempotencyRepository.findByKey("retry-1")).thenReturn(Mono.empty());
+        when(idempotencyRepository.insert(any())).thenReturn(Mono.empty());
+
+        for (int attempt = 0; attempt < 2; attempt++)
+            webTestClient
+                    .post()
+                    .uri(apiPath)
+                    .header(IdempotencyWebFilter.IDEMPOTENCY_KEY, "retry-1")
+                    .body(Mono.just(validUser), User.class)
+                    .exchange()
+                    .expectStatus()
+                    .isCreated()
+                    .expectBody(User.class)
+                    .isEqualTo(validUser);
+
+        verify(userService, times(1)).createUser(validUser);
+    }
+
     @Test
     void createUser_test_should_return_error_object_with_invalid_fields_desc_and_expect_status_bad_request() {
         User user = getValidUser();
@@ -403,6 +444,21 @@ public class UserControllerUnitTests {
                 .isEqualTo(List.of(user1));
     }
 
+    @Test
+    void findUsersByBirthDateRange_with_fields_expect_only_those_fields() {
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        when(userService.findUsersByBirthDateRange(fromDate, toDate, "email,birthDate")).thenReturn(Flux.just(
+                new PartialUser("test@example.com", null, null, LocalDate.of(1995, 1, 1), null, null)));
+
+        webTestClient.get()
+                .uri("/api/users/search?fromDate=01-01-1990&toDate=31-12-2000&fields=email,birthDate")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .json("[{\"email\":\"test@example.com\",\"birthDate\":\"01-01-1995\"}]", true);
+    }
+
     @Test
     void findUsersByBirthDateRange_toDate_inFuture_expect_bad_request() {
         LocalDate fromDate = LocalDate.of(1990, 1, 1);
@@ -431,4 +487,110 @@ public class UserControllerUnitTests {
                 .jsonPath("$.detail").isEqualTo(errorMessage);
     }
 
+    @Test
+    void findUserByPhoneNumber_found_and_not_found() {
+        User validUser = getValidUser();
+        when(userService.findUserByPhoneNumber("1234567890")).thenReturn(Mono.just(validUser));
+        when(userService.findUserByPhoneNumber("0000000000")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri(apiPath + "/by-phone/1234567890")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(User.class).isEqualTo(validUser);
+        webTestClient.get()
+                .uri(apiPath + "/by-phone/0000000000")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("User with phone number 0000000000 not found");
+    }
+
+    @Test
+    void findUsersByPhoneNumbers_comma_separated_expect_users() {
+        User validUser = getValidUser();
+        when(userService.findUsersByPhoneNumbers(List.of("1234567890", "0987654321"))).thenReturn(Flux.just(validUser));
+
+        webTestClient.get()
+                .uri(apiPath + "/by-phone?phoneNumber=1234567890,0987654321")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .isEqualTo(List.of(validUser));
+    }
+
+    @Test
+    void findUserById_accept_cbor_expect_cbor_body() throws IOException {
+        User validUser = getValidUser();
+        when(userService.findUserById(validUser.getEmail())).thenReturn(Mono.just(validUser));
+        byte[] body = webTestClient.get()
+                .uri(apiPath + "/" + validUser.getEmail())
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        User user = cborMapper.readValue(body, User.class);
+        Assertions.assertEquals(validUser, user);
+        Assertions.assertEquals(validUser.getBirthDate(), user.getBirthDate());
+    }
+
+    @Test
+    void createUser_cbor_body_expect_created() throws IOException {
+        User validUser = getValidUser();
+        when(userService.createUser(validUser)).thenReturn(Mono.just(validUser));
+        webTestClient.post()
+                .uri(apiPath)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .bodyValue(cborMapper.writeValueAsBytes(validUser))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(User.class)
+                .isEqualTo(validUser);
+    }
+
+    @Test
+    void findUsersByBirthDateRange_accept_smile_expect_smile_array() throws IOException {
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        User user1 = getValidUser();
+        user1.setBirthDate(LocalDate.of(1995, 1, 1));
+        User user2 = getValidUser();
+        user2.setBirthDate(LocalDate.of(1996, 1, 1));
+        user2.setEmail("some@mail.com");
+        when(userService.findUsersByBirthDateRange(fromDate, toDate)).thenReturn(Flux.just(user1, user2));
+
+        byte[] body = webTestClient.get()
+                .uri("/api/users/search?fromDate=01-01-1990&toDate=31-12-2000")
+                .accept(CodecConfiguration.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(CodecConfiguration.APPLICATION_SMILE)
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        List<User> users = List.of(smileMapper.readValue(body, User[].class));
+        Assertions.assertEquals(List.of(user1, user2), users);
+        Assertions.assertEquals(user2.getBirthDate(), users.get(1).getBirthDate());
+    }
+
+    @Test
+    void findUsersByBirthDateRange_accept_cbor_empty_result_expect_empty_array() throws IOException {
+        LocalDate fromDate = LocalDate.of(1990, 1, 1);
+        LocalDate toDate = LocalDate.of(2000, 12, 31);
+        when(userService.findUsersByBirthDateRange(fromDate, toDate)).thenReturn(Flux.empty());
+
+        byte[] body = webTestClient.get()
+                .uri("/api/users/search?fromDate=01-01-1990&toDate=31-12-2000")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        Assertions.assertEquals(0, cborMapper.readValue(body, User[].class).length);
+    }
+
 }
@@ -0,0 +1,103 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserDocumentConverters;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+public class UserDocumentConvertersUnitTests {
+
+    private final User user = new User("test@example.com", "John", "Doe", LocalDate.of(1991, 8, 4),
+            "123 Main St", "1234567890");
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(UserDocumentConverters.converters());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    void user_is_written_with_compact_birth_date_and_read_back() {
+        Document document = new Document();
+        converter.write(user, document);
+
+        Assertions.assertEquals(new Document("_id", "test@example.com")
+                .append("firstName", "John")
+                .append("lastName", "Doe")
+                .append("birthDate", 19910804)
+                .append("address", "123 Main St")
+                .append("phoneNumber", "1234567890")
+                .append("lastFirstKey", "doe\u0001john\u0001test@example.com")
+                .append("firstLastKey", "john\u0001doe\u0001test@example.com")
+                .append("phoneKey", 11234567890L)
+                .append("lastAccess", UserDocumentConverters.toLastAccessKey(LocalDate.now())), document);
+
+        User read = converter.read(User.class, document);
+        Assertions.assertEquals(user.toString(), read.toString());
+    }
+
+    @Test
+    void null_fields_are_omitted() {
+        Document document = new Document();
+        converter.write(new User("test@example.com", "John", "Doe", LocalDate.of(1991, 8, 4), null, null), document);
+
+        Assertions.assertFalse(document.containsKey("address"));
+        Assertions.assertFalse(document.containsKey("phoneNumber"));
+        Assertions.assertNull(converter.read(User.class, document).getAddress());
+    }
+
+    @Test
+    void legacy_document_with_date_is_readable() {
+        Date legacyDate = Date.from(LocalDate.of(1991, 8, 4).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Document legacy = new Document("_id", "test@example.com")
+                .append("firstName", "John")
+                .append("lastName", "Doe")
+                .append("birthDate", legacyDate)
+                .append("_class", "demo.clear_solutions_demo_trajun.domain.User");
+
+        Assertions.assertEquals(LocalDate.of(1991, 8, 4), converter.read(User.class, legacy).getBirthDate());
+    }
+
+    @Test
+    void range_query_parameters_use_the_stored_encoding() {
+        Query query = new Query(Criteria.where("birthDate").gt(LocalDate.of(1990, 1, 1)).lt(LocalDate.of(2000, 12, 31)));
+
+        Document mapped = new QueryMapper(converter).getMappedObject(query.getQueryObject(),
+                converter.getMappingContext().getPersistentEntity(User.class));
+
+        Assertions.assertEquals(new Document("birthDate", new Document("$gt", 19900101).append("$lt", 20001231)), mapped);
+    }
+
+    @Test
+    void birth_date_key_preserves_date_order() {
+        LocalDate date = LocalDate.of(1899, 12, 31);
+        int previous = UserDocumentConverters.toBirthDateKey(date);
+        for (int i = 0; i < 50_000; i++) {
+            date = date.plusDays(1);
+            int key = UserDocumentConverters.toBirthDateKey(date);
+            Assertions.assertTrue(key > previous);
+            Assertions.assertEquals(date, UserDocumentConverters.fromBirthDateKey(key));
+            previous = key;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.clear_solutions_demo_trajun.domain.ExportFormat;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.service.UserExportService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserExportServiceUnitTests {
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final UserExportService userExportService = new UserExportService(userRepository, objectMapper);
+
+    private final User plainUser = new User("test@example.com", "John", "Doe",
+            LocalDate.of(1991, 8, 4), null, "1234567890");
+
+    private final User quotedUser = new User("other@example.com", "Jane", "O\"Neil",
+            LocalDate.of(1985, 12, 24), "1 Main St, Springfield", null);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userExportService, "defaultBatchSize", 1000);
+        ReflectionTestUtils.setField(userExportService, "maxBatchSize", 5000);
+        ReflectionTestUtils.setField(userExportService, "rowsPerBuffer", 1);
+    }
+
+    private String export(ExportFormat format, Integer batchSize) {
+        return DataBufferUtils.join(userExportService.exportUsers(format, null, null, batchSize,
+                        DefaultDataBufferFactory.sharedInstance))
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8))
+                .block();
+    }
+
+    @Test
+    void exportUsers_csv_expect_header_and_escaped_rows() {
+        when(userRepository.streamAll(isNull(), isNull(), anyInt())).thenReturn(Flux.just(plainUser, quotedUser));
+
+        String csv = export(ExportFormat.CSV, null);
+
+        Assertions.assertEquals("""
+                email,firstName,lastName,birthDate,address,phoneNumber
+                test@example.com,John,Doe,04-08-1991,,1234567890
+                other@example.com,Jane,"O""Neil",24-12-1985,"1 Main St, Springfield",
+                """, csv);
+    }
+
+    @Test
+    void exportUsers_ndjson_expect_one_json_object_per_line() throws Exception {
+        when(userRepository.streamAll(isNull(), isNull(), anyInt())).thenReturn(Flux.just(plainUser, quotedUser));
+
+        String[] lines = export(ExportFormat.NDJSON, null).split("\n");
+
+        Assertions.assertEquals(2, lines.length);
+        User first = objectMapper.readValue(lines[0], User.class);
+        User second = objectMapper.readValue(lines[1], User.class);
+        Assertions.assertEquals(plainUser.getBirthDate(), first.getBirthDate());
+        Assertions.assertEquals(quotedUser.getLastName(), second.getLastName());
+        Assertions.assertTrue(lines[0].contains("\"birthDate\":\"04-08-1991\""));
+    }
+
+    @Test
+    void exportUsers_empty_collection_csv_expect_header_only() {
+        when(userRepository.streamAll(isNull(), isNull(), anyInt())).thenReturn(Flux.empty());
+
+        Assertions.assertEquals("email,firstName,lastName,birthDate,address,phoneNumber\n",
+                export(ExportFormat.CSV, null));
+    }
+
+    @Test
+    void exportUsers_batch_size_above_max_expect_capped() {
+        when(userRepository.streamAll(isNull(), isNull(), anyInt())).thenReturn(Flux.empty());
+
+        export(ExportFormat.NDJSON, 1_000_000);
+
+        verify(userRepository).streamAll(null, null, 5000);
+    }
+
+    @Test
+    void exportUsers_toDate_before_fromDate_expect_bad_request() {
+        StepVerifier.create(userExportService.exportUsers(ExportFormat.CSV, LocalDate.of(2000, 1, 1),
+                        LocalDate.of(1990, 1, 1), null, DefaultDataBufferFactory.sharedInstance))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,112 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.controller.UserImportController;
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
+import demo.clear_solutions_demo_trajun.repository.IdempotencyRepository;
+import demo.clear_solutions_demo_trajun.service.UserImportService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = UserImportController.class)
+@AutoConfigureWebTestClient
+public class UserImportControllerUnitTests {
+
+    private static final String apiPath = "/api/users/import";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserImportService userImportService;
+
+    @MockBean
+    private IdempotencyRepository idempotencyRepository;
+
+    @Test
+    void importUsers_expect_accepted_running_job_and_import_run_to_the_end() {
+        AtomicBoolean finished = new AtomicBoolean();
+        when(userImportService.trackImport(eq("users.csv"), any()))
+                .thenReturn(Flux.concat(Mono.just(status(ImportJobStatus.State.RUNNING)),
+                        Mono.fromSupplier(() -> {
+                            finished.set(true);
+                            return status(ImportJobStatus.State.COMPLETED);
+                        })));
+
+        webTestClient.post()
+                .uri(apiPath)
+                .body(BodyInserters.fromMultipartData(csv()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().location(apiPath + "/job-1")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("job-1")
+                .jsonPath("$.state").isEqualTo("RUNNING");
+
+        Assertions.assertTrue(finished.get());
+    }
+
+    @Test
+    void importUsers_failing_after_registration_expect_accepted_running_job() {
+        when(userImportService.trackImport(eq("users.csv"), any()))
+                .thenReturn(Flux.concat(Mono.just(status(ImportJobStatus.State.RUNNING)),
+                        Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing required columns"))));
+
+        webTestClient.post()
+                .uri(apiPath)
+                .body(BodyInserters.fromMultipartData(csv()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.state").isEqualTo("RUNNING");
+    }
+
+    @Test
+    void importUsers_without_file_part_expect_bad_request() {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("other", "value");
+
+        webTestClient.post()
+                .uri(apiPath)
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private static MultiValueMap<String, HttpEntity<?>> csv() {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource("email,firstName,lastName,birthDate\n".getBytes()) {
+            @Override
+            public String getFilename() {
+                return "users.csv";
+            }
+        });
+        return body.build();
+    }
+
+    private static ImportJobStatus status(ImportJobStatus.State state) {
+        return new ImportJobStatus("job-1", "users.csv", state, 0, 0, 0, 0, Instant.EPOCH,
+                state == ImportJobStatus.State.RUNNING ? null : Instant.EPOCH, null, List.of());
+    }
+}
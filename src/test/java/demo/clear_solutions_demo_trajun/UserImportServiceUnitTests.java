@@ -0,0 +1,162 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.ImportJobStatus;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.service.CsvRecordParser;
+import demo.clear_solutions_demo_trajun.service.InsertOutcome;
+import demo.clear_solutions_demo_trajun.service.UserImportService;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserImportServiceUnitTests {
+
+    private final UserService userService = Mockito.mock(UserService.class);
+
+    private final UserImportService userImportService = new UserImportService(userService,
+            Validation.buildDefaultValidatorFactory().getValidator());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(userImportService, "maxRecordLength", 1024);
+        ReflectionTestUtils.setField(userImportService, "maxReportedRejections", 10);
+        ReflectionTestUtils.setField(userImportService, "retainedJobs", 10);
+
+        // "dup@example.com" plays an existing user
+        when(userService.insertUsers(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            return Flux.fromIterable(users).map(user -> user.getEmail().startsWith("dup")
+                    ? new InsertOutcome(user, new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "User with id " + user.getEmail() + " already exists."))
+                    : new InsertOutcome(user, null));
+        });
+    }
+
+    // Splits the file into tiny buffers so rows straddle buffer boundaries
+    private static Flux<DataBuffer> content(String csv) {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 7)
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                    Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 7))));
+        return Flux.fromIterable(buffers);
+    }
+
+    @Test
+    void importUsers_mixed_rows_expect_counts_and_rejection_reasons() {
+        String csv = """
+                email,firstName,lastName,birthDate,address,phoneNumber
+                a@example.com,John,Doe,24-08-1991,"1 Main St, \"\"Springfield\"\"",1234567890
+                not-an-email,John,Doe,24-08-1991,,
+                dup@example.com,Jane,Doe,01-01-1980,,
+                b@example.com,Ann,Lee,1980-01-01,,
+                c@example.com,Bob,Ray,01-01-1970,"multi
+                line",
+                """;
+
+        ImportJobStatus status = userImportService.importUsers("users.csv", content(csv)).block();
+
+        Assertions.assertNotNull(status);
+        Assertions.assertEquals(ImportJobStatus.State.COMPLETED, status.state());
+        Assertions.assertEquals(5, status.rowsProcessed());
+        Assertions.assertEquals(2, status.accepted());
+        Assertions.assertEquals(3, status.rejected());
+        Assertions.assertEquals(List.of(2L, 3L, 4L),
+                status.rejections().stream().map(ImportJobStatus.Rejection::row).sorted().toList());
+        Assertions.assertEquals(List.of(
+                        "User with id dup@example.com already exists.",
+                        "birthDate: must match dd-MM-yyyy",
+                        "email: must be a well-formed email address"),
+                status.rejections().stream().map(ImportJobStatus.Rejection::reason).sorted().toList());
+        verify(userService, times(2)).insertUsers(anyList());
+        verify(userService).insertUsers(List.of(
+                new User("c@example.com", "Bob", "Ray", LocalDate.of(1970, 1, 1), "multi\nline", null)));
+    }
+
+    @Test
+    void importUsers_missing_required_column_expect_bad_request_and_failed_job() {
+        StepVerifier.create(userImportService.importUsers("users.csv", content("email,firstName\na@b.com,John\n")))
+                .expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+
+        ImportJobStatus status = userImportService.getJobStatuses().blockFirst();
+        Assertions.assertNotNull(status);
+        Assertions.assertEquals(ImportJobStatus.State.FAILED, status.state());
+        Assertions.assertEquals(status, userImportService.getJobStatus(status.id()).block());
+    }
+
+    @Test
+    void importUsers_record_over_max_length_expect_bad_request() {
+        ReflectionTestUtils.setField(userImportService, "maxRecordLength", 60);
+
+        StepVerifier.create(userImportService.importUsers("users.csv", content(
+                        "email,firstName,lastName,birthDate\n\"" + "x".repeat(100) + "\n")))
+                .expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.BAD_REQUEST,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+    }
+
+    @Test
+    void trackImport_emits_running_job_before_the_file_is_read() {
+        Sinks.Many<DataBuffer> upload = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(userImportService.trackImport("users.csv", upload.asFlux()))
+                .assertNext(status -> {
+                    Assertions.assertEquals(ImportJobStatus.State.RUNNING, status.state());
+                    Assertions.assertEquals(ImportJobStatus.State.RUNNING,
+                            userImportService.getJobStatus(status.id()).block().state());
+                })
+                .then(() -> {
+                    content("email,firstName,lastName,birthDate\na@example.com,John,Doe,24-08-1991\n")
+                            .subscribe(upload::tryEmitNext);
+                    upload.tryEmitComplete();
+                })
+                .assertNext(status -> {
+                    Assertions.assertEquals(ImportJobStatus.State.COMPLETED, status.state());
+                    Assertions.assertEquals(1, status.accepted());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getJobStatus_unknown_job_expect_not_found() {
+        StepVerifier.create(userImportService.getJobStatus("nope"))
+                .expectErrorSatisfies(e -> Assertions.assertEquals(HttpStatus.NOT_FOUND,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+    }
+
+    @Test
+    void csvRecordParser_quoted_field_spanning_lines_expect_single_record() {
+        CsvRecordParser parser = new CsvRecordParser(100);
+
+        Assertions.assertNull(parser.feed("a,\"b"));
+        Assertions.assertTrue(parser.hasIncompleteRecord());
+        Assertions.assertEquals(List.of("a", "b\n\"c\"", ""), parser.feed("\"\"c\"\"\",\r"));
+        Assertions.assertFalse(parser.hasIncompleteRecord());
+    }
+}
@@ -0,0 +1,81 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions.Partition;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.bornOn;
+
+// Three databases on the one mongod, the third partition in a collection of its own
+@SpringBootTest(properties = {"user.partitioning.partitions=users_a,users_b,users_c.people",
+        "user.warm-up.enabled=false"})
+@Testcontainers
+public class UserPartitionsIntegrationTests {
+
+    @Container
+    @ServiceConnection
+    private final static MongoDBContainer mongoDbContainer = new MongoDBContainer(DockerImageName.parse("mongo:latest"));
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserPartitions userPartitions;
+
+    private final List<User> users = IntStream.range(0, 30)
+            .mapToObj(i -> bornOn("user" + i + "@example.com", LocalDate.of(1960, 1, 1).plusDays(i * 397L % 9000)))
+            .toList();
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll().block();
+        Flux.fromIterable(users).concatMap(userRepository::insert).blockLast();
+    }
+
+    @Test
+    void users_are_stored_in_their_home_partition_only() {
+        Set<String> used = users.stream().map(user -> userPartitions.partitionOf(user.getEmail()).name())
+                .collect(Collectors.toSet());
+        Assertions.assertTrue(used.size() > 1, "All users hash to " + used);
+
+        for (User user : users) {
+            Partition home = userPartitions.partitionOf(user.getEmail());
+            for (Partition partition : userPartitions.all())
+                Assertions.assertEquals(partition == home, partition.template()
+                        .exists(Query.query(Criteria.where("_id").is(user.getEmail())), User.class, partition.collection())
+                        .block(), user.getEmail() + " in " + partition.name());
+            Assertions.assertEquals(user.getBirthDate(), userRepository.findById(user.getEmail()).block().getBirthDate());
+        }
+    }
+
+    @Test
+    void birth_date_search_merges_the_partitions_in_order() {
+        List<User> found = userRepository.findByBirthDateBetween(LocalDate.of(1950, 1, 1), LocalDate.of(2000, 1, 1))
+                .collectList().block();
+
+        Assertions.assertEquals(users.stream().map(User::getBirthDate).sorted().toList(),
+                found.stream().map(User::getBirthDate).toList());
+        Assertions.assertEquals(users.stream().map(User::getEmail).collect(Collectors.toSet()),
+                found.stream().map(User::getEmail).collect(Collectors.toSet()));
+    }
+}
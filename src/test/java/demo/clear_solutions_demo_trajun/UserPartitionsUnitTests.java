@@ -0,0 +1,140 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions;
+import demo.clear_solutions_demo_trajun.repository.UserPartitions.Partition;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.UserRepositoryCustomImpl;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.bornIn;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserPartitionsUnitTests {
+
+    private final ReactiveMongoTemplate first = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private final ReactiveMongoTemplate second = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private final UserPartitions partitions = new UserPartitions(List.of(
+            new Partition("users1.usr", first, "usr"), new Partition("users2.usr", second, "usr")), false);
+
+    @Test
+    void adding_a_partition_only_moves_users_into_it() {
+        List<Partition> three = IntStream.range(0, 3)
+                .mapToObj(i -> new Partition("users" + i + ".usr", first, "usr"))
+                .toList();
+        List<Partition> four = new ArrayList<>(three);
+        four.add(new Partition("users3.usr", first, "usr"));
+        UserPartitions before = new UserPartitions(three, false);
+        UserPartitions after = new UserPartitions(four, false);
+
+        int users = 20_000;
+        int[] perPartition = new int[3];
+        int moved = 0;
+        for (int i = 0; i < users; i++) {
+            String email = "user" + i + "@example.com";
+            Partition old = before.partitionOf(email);
+            Assertions.assertSame(old, before.partitionOf(email));
+            perPartition[three.indexOf(old)]++;
+            Partition now = after.partitionOf(email);
+            if (now != old) {
+                Assertions.assertSame(four.get(3), now);
+                moved++;
+            }
+        }
+        for (int count : perPartition)
+            Assertions.assertTrue(count > users / 5 && count < users / 2, "uneven partitions " + count);
+        Assertions.assertTrue(moved > users / 8 && moved < users * 3 / 8, moved + " users moved");
+    }
+
+    @Test
+    void range_search_merges_partitions_in_birth_date_order() {
+        when(first.find(any(Query.class), eq(User.class), eq("usr")))
+                .thenReturn(Flux.just(bornIn("a@b.c", 1990), bornIn("c@d.e", 1993)));
+        when(second.find(any(Query.class), eq(User.class), eq("usr")))
+                .thenReturn(Flux.just(bornIn("e@f.g", 1991), bornIn("g@h.i", 1992)));
+
+        StepVerifier.create(new UserRepositoryCustomImpl(partitions)
+                        .findByBirthDateBetween(LocalDate.of(1980, 1, 1), LocalDate.of(2000, 1, 1))
+                        .map(user -> user.getBirthDate().getYear()))
+                .expectNext(1990, 1991, 1992, 1993)
+                .verifyComplete();
+    }
+
+    @Test
+    void bulk_insert_reports_failures_at_their_position_in_the_batch() {
+        List<User> users = IntStream.range(0, 20).mapToObj(i -> bornIn("user" + i + "@example.com", 1990)).toList();
+        ReactiveBulkOperations firstBulk = bulkOps(first);
+        ReactiveBulkOperations secondBulk = bulkOps(second);
+        when(firstBulk.execute()).thenReturn(Mono.error(new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), List.of(new BulkWriteError(11000, "duplicate", new BsonDocument(), 0)),
+                null, new ServerAddress(), Set.of())));
+        when(secondBulk.execute()).thenReturn(Mono.just(BulkWriteResult.unacknowledged()));
+        for (ReactiveMongoTemplate template : List.of(first, second))
+            when(template.find(any(Query.class), eq(Document.class), eq("usr_cold"))).thenReturn(Flux.empty());
+        int firstInFirstPartition = IntStream.range(0, users.size())
+                .filter(i -> partitions.partitionOf(users.get(i).getId()).template() == first)
+                .findFirst().orElseThrow();
+
+        StepVerifier.create(new UserRepositoryCustomImpl(partitions).insertUnordered(users))
+                .assertNext(errors -> Assertions.assertEquals(List.of(firstInFirstPartition),
+                        errors.stream().map(BulkWriteError::getIndex).toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void repository_routes_point_operations_to_the_partition_of_the_email() {
+        User user = bornIn("a@b.c", 1990);
+        ReactiveMongoTemplate home = partitions.partitionOf(user.getId()).template();
+        ReactiveMongoTemplate other = home == first ? second : first;
+        when(home.save(user, "usr")).thenReturn(Mono.just(user));
+
+        try (MongoClient client = MongoClients.create("mongodb://localhost:1")) {
+            UserRepository repository = new ReactiveMongoRepositoryFactory(new ReactiveMongoTemplate(client, "test"))
+                    .getRepository(UserRepository.class, RepositoryFragments.just(new UserRepositoryCustomImpl(partitions)));
+
+            StepVerifier.create(repository.save(user)).expectNext(user).verifyComplete();
+        }
+
+        verify(other, never()).save(any(User.class), anyString());
+    }
+
+    private static ReactiveBulkOperations bulkOps(ReactiveMongoTemplate template) {
+        ReactiveBulkOperations bulk = Mockito.mock(ReactiveBulkOperations.class);
+        when(template.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class, "usr")).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+        return bulk;
+    }
+}
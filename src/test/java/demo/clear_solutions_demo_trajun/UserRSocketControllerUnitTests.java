@@ -0,0 +1,179 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserOperationResult;
+import demo.clear_solutions_demo_trajun.domain.UserSearchRequest;
+import demo.clear_solutions_demo_trajun.exception.ApiErrors;
+import demo.clear_solutions_demo_trajun.exception.ApiFieldErrorDetail;
+import demo.clear_solutions_demo_trajun.exception.UserNotFoundException;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import io.rsocket.exceptions.ApplicationErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.user;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+// Synthetic warm-up requests would reach the mocked service
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "user.warm-up.enabled=false")
+public class UserRSocketControllerUnitTests {
+
+    @MockBean
+    private UserService userService;
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    private final LocalDate dateInPast = LocalDate.now().minusYears(36);
+
+    @BeforeEach
+    void setUp() {
+        requester = requesterBuilder.websocket(URI.create("ws://localhost:" + port + "/rsocket"));
+        when(userService.withBulkImportDurability(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userService.withBulkUpdateDurability(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        requester.dispose();
+    }
+
+    @Test
+    void get_should_return_user() {
+        User user = user("test@example.com");
+        when(userService.findUserById("test@example.com")).thenReturn(Mono.just(user));
+
+        StepVerifier.create(requester.route("users.get").data("test@example.com").retrieveMono(User.class))
+                .assertNext(found -> Assertions.assertEquals(user.getLastName(), found.getLastName()))
+                .verifyComplete();
+    }
+
+    @Test
+    void get_unknown_user_should_fail_with_not_found_problem() {
+        when(userService.findUserById("missing@example.com")).thenReturn(Mono.empty());
+
+        StepVerifier.create(requester.route("users.get").data("missing@example.com").retrieveMono(User.class))
+                .expectErrorSatisfies(e -> {
+                    Assertions.assertInstanceOf(ApplicationErrorException.class, e);
+                    Assertions.assertTrue(e.getMessage().contains("\"status\":404"), e.getMessage());
+                    Assertions.assertTrue(e.getMessage().contains(
+                            UserNotFoundException.fromId("missing@example.com").getMessage()), e.getMessage());
+                })
+                .verify();
+    }
+
+    @Test
+    void create_invalid_user_should_fail_with_field_errors() {
+        User invalid = user("not-an-email");
+        invalid.setFirstName("");
+
+        StepVerifier.create(requester.route("users.create").data(invalid).retrieveMono(User.class))
+                .expectErrorSatisfies(e -> {
+                    Assertions.assertTrue(e.getMessage().contains("\"status\":400"), e.getMessage());
+                    Assertions.assertTrue(e.getMessage().contains("\"field\":\"firstName\""), e.getMessage());
+                    Assertions.assertTrue(e.getMessage().contains("\"field\":\"email\""), e.getMessage());
+                })
+                .verify();
+    }
+
+    @Test
+    void search_should_stream_users() {
+        LocalDate from = dateInPast.minusYears(1);
+        LocalDate to = dateInPast.plusYears(1);
+        when(userService.findUsersByBirthDateRange(from, to))
+                .thenReturn(Flux.just(user("a@example.com"), user("b@example.com")));
+
+        StepVerifier.create(requester.route("users.search").data(new UserSearchRequest(from, to))
+                        .retrieveFlux(User.class).map(User::getEmail))
+                .expectNext("a@example.com", "b@example.com")
+                .verifyComplete();
+    }
+
+    @Test
+    void bulk_create_should_report_outcome_per_user() {
+        when(userService.createUser(argThat(u -> u != null && u.getEmail().equals("new@example.com"))))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(userService.createUser(argThat(u -> u != null && u.getEmail().equals("dup@example.com"))))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "User with id dup@example.com already exists.")));
+        User invalid = user("bad@example.com");
+        invalid.setPhoneNumber("12");
+
+        StepVerifier.create(requester.route("users.create.bulk")
+                        .data(Flux.just(user("new@example.com"), user("dup@example.com"), invalid))
+                        .retrieveFlux(UserOperationResult.class))
+                .expectNext(new UserOperationResult("new@example.com", 201, null))
+                .expectNext(new UserOperationResult("dup@example.com", 400, "User with id dup@example.com already exists."))
+                .assertNext(result -> {
+                    Assertions.assertEquals(400, result.status());
+                    Assertions.assertEquals(ApiErrors.INVALID_CONTENT, result.detail());
+                    Assertions.assertEquals(List.of("phoneNumber"),
+                            result.error().stream().map(ApiFieldErrorDetail::getField).toList());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void bulk_create_does_not_reveal_unexpected_failures() {
+        when(userService.createUser(any())).thenReturn(Mono.error(new IllegalStateException("connection refused")));
+
+        StepVerifier.create(requester.route("users.create.bulk")
+                        .data(Flux.just(user("a@example.com")))
+                        .retrieveFlux(UserOperationResult.class))
+                .assertNext(result -> {
+                    Assertions.assertEquals(500, result.status());
+                    Assertions.assertNull(result.detail());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void bulk_update_reports_the_status_of_the_single_update() {
+        when(userService.fullyUpdateUser(eq("a@example.com"), any()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+
+        StepVerifier.create(requester.route("users.update.bulk")
+                        .data(Flux.just(user("a@example.com")))
+                        .retrieveFlux(UserOperationResult.class))
+                .expectNext(new UserOperationResult("a@example.com", 200, null))
+                .verifyComplete();
+    }
+
+    @Test
+    void bulk_create_requests_users_as_results_are_consumed() {
+        when(userService.createUser(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        Flux<User> users = Flux.range(0, 1000).map(i -> user("user" + i + "@example.com"));
+
+        StepVerifier.create(requester.route("users.create.bulk").data(users)
+                        .retrieveFlux(UserOperationResult.class), 0)
+                .thenRequest(5)
+                .expectNextCount(5)
+                .thenRequest(995)
+                .expectNextCount(995)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,51 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.domain.UserUpdateDTO;
+import demo.clear_solutions_demo_trajun.exception.UserRuleViolationException;
+import demo.clear_solutions_demo_trajun.service.UserRules;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public class UserRulesUnitTests {
+
+    private static final DuplicateKeyException DUPLICATE_PHONE = new DuplicateKeyException(
+            "E11000 duplicate key error collection: cleasol.usr index: phoneKey dup key: { phoneKey: 11234567890 }");
+
+    @Test
+    void user_must_be_older_than_min_age() {
+        Assertions.assertTrue(UserRules.isOldEnough(LocalDate.now().minusYears(19), 18));
+        Assertions.assertFalse(UserRules.isOldEnough(LocalDate.now().minusYears(18), 18));
+
+        UserRuleViolationException e = Assertions.assertThrows(UserRuleViolationException.class,
+                () -> UserRules.checkAge(LocalDate.now().minusYears(10), 18));
+        Assertions.assertEquals("User must be at least 18 years old.", e.getReason());
+    }
+
+    @Test
+    void duplicate_phone_is_taken_only_when_the_number_changes() {
+        Assertions.assertTrue(UserRules.isPhoneTaken(DUPLICATE_PHONE, null, "1234567890"));
+        Assertions.assertTrue(UserRules.isPhoneTaken(DUPLICATE_PHONE, "0987654321", "1234567890"));
+        Assertions.assertFalse(UserRules.isPhoneTaken(DUPLICATE_PHONE, "1234567890", "1234567890"));
+        Assertions.assertFalse(UserRules.isPhoneTaken(new DuplicateKeyException(
+                "E11000 duplicate key error collection: cleasol.usr index: _id_ dup key: { _id: \"a@b.c\" }"), null, "1234567890"));
+    }
+
+    @Test
+    void partial_update_copies_present_fields_only() {
+        User user = new User("a@b.c", "John", "Doe", LocalDate.of(1991, 8, 4), "1 Main St", "1234567890");
+        UserUpdateDTO update = new UserUpdateDTO();
+        update.setAddress(Optional.of("2 Main St"));
+        update.setPhoneNumber(Optional.empty());
+
+        UserRules.applyUpdate(user, update);
+
+        Assertions.assertEquals("John", user.getFirstName());
+        Assertions.assertEquals("2 Main St", user.getAddress());
+        Assertions.assertNull(user.getPhoneNumber());
+    }
+}
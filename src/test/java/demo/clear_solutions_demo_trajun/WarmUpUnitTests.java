@@ -0,0 +1,84 @@
+package demo.clear_solutions_demo_trajun;
+
+import demo.clear_solutions_demo_trajun.configuration.WarmUp;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WarmUpUnitTests {
+
+    private final ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private final List<HttpMethod> methods = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Test
+    void ready_once_latency_settles() {
+        when(mongoTemplate.executeCommand(anyString())).thenReturn(Mono.just(new Document("ok", 1)));
+        // The first round is slow, as on a cold JVM
+        WarmUp warmUp = warmUp(Duration.ofSeconds(5), request -> Mono.delay(Duration.ofMillis(requests.incrementAndGet() <= 6 ? 100 : 0))
+                .thenReturn(ClientResponse.create(HttpStatus.NOT_FOUND).build()));
+        Assertions.assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+        StepVerifier.create(warmUp.run("http://localhost")).verifyComplete();
+
+        Assertions.assertEquals(Status.UP, warmUp.health().getStatus());
+        Assertions.assertEquals(3, warmUp.health().getDetails().get("rounds"));
+        Assertions.assertTrue(methods.stream().allMatch(method -> method == HttpMethod.GET
+                || method == HttpMethod.POST || method == HttpMethod.PATCH));
+        verify(mongoTemplate, times(4)).executeCommand(anyString());
+    }
+
+    @Test
+    void not_ready_while_running_and_ready_after_max_duration_anyway() {
+        when(mongoTemplate.executeCommand(anyString())).thenReturn(Mono.error(new IllegalStateException("no server")));
+        Sinks.Empty<Void> slow = Sinks.empty();
+        WarmUp warmUp = warmUp(Duration.ofSeconds(2), request -> slow.asMono().then(Mono.just(ClientResponse.create(HttpStatus.OK).build())));
+
+        StepVerifier.create(warmUp.run("http://localhost"))
+                .expectSubscription()
+                .then(() -> Assertions.assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        Assertions.assertEquals(Status.UP, warmUp.health().getStatus());
+    }
+
+    @Test
+    void disabled_warm_up_is_ready_at_once() {
+        WarmUp warmUp = new WarmUp(mongoTemplate, WebClient.builder(), false, 4, Duration.ofMillis(50), 2,
+                Duration.ofSeconds(1));
+
+        Assertions.assertEquals(Status.UP, warmUp.health().getStatus());
+    }
+
+    private WarmUp warmUp(Duration maxDuration, ExchangeFunction exchange) {
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> {
+            methods.add(request.method());
+            return exchange.exchange(request);
+        });
+        return new WarmUp(mongoTemplate, webClient, true, 4, Duration.ofMillis(50), 2, maxDuration);
+    }
+}
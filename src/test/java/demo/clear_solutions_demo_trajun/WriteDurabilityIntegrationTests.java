@@ -0,0 +1,96 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import demo.clear_solutions_demo_trajun.configuration.WriteDurabilityWebFilter;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// The container is a single-node replica set, so majority writes are acknowledged as well
+@SpringBootTest(properties = "user.warm-up.enabled=false")
+@Testcontainers
+@AutoConfigureWebTestClient
+public class WriteDurabilityIntegrationTests {
+
+    @Container
+    @ServiceConnection
+    private final static MongoDBContainer mongoDbContainer = new MongoDBContainer(DockerImageName.parse("mongo:latest"));
+
+    private static final List<BsonDocument> inserts = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class CapturedInserts {
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer captureInserts() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (event.getCommandName().equals("insert")
+                            && event.getCommand().getString("insert").getValue().equals("usr"))
+                        inserts.add(event.getCommand().clone());
+                }
+            });
+        }
+    }
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll().block();
+        inserts.clear();
+    }
+
+    @Test
+    void create_is_acknowledged_with_the_write_concern_of_the_requested_durability() {
+        for (WriteDurability durability : WriteDurability.values()) {
+            String email = durability.name().toLowerCase(Locale.ROOT) + "@example.com";
+            inserts.clear();
+
+            webTestClient.post()
+                    .uri("/api/users")
+                    .header(WriteDurabilityWebFilter.WRITE_DURABILITY, durability.name().toLowerCase(Locale.ROOT))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue("""
+                            {"email":"%s","firstName":"John","lastName":"Doe","birthDate":"04-08-1991"}"""
+                            .formatted(email))
+                    .exchange()
+                    .expectStatus().isCreated();
+
+            Assertions.assertEquals(1, inserts.size(), durability.name());
+            WriteConcern expected = durability.getWriteConcern();
+            BsonDocument sent = inserts.get(0).getDocument("writeConcern", new BsonDocument());
+            // The server default is not sent at all
+            Assertions.assertEquals(expected.asDocument(), sent, durability.name());
+            Assertions.assertTrue(expected.isAcknowledged(), durability.name());
+            Assertions.assertNotNull(userRepository.findById(email).block(), durability.name());
+        }
+    }
+}
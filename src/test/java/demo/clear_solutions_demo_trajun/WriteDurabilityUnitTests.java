@@ -0,0 +1,106 @@
+package demo.clear_solutions_demo_trajun;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import demo.clear_solutions_demo_trajun.configuration.WriteDurabilityWebFilter;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.ContextAwareMongoTemplate;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.repository.WriteDurability;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static demo.clear_solutions_demo_trajun.TestUsers.user;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+public class WriteDurabilityUnitTests {
+
+    private final UserRepository repository = Mockito.mock(UserRepository.class);
+
+    private final UserService userService = new UserService(repository);
+
+    private final List<WriteDurability> used = new ArrayList<>();
+
+    @Test
+    void template_applies_the_durability_in_context_to_its_collections() {
+        try (MongoClient client = MongoClients.create("mongodb://localhost:1")) {
+            ContextAwareMongoTemplate template = new ContextAwareMongoTemplate(
+                    new SimpleReactiveMongoDatabaseFactory(client, "test"),
+                    new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+
+            StepVerifier.create(template.getCollection("usr")
+                            .contextWrite(context -> WriteDurability.override(context, WriteDurability.DURABLE)))
+                    .assertNext(collection -> Assertions.assertEquals(WriteConcern.MAJORITY.withJournal(true),
+                            collection.getWriteConcern()))
+                    .verifyComplete();
+            StepVerifier.create(template.getCollection("usr"))
+                    .assertNext(collection -> Assertions.assertEquals(WriteConcern.ACKNOWLEDGED, collection.getWriteConcern()))
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void each_operation_class_writes_with_its_configured_durability() {
+        configure();
+        when(repository.findById(any(String.class))).thenReturn(Mono.empty());
+        when(repository.save(any(User.class))).thenAnswer(invocation -> record(Mono.just(invocation.getArgument(0))));
+        when(repository.insertUnordered(anyList())).thenAnswer(invocation -> record(Mono.just(List.of())));
+
+        userService.createUser(user("a@b.c")).block();
+        userService.insertUsers(List.of(user("d@e.f"))).blockLast();
+        userService.withBulkUpdateDurability(Flux.defer(() -> userService.updateUser(user("a@b.c")))).blockLast();
+
+        Assertions.assertEquals(List.of(WriteDurability.STANDARD, WriteDurability.FAST, WriteDurability.DURABLE), used);
+    }
+
+    @Test
+    void request_override_wins_over_the_operation_setting() {
+        configure();
+        when(repository.findById(any(String.class))).thenReturn(Mono.empty());
+        when(repository.save(any(User.class))).thenAnswer(invocation -> record(Mono.just(invocation.getArgument(0))));
+        WriteDurabilityWebFilter filter = new WriteDurabilityWebFilter(true);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/users")
+                .header(WriteDurabilityWebFilter.WRITE_DURABILITY, "Durable"));
+
+        filter.filter(exchange, e -> userService.createUser(user("a@b.c")).then()).block();
+
+        Assertions.assertEquals(List.of(WriteDurability.DURABLE), used);
+        StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/users")
+                        .header(WriteDurabilityWebFilter.WRITE_DURABILITY, "eventually")), e -> Mono.empty()))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    private void configure() {
+        ReflectionTestUtils.setField(userService, "minAge", 18);
+        ReflectionTestUtils.setField(userService, "singleWriteDurability", WriteDurability.STANDARD);
+        ReflectionTestUtils.setField(userService, "bulkImportDurability", WriteDurability.FAST);
+        ReflectionTestUtils.setField(userService, "bulkUpdateDurability", WriteDurability.DURABLE);
+    }
+
+    private <T> Mono<T> record(Mono<T> write) {
+        return Mono.deferContextual(context -> {
+            used.add(WriteDurability.from(context));
+            return write;
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package demo.clear_solutions_demo_trajun.benchmark;
+
+import demo.clear_solutions_demo_trajun.controller.UserController;
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserRepository;
+import demo.clear_solutions_demo_trajun.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code GET /api/users/{email}} through {@link UserController} and {@link UserService} over an in-memory
+ * repository, for an existing user and for a 404. The {@code eager*} variants reproduce the previous error
+ * handling (formatted message and stack trace built on every call) for comparison.
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ErrorPathBenchmark {
+
+    private static final String EXISTING = "test@example.com";
+    private static final String MISSING = "missing@example.com";
+
+    private UserController userController;
+    private UserService userService;
+    private BlackholeSubscriber subscriber;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        Mono<User> found = Mono.just(new User(EXISTING, "John", "Doe", LocalDate.of(1991, 8, 4), null, null));
+        UserRepository repository = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findById"))
+                        return EXISTING.equals(args[0]) ? found : Mono.empty();
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        userService = new UserService(repository);
+        userController = new UserController(userService);
+        subscriber = new BlackholeSubscriber(blackhole);
+    }
+
+    @Benchmark
+    public void found() {
+        userController.findUsersByBirthDateRange(EXISTING).subscribe(subscriber);
+    }
+
+    @Benchmark
+    public void notFound() {
+        userController.findUsersByBirthDateRange(MISSING).subscribe(subscriber);
+    }
+
+    @Benchmark
+    public void eagerFound() {
+        userService.findUserById(EXISTING)
+                .switchIfEmpty(Mono.error(eagerNotFound(EXISTING)))
+                .subscribe(subscriber);
+    }
+
+    @Benchmark
+    public void eagerNotFound() {
+        userService.findUserById(MISSING)
+                .switchIfEmpty(Mono.error(eagerNotFound(MISSING)))
+                .subscribe(subscriber);
+    }
+
+    private static Exception eagerNotFound(String id) {
+        return new Exception(String.format("User with email %s not found", id));
+    }
+
+    private record BlackholeSubscriber(Blackhole blackhole) implements CoreSubscriber<User> {
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(User user) {
+            blackhole.consume(user);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            blackhole.consume(t);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
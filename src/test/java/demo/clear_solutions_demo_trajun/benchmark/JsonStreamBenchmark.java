@@ -0,0 +1,103 @@
+package demo.clear_solutions_demo_trajun.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import demo.clear_solutions_demo_trajun.configuration.CachingJackson2JsonEncoder;
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streamed {@code GET /api/users/search} output: a 1000 element {@link Flux} of users through the JSON encoder,
+ * plus decoding a single user. {@code stock} is the previous setup (stock encoder, {@code @JsonFormat} dates,
+ * reflective property access), {@code tuned} is the current one (cached typed writer, hand-written date
+ * (de)serializers, Blackbird). Run with {@code -prof gc} for allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonStreamBenchmark {
+
+    private static final ResolvableType USER_TYPE = ResolvableType.forClass(User.class);
+
+    @Param({"stock", "tuned"})
+    public String variant;
+
+    private Jackson2JsonEncoder encoder;
+    private ObjectReader userReader;
+    private List<User> users;
+    private byte[] userBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper;
+        if (variant.equals("stock")) {
+            mapper = Jackson2ObjectMapperBuilder.json().mixIn(User.class, FormattedBirthDate.class).build();
+            encoder = new Jackson2JsonEncoder(mapper);
+        } else {
+            mapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build();
+            encoder = new CachingJackson2JsonEncoder(mapper);
+        }
+        userReader = mapper.readerFor(User.class);
+
+        users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            users.add(UserCodecBenchmark.user(i));
+        userBytes = mapper.writeValueAsBytes(users.get(0));
+        if (!new String(userBytes).contains("\"birthDate\":\"01-01-1960\""))
+            throw new IllegalStateException("Unexpected birthDate format: " + new String(userBytes));
+    }
+
+    @Benchmark
+    public long encodeSearchStream() {
+        return encoder.encode(Flux.fromIterable(users), DefaultDataBufferFactory.sharedInstance, USER_TYPE,
+                        MediaType.APPLICATION_JSON, null)
+                .map(JsonStreamBenchmark::size)
+                .reduce(0L, Long::sum)
+                .block();
+    }
+
+    @Benchmark
+    public User decodeUser() throws IOException {
+        return userReader.readValue(userBytes);
+    }
+
+    private static long size(DataBuffer buffer) {
+        return buffer.readableByteCount();
+    }
+
+    // Mix-in that restores the previous @JsonFormat mapping of User.birthDate;
+    // Lombok copies the Jackson annotations onto the setter, so that is overridden too
+    abstract static class FormattedBirthDate {
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+        @JsonSerialize(using = LocalDateSerializer.class)
+        @JsonDeserialize(using = LocalDateDeserializer.class)
+        LocalDate birthDate;
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
+        @JsonDeserialize(using = LocalDateDeserializer.class)
+        abstract void setBirthDate(LocalDate birthDate);
+    }
+}
@@ -0,0 +1,223 @@
+package demo.clear_solutions_demo_trajun.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load against running instances of the user API, reported side by side:
+ * throughput, latency percentiles and heap growth per in-flight request (from {@code /actuator/metrics}).
+ * <p>Uses only the JDK, so it can be started as a source file:
+ * {@code java RuntimeLoadComparison.java webflux=http://localhost:8080 mvc=http://localhost:8081}.
+ * Tuned with {@code -Dconcurrency}, {@code -Dusers}, {@code -Dwarmup} and {@code -Dduration} (seconds).
+ * The mix is 10% birth date search, {@code -Dwrites} percent patch (default 10) and get by email for the rest.
+ * <p>A target ending in {@code #durability} sends it as the {@code Write-Durability} header of its writes, so
+ * write concerns are compared on one instance: {@code fast=http://localhost:8080#fast durable=http://localhost:8080#durable}.
+ */
+public class RuntimeLoadComparison {
+
+    private static final int CONCURRENCY = Integer.getInteger("concurrency", 256);
+    private static final int USERS = Integer.getInteger("users", 2000);
+    private static final Duration WARMUP = Duration.ofSeconds(Integer.getInteger("warmup", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("duration", 30));
+    private static final int WRITES = Integer.getInteger("writes", 10);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"statistic\":\"VALUE\",\"value\":([0-9.E+-]+)");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: RuntimeLoadComparison name=baseUrl[#durability] [name=baseUrl[#durability] ...]");
+            System.exit(1);
+        }
+        RuntimeLoadComparison comparison = new RuntimeLoadComparison();
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String target : args) {
+            String[] nameAndUrl = target.split("=", 2);
+            String[] urlAndDurability = nameAndUrl[1].split("#", 2);
+            System.out.printf("%s: seeding %d users, warming up %ds, measuring %ds at concurrency %d%n",
+                    nameAndUrl[0], USERS, WARMUP.toSeconds(), DURATION.toSeconds(), CONCURRENCY);
+            results.put(nameAndUrl[0], comparison.run(urlAndDurability[0],
+                    urlAndDurability.length > 1 ? urlAndDurability[1] : null));
+        }
+        print(results);
+    }
+
+    private Result run(String baseUrl, String durability) throws Exception {
+        for (int i = 0; i < USERS; i++)
+            send(baseUrl, "POST", "/api/users", """
+                    {"email":"%s","firstName":"Load","lastName":"Test","birthDate":"%s","phoneNumber":"%010d"}"""
+                    .formatted(email(i), DATE_FORMAT.format(birthDate(i)), i), durability);
+
+        load(baseUrl, durability, WARMUP, null);
+        System.gc();
+        Thread.sleep(1000);
+        double idleHeap = metric(baseUrl, "jvm.memory.used?tag=area:heap");
+
+        Result result = new Result();
+        List<Double> loadedHeap = new ArrayList<>();
+        Thread sampler = Thread.ofVirtual().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(1000);
+                    loadedHeap.add(metric(baseUrl, "jvm.memory.used?tag=area:heap"));
+                    result.threads = Math.max(result.threads, metric(baseUrl, "jvm.threads.live"));
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception ignored) {
+                }
+            }
+        });
+        load(baseUrl, durability, DURATION, result);
+        sampler.interrupt();
+        sampler.join();
+
+        double medianLoadedHeap = loadedHeap.stream().sorted().skip(loadedHeap.size() / 2).findFirst().orElse(idleHeap);
+        result.heapPerInFlight = Math.max(0, medianLoadedHeap - idleHeap) / CONCURRENCY;
+        return result;
+    }
+
+    private void load(String baseUrl, String durability, Duration duration, Result result) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<long[]> latencies = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < CONCURRENCY; w++) {
+                long[] samples = new long[1 << 16];
+                latencies.add(samples);
+                workers.submit(() -> {
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = nextRequest(baseUrl, durability);
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        if (status < 200 || status >= 300)
+                            errors.incrementAndGet();
+                        if (count < samples.length - 1)
+                            samples[count] = System.nanoTime() - start;
+                        count++;
+                    }
+                    samples[samples.length - 1] = count;
+                    return null;
+                });
+            }
+        }
+        if (result == null)
+            return;
+
+        long requests = 0;
+        List<Long> all = new ArrayList<>();
+        for (long[] samples : latencies) {
+            long count = samples[samples.length - 1];
+            requests += count;
+            for (int i = 0; i < Math.min(count, samples.length - 1); i++)
+                all.add(samples[i]);
+        }
+        long[] sorted = all.stream().mapToLong(Long::longValue).sorted().toArray();
+        result.throughput = requests / (double) duration.toSeconds();
+        result.errors = errors.get();
+        result.p50 = percentile(sorted, 0.50);
+        result.p90 = percentile(sorted, 0.90);
+        result.p99 = percentile(sorted, 0.99);
+        result.p999 = percentile(sorted, 0.999);
+        result.max = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+    }
+
+    private int nextRequest(String baseUrl, String durability) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int user = random.nextInt(USERS);
+        int operation = random.nextInt(100);
+        if (operation < WRITES)
+            return send(baseUrl, "PATCH", "/api/users/" + email(user),
+                    "{\"address\":\"" + random.nextInt(1000) + " Main St\"}", durability);
+        if (operation < WRITES + 10) {
+            LocalDate from = birthDate(user);
+            return send(baseUrl, "GET", "/api/users/search?fromDate=%s&toDate=%s"
+                    .formatted(DATE_FORMAT.format(from), DATE_FORMAT.format(from.plusDays(30))), null, null);
+        }
+        return send(baseUrl, "GET", "/api/users/" + email(user), null, null);
+    }
+
+    private int send(String baseUrl, String method, String path, String body, String durability) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        if (durability != null)
+            request.header("Write-Durability", durability);
+        if (body == null)
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        else
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(body));
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private double metric(String baseUrl, String name) throws Exception {
+        String body = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = METRIC_VALUE.matcher(body);
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : 0;
+    }
+
+    private static String email(int i) {
+        return "load-" + i + "@example.com";
+    }
+
+    private static LocalDate birthDate(int i) {
+        return LocalDate.of(1960, 1, 1).plusDays(i % 12000);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static void print(Map<String, Result> results) {
+        StringBuilder header = new StringBuilder(String.format("%-26s", ""));
+        results.keySet().forEach(name -> header.append(String.format("%14s", name)));
+        System.out.println(header);
+        row(results, "throughput (req/s)", r -> r.throughput);
+        row(results, "p50 (ms)", r -> r.p50);
+        row(results, "p90 (ms)", r -> r.p90);
+        row(results, "p99 (ms)", r -> r.p99);
+        row(results, "p99.9 (ms)", r -> r.p999);
+        row(results, "max (ms)", r -> r.max);
+        row(results, "errors", r -> r.errors);
+        row(results, "peak live threads", r -> r.threads);
+        row(results, "heap/in-flight (KiB)", r -> r.heapPerInFlight / 1024);
+    }
+
+    private static void row(Map<String, Result> results, String label, ToDoubleFunction<Result> value) {
+        StringBuilder line = new StringBuilder(String.format("%-26s", label));
+        results.values().forEach(r -> line.append(String.format("%14.2f", value.applyAsDouble(r))));
+        System.out.println(line);
+    }
+
+    private static class Result {
+        double throughput, p50, p90, p99, p999, max, errors, threads, heapPerInFlight;
+    }
+}
@@ -0,0 +1,92 @@
+package demo.clear_solutions_demo_trajun.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import demo.clear_solutions_demo_trajun.domain.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of a single {@link User} and of a 1000 element search result in JSON, CBOR and Smile.
+ * Payload sizes are printed once per fork from {@link #setUp()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserCodecBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectWriter userWriter;
+    private ObjectReader userReader;
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+
+    private User user;
+    private List<User> users;
+    private byte[] userBytes;
+    private byte[] usersBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        userWriter = mapper.writerFor(User.class);
+        userReader = mapper.readerFor(User.class);
+        listWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, User.class));
+        listReader = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, User.class));
+
+        user = user(0);
+        users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            users.add(user(i));
+        userBytes = userWriter.writeValueAsBytes(user);
+        usersBytes = listWriter.writeValueAsBytes(users);
+
+        System.out.printf("%n[%s] single user: %d bytes, 1000 users: %d bytes%n",
+                format, userBytes.length, usersBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeUser() throws IOException {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public User decodeUser() throws IOException {
+        return userReader.readValue(userBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeSearchResult() throws IOException {
+        return listWriter.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public List<User> decodeSearchResult() throws IOException {
+        return listReader.readValue(usersBytes);
+    }
+
+    static User user(int i) {
+        return new User("user" + i + "@example.com", "John" + i, "Doe" + i,
+                LocalDate.of(1960, 1, 1).plusDays(i * 17L), i + " Main St, Springfield", "12345" + (10000 + i % 90000));
+    }
+}
@@ -0,0 +1,78 @@
+package demo.clear_solutions_demo_trajun.benchmark;
+
+import demo.clear_solutions_demo_trajun.domain.User;
+import demo.clear_solutions_demo_trajun.repository.UserDocumentConverters;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a 1000 document {@code findByBirthDateBetween} result into {@link User}s by {@link MappingMongoConverter},
+ * with the default reflective mapping and with {@link UserDocumentConverters}. Each variant reads documents in the
+ * form it writes them; {@link #write} covers the insert side.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserDocumentBenchmark {
+
+    @Param({"reflective", "custom"})
+    public String mapping;
+
+    private MappingMongoConverter converter;
+    private List<User> users;
+    private List<Document> documents;
+
+    @Setup
+    public void setUp() {
+        MongoCustomConversions conversions = mapping.equals("custom")
+                ? new MongoCustomConversions(UserDocumentConverters.converters())
+                : new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        users = new ArrayList<>();
+        documents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            User user = new User("user" + i + "@example.com", "John" + i, "Doe", LocalDate.of(1960, 1, 1).plusDays(i * 7L),
+                    i % 2 == 0 ? "123 Main St" : null, "1234567890");
+            Document document = new Document();
+            converter.write(user, document);
+            users.add(user);
+            documents.add(document);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void read(Blackhole blackhole) {
+        for (Document document : documents)
+            blackhole.consume(converter.read(User.class, document));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void write(Blackhole blackhole) {
+        for (User user : users) {
+            Document document = new Document();
+            converter.write(user, document);
+            blackhole.consume(document);
+        }
+    }
+}